@@ -1,10 +1,15 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 
 /**
- * 基于 AQS 的自定义独占锁（不可重入）
+ * 基于 AQS 的自定义独占锁（可重入，可选公平模式）
  *
  * 演示内容：
  * 1. 继承 AQS 实现自定义同步器
@@ -12,11 +17,35 @@ import java.util.concurrent.locks.Lock;
  * 3. 独占模式的获取/释放逻辑
  * 4. tryLock 超时机制
  * 5. Condition 条件等待
+ * 6. 自适应自旋：进入 AQS 队列 park 之前先有限次自旋
+ * 7. 可重入：state 记录持有次数
+ * 8. 公平模式：hasQueuedPredecessors() 有人排队时不插队
+ * 9. 持有时间 / 等待时间统计
  *
  * 设计说明：
  * - state = 0 表示锁空闲
- * - state = 1 表示锁被占用
- * - 不支持重入（同一线程再次获取会阻塞）
+ * - state = n（n > 0）表示锁被 owner 线程持有 n 次
+ * - 同一线程再次获取只把 state 加 1，不会阻塞；释放 n 次后才真正释放
+ *
+ * 公平 vs 非公平：
+ * - 非公平（默认）：锁空闲时直接 CAS 抢，刚释放锁的线程很可能马上再次抢到，
+ *   省去唤醒队首线程的上下文切换，吞吐量高，但队列中的线程可能长时间拿不到锁
+ * - 公平：锁空闲时先检查 hasQueuedPredecessors()，有人排在前面就去排队，
+ *   严格 FIFO，每次交接都要唤醒一个被 park 的线程，吞吐量低
+ * - 与 ReentrantLock 一致，tryLock() 在公平模式下也会插队（需要公平时用 tryLock(0, unit)）
+ * - 公平模式下不自旋：自旋本身就是插队
+ *
+ * 自适应自旋：
+ * - 临界区只有几十纳秒时，一次 park/unpark 要两次上下文切换（微秒级），比等锁本身贵得多
+ * - lock() 的 CAS 失败后先自旋等待（Thread.onSpinWait），自旋次数不超过 spinBudget
+ * - spinBudget 按最近的持有时间调整：自旋成功时，所用的自旋次数就是持有者剩余的持有时间，
+ *   预算向它的 2 倍靠拢；自旋失败说明持有时间比预算长，预算减半，尽快改为 park
+ * - 用自旋次数而不是 System.nanoTime() 衡量持有时间，快速路径上没有额外开销
+ * - 单核机器上持有者在自旋期间不可能运行，自旋总是失败，预算会很快降到最小值
+ *
+ * 时间统计（setTimingEnabled(true) 开启，默认关闭）：
+ * - 持有时间：从 state 0 → n 到 n → 0，由 owner 线程在锁内累加，不需要原子操作
+ * - 等待时间：只统计第一次 CAS 失败的获取（自旋 + 排队），无竞争的获取不调用 nanoTime
  */
 public class CustomLock implements Lock {
 
@@ -26,27 +55,84 @@ public class CustomLock implements Lock {
      */
     private static class Sync extends AbstractQueuedSynchronizer {
 
+        /** 自旋预算的下限（保留少量自旋，持有时间变短时还能重新变大） */
+        private static final int MIN_SPINS = 8;
+
+        /** 自旋预算的上限（约几十微秒，与一次 park/unpark 的代价相当） */
+        private static final int MAX_SPINS = 1024;
+
+        /** 是否公平 */
+        private final boolean fair;
+
+        /** 是否启用自适应自旋（公平模式下忽略） */
+        private final boolean adaptiveSpin;
+
+        /** 当前自旋预算（多个线程并发更新，偶尔丢失一次更新无关紧要） */
+        private volatile int spinBudget = 128;
+
+        /** 是否统计持有 / 等待时间 */
+        private volatile boolean timing;
+
+        // 持有时间：只由 owner 线程在释放前写入，其他线程读取时可能稍旧
+        private long acquiredAt;
+        private long holdCount;
+        private long holdNanos;
+        private long maxHoldNanos;
+
+        // 等待时间：多个等待线程并发写入
+        private final LongAdder waitCount = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Sync(boolean fair, boolean adaptiveSpin) {
+            this.fair = fair;
+            this.adaptiveSpin = adaptiveSpin && !fair;
+        }
+
         /**
          * 判断锁是否被当前线程独占
          */
         @Override
         protected boolean isHeldExclusively() {
-            return getState() == 1 && getExclusiveOwnerThread() == Thread.currentThread();
+            return getExclusiveOwnerThread() == Thread.currentThread();
         }
 
         /**
          * 尝试获取锁（独占模式）
-         * 被 AQS 的 acquire() 方法调用
+         * 被 AQS 的 acquire() 方法调用，Condition.await() 返回前也会用保存的持有次数调用它
          *
-         * @param acquires 获取数量（这里固定为1）
+         * @param acquires 获取次数（lock() 时为 1）
          * @return true 表示获取成功
          */
         @Override
         protected boolean tryAcquire(int acquires) {
-            // CAS 将 state 从 0 改为 1
-            if (compareAndSetState(0, 1)) {
-                // 设置当前线程为独占线程
-                setExclusiveOwnerThread(Thread.currentThread());
+            if (fair && getState() == 0 && hasQueuedPredecessors()) {
+                return false;
+            }
+            return nonfairTryAcquire(acquires);
+        }
+
+        /**
+         * 不检查队列的获取，tryLock() 直接调用
+         */
+        boolean nonfairTryAcquire(int acquires) {
+            Thread current = Thread.currentThread();
+            int c = getState();
+            if (c == 0) {
+                // CAS 将 state 从 0 改为 acquires
+                if (compareAndSetState(0, acquires)) {
+                    // 设置当前线程为独占线程
+                    setExclusiveOwnerThread(current);
+                    onAcquired();
+                    return true;
+                }
+            } else if (getExclusiveOwnerThread() == current) {
+                // 重入：只有 owner 会走到这里，不需要 CAS
+                int next = c + acquires;
+                if (next < 0) {
+                    throw new Error("超过最大持有次数");
+                }
+                setState(next);
                 return true;
             }
             return false;
@@ -56,20 +142,126 @@ public class CustomLock implements Lock {
          * 尝试释放锁（独占模式）
          * 被 AQS 的 release() 方法调用
          *
-         * @param releases 释放数量（这里固定为1）
-         * @return true 表示释放成功（完全释放）
+         * @param releases 释放次数（unlock() 时为 1）
+         * @return true 表示完全释放（持有次数降为 0），AQS 随后唤醒队首线程
          */
         @Override
         protected boolean tryRelease(int releases) {
-            if (getState() == 0) {
-                throw new IllegalMonitorStateException("锁未被持有，无法释放");
+            if (getExclusiveOwnerThread() != Thread.currentThread()) {
+                throw new IllegalMonitorStateException("当前线程未持有锁，无法释放");
+            }
+            int c = getState() - releases;
+            boolean free = c == 0;
+            if (free) {
+                onReleased();
+                // 清除独占线程
+                setExclusiveOwnerThread(null);
             }
-            // 清除独占线程
-            setExclusiveOwnerThread(null);
-            // 设置 state 为 0（释放锁）
             // 注意：这里不需要 CAS，因为只有持有锁的线程才能释放
-            setState(0);
-            return true;
+            // 写 volatile 的 state 放在最后，之前的写入对下一个获取者可见
+            setState(c);
+            return free;
+        }
+
+        private void onAcquired() {
+            if (timing) {
+                acquiredAt = System.nanoTime();
+            }
+        }
+
+        private void onReleased() {
+            long t0 = acquiredAt;
+            if (t0 != 0) {
+                // 只由 owner 执行，普通字段即可
+                long held = System.nanoTime() - t0;
+                acquiredAt = 0;
+                holdCount++;
+                holdNanos += held;
+                if (held > maxHoldNanos) {
+                    maxHoldNanos = held;
+                }
+            }
+        }
+
+        /**
+         * 由 lock() 在慢速路径上调用（第一次 CAS 失败之后）
+         */
+        void recordWait(long nanos) {
+            waitCount.increment();
+            waitNanos.add(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * 自旋等待锁释放，最多自旋 spinBudget 次
+         *
+         * @return true 表示自旋期间获取成功；false 表示应当进入 AQS 队列
+         */
+        boolean spinAcquire() {
+            if (!adaptiveSpin) {
+                return false;
+            }
+            int budget = spinBudget;
+            for (int spins = 1; spins <= budget; spins++) {
+                Thread.onSpinWait();
+                // 先读再 CAS（TTAS），锁被占用时只读共享的缓存行，不反复抢占它
+                if (getState() == 0 && compareAndSetState(0, 1)) {
+                    setExclusiveOwnerThread(Thread.currentThread());
+                    onAcquired();
+                    spinBudget = Math.min(MAX_SPINS, Math.max(MIN_SPINS, budget + (2 * spins - budget) / 4));
+                    return true;
+                }
+            }
+            spinBudget = Math.max(MIN_SPINS, budget / 2);
+            return false;
+        }
+
+        int spinBudget() {
+            return adaptiveSpin ? spinBudget : 0;
+        }
+
+        int holdCountOfCurrentThread() {
+            return isHeldExclusively() ? getState() : 0;
+        }
+
+        boolean isLocked() {
+            return getState() != 0;
+        }
+
+        boolean isFair() {
+            return fair;
+        }
+
+        boolean isTiming() {
+            return timing;
+        }
+
+        void setTiming(boolean enabled) {
+            timing = enabled;
+        }
+
+        Stats stats() {
+            return new Stats(holdCount, holdNanos, maxHoldNanos,
+                    waitCount.sum(), waitNanos.sum(), maxWaitNanos.get());
+        }
+
+        /**
+         * 清零统计（持有时间的字段只能由 owner 写，所以在锁内清零）
+         */
+        void resetStats() {
+            acquire(1);
+            try {
+                // 本次获取不计入统计
+                acquiredAt = 0;
+                holdCount = 0;
+                holdNanos = 0;
+                maxHoldNanos = 0;
+                waitCount.reset();
+                waitNanos.reset();
+                maxWaitNanos.set(0);
+            } finally {
+                release(1);
+            }
         }
 
         /**
@@ -80,21 +272,93 @@ public class CustomLock implements Lock {
         }
     }
 
+    /**
+     * 持有 / 等待时间统计快照（单位纳秒）
+     */
+    public static final class Stats {
+        /** 完整持有（state 0 → n → 0）的次数，重入不重复计数 */
+        public final long holdCount;
+        public final long totalHoldNanos;
+        public final long maxHoldNanos;
+        /** 第一次 CAS 失败、需要自旋或排队的获取次数 */
+        public final long waitCount;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+
+        Stats(long holdCount, long totalHoldNanos, long maxHoldNanos,
+              long waitCount, long totalWaitNanos, long maxWaitNanos) {
+            this.holdCount = holdCount;
+            this.totalHoldNanos = totalHoldNanos;
+            this.maxHoldNanos = maxHoldNanos;
+            this.waitCount = waitCount;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        public double avgHoldMicros() {
+            return holdCount == 0 ? 0 : totalHoldNanos / 1e3 / holdCount;
+        }
+
+        public double avgWaitMicros() {
+            return waitCount == 0 ? 0 : totalWaitNanos / 1e3 / waitCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("持有 %d 次（平均 %.2fµs，最长 %.1fµs），等待 %d 次（平均 %.2fµs，最长 %.1fµs）",
+                    holdCount, avgHoldMicros(), maxHoldNanos / 1e3,
+                    waitCount, avgWaitMicros(), maxWaitNanos / 1e3);
+        }
+    }
+
     // 同步器实例
-    private final Sync sync = new Sync();
+    private final Sync sync;
+
+    /**
+     * 创建非公平、不自旋的锁：CAS 失败后直接进入 AQS 队列
+     */
+    public CustomLock() {
+        this(false, false);
+    }
+
+    /**
+     * 创建非公平锁
+     *
+     * @param adaptiveSpin 是否在进入 AQS 队列前自适应自旋
+     */
+    public CustomLock(boolean adaptiveSpin) {
+        this(false, adaptiveSpin);
+    }
+
+    /**
+     * @param fair         是否公平（公平模式下不自旋）
+     * @param adaptiveSpin 是否在进入 AQS 队列前自适应自旋
+     */
+    public CustomLock(boolean fair, boolean adaptiveSpin) {
+        this.sync = new Sync(fair, adaptiveSpin);
+    }
 
     // ==================== Lock 接口实现 ====================
 
     /**
      * 获取锁（阻塞式）
-     * 内部调用 AQS 的 acquire()，流程：
-     * 1. 先 tryAcquire() 尝试获取
-     * 2. 失败则加入 CLH 队列等待
-     * 3. 在队列中自旋/阻塞，直到获取成功
+     * 流程：
+     * 1. 先 tryAcquire() 尝试获取（已持有时直接重入；公平模式下有人排队则失败）
+     * 2. 失败则自适应自旋（开启时）
+     * 3. 仍失败则调用 AQS 的 acquire()，加入 CLH 队列等待，直到获取成功
      */
     @Override
     public void lock() {
-        sync.acquire(1);
+        if (sync.tryAcquire(1)) {
+            return;
+        }
+        long start = sync.isTiming() ? System.nanoTime() : 0;
+        if (!sync.spinAcquire()) {
+            sync.acquire(1);
+        }
+        if (start != 0) {
+            sync.recordWait(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -102,20 +366,33 @@ public class CustomLock implements Lock {
      */
     @Override
     public void lockInterruptibly() throws InterruptedException {
-        sync.acquireInterruptibly(1);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (sync.tryAcquire(1)) {
+            return;
+        }
+        long start = sync.isTiming() ? System.nanoTime() : 0;
+        if (!sync.spinAcquire()) {
+            sync.acquireInterruptibly(1);
+        }
+        if (start != 0) {
+            sync.recordWait(System.nanoTime() - start);
+        }
     }
 
     /**
      * 尝试获取锁（非阻塞）
+     * 与 ReentrantLock 一致，公平模式下也会插队
      * @return true 表示获取成功，false 表示获取失败
      */
     @Override
     public boolean tryLock() {
-        return sync.tryAcquire(1);
+        return sync.nonfairTryAcquire(1);
     }
 
     /**
-     * 尝试获取锁（带超时）
+     * 尝试获取锁（带超时，公平模式下遵守排队顺序）
      */
     @Override
     public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
@@ -123,10 +400,10 @@ public class CustomLock implements Lock {
     }
 
     /**
-     * 释放锁
+     * 释放锁（重入时需要释放同样的次数）
      * 内部调用 AQS 的 release()，流程：
-     * 1. 先 tryRelease() 释放状态
-     * 2. 唤醒 CLH 队列中的后继节点
+     * 1. 先 tryRelease() 把持有次数减 1
+     * 2. 减到 0 时唤醒 CLH 队列中的后继节点
      */
     @Override
     public void unlock() {
@@ -134,7 +411,7 @@ public class CustomLock implements Lock {
     }
 
     /**
-     * 获取条件变量
+     * 获取条件变量（await 时会一次性释放全部持有次数，返回前恢复）
      */
     @Override
     public Condition newCondition() {
@@ -142,12 +419,30 @@ public class CustomLock implements Lock {
     }
 
     /**
-     * 查询锁是否被持有
+     * 查询锁是否被持有（任意线程）
      */
     public boolean isLocked() {
+        return sync.isLocked();
+    }
+
+    /**
+     * 查询锁是否被当前线程持有
+     */
+    public boolean isHeldByCurrentThread() {
         return sync.isHeldExclusively();
     }
 
+    /**
+     * 当前线程的持有次数（未持有时为 0）
+     */
+    public int getHoldCount() {
+        return sync.holdCountOfCurrentThread();
+    }
+
+    public boolean isFair() {
+        return sync.isFair();
+    }
+
     /**
      * 查询是否有线程在等待获取锁
      */
@@ -155,6 +450,34 @@ public class CustomLock implements Lock {
         return sync.hasQueuedThreads();
     }
 
+    /**
+     * 当前自旋预算（未开启自适应自旋时为 0）
+     */
+    public int getSpinBudget() {
+        return sync.spinBudget();
+    }
+
+    /**
+     * 开启 / 关闭持有时间与等待时间统计
+     */
+    public void setTimingEnabled(boolean enabled) {
+        sync.setTiming(enabled);
+    }
+
+    /**
+     * 统计快照（持有时间由 owner 写入，锁被持有期间读取可能少算最近一次）
+     */
+    public Stats getStats() {
+        return sync.stats();
+    }
+
+    /**
+     * 清零统计（内部会短暂获取一次锁）
+     */
+    public void resetStats() {
+        sync.resetStats();
+    }
+
     // ==================== 测试代码 ====================
 
     /**
@@ -316,10 +639,203 @@ public class CustomLock implements Lock {
         Thread.sleep(2000); // 等待所有线程完成
     }
 
+    /**
+     * 测试5：自适应自旋预算随持有时间变化
+     */
+    static void testAdaptiveSpin() throws InterruptedException {
+        System.out.println("========== 测试5：自适应自旋 ==========");
+        System.out.println("CPU 核数: " + Runtime.getRuntime().availableProcessors()
+                + "（单核时持有者无法与自旋者同时运行，预算会降到最小值）");
+
+        CustomLock lock = new CustomLock(true);
+        System.out.println("初始自旋预算: " + lock.getSpinBudget());
+
+        runContended(lock, 4, 20_000, 0);
+        System.out.println("4 线程、临界区只有一次自增之后的预算: " + lock.getSpinBudget());
+
+        runContended(lock, 4, 200, 1);
+        System.out.println("4 线程、临界区持有 1ms 之后的预算: " + lock.getSpinBudget() + "（持有时间长，很快改为 park）");
+
+        runContended(lock, 4, 20_000, 0);
+        System.out.println("恢复短临界区之后的预算: " + lock.getSpinBudget());
+        System.out.println();
+    }
+
+    private static void runContended(CustomLock lock, int threadCount, int loops, long holdMillis)
+            throws InterruptedException {
+        int[] counter = {0};
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < loops; j++) {
+                    lock.lock();
+                    try {
+                        counter[0]++;
+                        if (holdMillis > 0) {
+                            Thread.sleep(holdMillis);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+    }
+
+    /**
+     * 测试6：可重入（对应 SynchronizedDemo.ReentrantDemo 的 outer → inner → deepInner）
+     */
+    static void testReentrant() throws InterruptedException {
+        System.out.println("========== 测试6：可重入 ==========");
+
+        CustomLock lock = new CustomLock();
+        Runnable deepInner = () -> {
+            lock.lock();
+            try {
+                System.out.println("  进入 deepInner（第3次获取同一把锁）, holdCount=" + lock.getHoldCount());
+            } finally {
+                lock.unlock();
+            }
+        };
+        Runnable inner = () -> {
+            lock.lock();
+            try {
+                System.out.println("  进入 inner（第2次获取同一把锁）, holdCount=" + lock.getHoldCount());
+                deepInner.run();
+            } finally {
+                lock.unlock();
+            }
+        };
+
+        Thread t = new Thread(() -> {
+            lock.lock();
+            try {
+                System.out.println("  进入 outer（第1次获取锁）, holdCount=" + lock.getHoldCount());
+                inner.run();
+                System.out.println("  回到 outer, holdCount=" + lock.getHoldCount());
+            } finally {
+                lock.unlock();
+            }
+        }, "reentrant-thread");
+        t.start();
+        t.join(1000);
+        System.out.println("嵌套调用结束: " + (t.isAlive() ? "❌ 死锁" : "✅ 正常返回")
+                + "，isLocked=" + lock.isLocked());
+
+        // 持有 2 次时 await：一次性释放全部持有次数，其他线程才能拿到锁；返回后恢复为 2
+        Condition condition = lock.newCondition();
+        boolean[] signalled = {false};
+        Thread waiter = new Thread(() -> {
+            lock.lock();
+            lock.lock();
+            try {
+                while (!signalled[0]) {
+                    condition.await();
+                }
+                System.out.println("  await 返回后 holdCount=" + lock.getHoldCount());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+                lock.unlock();
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+        lock.lock();
+        try {
+            signalled[0] = true;
+            condition.signal();
+        } finally {
+            lock.unlock();
+        }
+        waiter.join();
+
+        try {
+            lock.unlock();
+        } catch (IllegalMonitorStateException e) {
+            System.out.println("未持有时 unlock: IllegalMonitorStateException（" + e.getMessage() + "）");
+        }
+        System.out.println();
+    }
+
+    /**
+     * 测试7：公平 vs 非公平的获取顺序（对应 ReentrantLockDemo.testFairness）
+     */
+    static void testFairness() throws InterruptedException {
+        System.out.println("========== 测试7：公平 vs 非公平 ==========");
+
+        System.out.println("--- 非公平（默认） ---");
+        testFairness(new CustomLock(false, false));
+        System.out.println("--- 公平 ---");
+        testFairness(new CustomLock(true, false));
+        System.out.println("（公平锁应为 T0->T1->T2->T3->T4->主线程，非公平锁下释放后立刻再获取的主线程会插到排队线程前面）");
+        System.out.println();
+    }
+
+    private static void testFairness(CustomLock lock) throws InterruptedException {
+        List<String> acquireOrder = Collections.synchronizedList(new ArrayList<>());
+
+        // 先占住锁，让 5 个线程按顺序排队
+        lock.lock();
+        Thread[] threads = new Thread[5];
+        for (int i = 0; i < 5; i++) {
+            final int no = i;
+            threads[i] = new Thread(() -> {
+                lock.lock();
+                try {
+                    acquireOrder.add("T" + no);
+                } finally {
+                    lock.unlock();
+                }
+            }, "T" + i);
+            threads[i].start();
+            Thread.sleep(50);
+        }
+
+        // 释放后立刻再次获取：非公平锁下 T0 刚被唤醒还没运行，主线程直接抢到；公平锁下主线程排到 T4 之后
+        lock.unlock();
+        lock.lock();
+        try {
+            acquireOrder.add("主线程");
+        } finally {
+            lock.unlock();
+        }
+
+        for (Thread t : threads) t.join();
+        System.out.println("获取顺序: " + acquireOrder);
+    }
+
+    /**
+     * 测试8：持有时间 / 等待时间统计
+     */
+    static void testTiming() throws InterruptedException {
+        System.out.println("========== 测试8：持有 / 等待时间统计 ==========");
+
+        CustomLock lock = new CustomLock();
+        lock.setTimingEnabled(true);
+        runContended(lock, 4, 20, 1);
+        System.out.println("4 线程、每次持有约 1ms: " + lock.getStats());
+
+        lock.resetStats();
+        runContended(lock, 4, 20_000, 0);
+        System.out.println("4 线程、临界区只有一次自增: " + lock.getStats());
+        System.out.println("（重入只算一次持有；没有竞争的获取不计入等待）");
+        System.out.println();
+    }
+
     public static void main(String[] args) throws InterruptedException {
         testBasicLockUnlock();
         testTryLock();
         testCondition();
         testQueuedThreads();
+        testAdaptiveSpin();
+        testReentrant();
+        testFairness();
+        testTiming();
     }
 }
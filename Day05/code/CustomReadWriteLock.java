@@ -0,0 +1,500 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * 基于 AQS 共享/独占模式的自定义读写锁（沿用 CustomLock 的写法）
+ *
+ * 演示内容：
+ * 1. 同一个 AQS 同时使用共享模式（读锁）和独占模式（写锁）
+ * 2. 读读共享、读写互斥、写写互斥
+ * 3. 写锁可重入，持有写锁时可以再获取读锁（锁降级）
+ * 4. 与 StripedReadWriteLock（分段读者计数）的正确性对比
+ *
+ * 设计说明（与 ReentrantReadWriteLock 相同的 state 拆分）：
+ * - state 高 16 位：持有读锁的次数（所有读线程合计）
+ * - state 低 16 位：写锁的重入次数
+ * - 读锁获取：写锁空闲（或写锁就是自己持有）时 CAS 把高 16 位加 1
+ * - 写锁获取：state == 0 时 CAS 把低 16 位加 1；已持有写锁时直接重入
+ * - 有写者在等待、且队列中有人排在前面时，新来的读者也去排队，避免源源不断的读者让写者饿死；
+ *   只有读者在排队时不拦（否则每个读者都要排队 + 唤醒，退化成公平锁的吞吐量）
+ *
+ * 与 ReentrantReadWriteLock 的差异：
+ * - 不记录每个线程的读锁持有次数，所以读锁"可重入"只在没有写者排队时成立：
+ *   持有读锁时再次获取读锁，如果恰好有写者在排队，会与写者互相等待
+ * - 不支持读锁升级为写锁（和 ReentrantReadWriteLock 一样会死锁）
+ *
+ * 性能特点：
+ * 每次读锁获取/释放都要 CAS 同一个 state，多核下这个缓存行在读者之间来回传递，
+ * 读者越多越慢——这正是 StripedReadWriteLock 要解决的问题。
+ */
+public class CustomReadWriteLock implements ReadWriteLock {
+
+    static final int SHARED_SHIFT = 16;
+    static final int SHARED_UNIT = 1 << SHARED_SHIFT;
+    static final int MAX_COUNT = SHARED_UNIT - 1;
+    static final int EXCLUSIVE_MASK = SHARED_UNIT - 1;
+
+    static int sharedCount(int c) {
+        return c >>> SHARED_SHIFT;
+    }
+
+    static int exclusiveCount(int c) {
+        return c & EXCLUSIVE_MASK;
+    }
+
+    /**
+     * 内部同步器：共享模式对应读锁，独占模式对应写锁
+     */
+    private static class Sync extends AbstractQueuedSynchronizer {
+
+        /**
+         * 正在排队的写者数量。AQS 没有公开"队首是不是独占节点"，
+         * ReentrantReadWriteLock 用的 apparentlyFirstQueuedIsExclusive() 是包内方法，这里用计数近似
+         */
+        private final AtomicInteger waitingWriters = new AtomicInteger();
+
+        @Override
+        protected boolean isHeldExclusively() {
+            return getExclusiveOwnerThread() == Thread.currentThread();
+        }
+
+        // ==================== 独占模式（写锁） ====================
+
+        @Override
+        protected boolean tryAcquire(int acquires) {
+            Thread current = Thread.currentThread();
+            int c = getState();
+            if (c != 0) {
+                // 有读者，或者写锁被别人持有
+                if (exclusiveCount(c) == 0 || getExclusiveOwnerThread() != current) {
+                    return false;
+                }
+                if (exclusiveCount(c) + acquires > MAX_COUNT) {
+                    throw new Error("超过写锁最大重入次数");
+                }
+                // 重入：只有 owner 会走到这里，不需要 CAS
+                setState(c + acquires);
+                return true;
+            }
+            if (!compareAndSetState(0, acquires)) {
+                return false;
+            }
+            setExclusiveOwnerThread(current);
+            return true;
+        }
+
+        @Override
+        protected boolean tryRelease(int releases) {
+            if (!isHeldExclusively()) {
+                throw new IllegalMonitorStateException("当前线程未持有写锁，无法释放");
+            }
+            int next = getState() - releases;
+            boolean free = exclusiveCount(next) == 0;
+            if (free) {
+                setExclusiveOwnerThread(null);
+            }
+            // 锁降级时高 16 位还有自己的读锁，写锁释放后其他读者即可进入
+            setState(next);
+            return free;
+        }
+
+        // ==================== 共享模式（读锁） ====================
+
+        /**
+         * @return 负数表示失败；0 或正数表示成功（AQS 据此决定是否继续唤醒后继的读者）
+         */
+        @Override
+        protected int tryAcquireShared(int unused) {
+            Thread current = Thread.currentThread();
+            while (true) {
+                int c = getState();
+                boolean ownWriteLock = exclusiveCount(c) != 0 && getExclusiveOwnerThread() == current;
+                if (exclusiveCount(c) != 0 && !ownWriteLock) {
+                    return -1;
+                }
+                // 有写者在等、且有人排在前面就去排队（持有写锁的线程降级时例外，否则会等自己）
+                // 已经排到队首的读者 hasQueuedPredecessors() 为 false，不会被自己身后的写者挡住
+                if (!ownWriteLock && waitingWriters.get() != 0 && hasQueuedPredecessors()) {
+                    return -1;
+                }
+                if (sharedCount(c) == MAX_COUNT) {
+                    throw new Error("超过读锁最大持有次数");
+                }
+                if (compareAndSetState(c, c + SHARED_UNIT)) {
+                    return 1;
+                }
+            }
+        }
+
+        /**
+         * @return true 表示读锁全部释放，AQS 随后唤醒等待的写者
+         */
+        @Override
+        protected boolean tryReleaseShared(int unused) {
+            while (true) {
+                int c = getState();
+                if (sharedCount(c) == 0) {
+                    throw new IllegalMonitorStateException("读锁未被持有，无法释放");
+                }
+                int next = c - SHARED_UNIT;
+                if (compareAndSetState(c, next)) {
+                    return next == 0;
+                }
+            }
+        }
+
+        /**
+         * 非阻塞获取读锁，不检查队列（tryLock() 与 ReentrantReadWriteLock 一样允许插队）
+         */
+        boolean tryReadLock() {
+            Thread current = Thread.currentThread();
+            while (true) {
+                int c = getState();
+                if (exclusiveCount(c) != 0 && getExclusiveOwnerThread() != current) {
+                    return false;
+                }
+                if (sharedCount(c) == MAX_COUNT) {
+                    throw new Error("超过读锁最大持有次数");
+                }
+                if (compareAndSetState(c, c + SHARED_UNIT)) {
+                    return true;
+                }
+            }
+        }
+
+        void lockWrite() {
+            if (!tryAcquire(1)) {
+                waitingWriters.incrementAndGet();
+                try {
+                    acquire(1);
+                } finally {
+                    waitingWriters.decrementAndGet();
+                }
+            }
+        }
+
+        void lockWriteInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!tryAcquire(1)) {
+                waitingWriters.incrementAndGet();
+                try {
+                    acquireInterruptibly(1);
+                } finally {
+                    waitingWriters.decrementAndGet();
+                }
+            }
+        }
+
+        boolean tryLockWrite(long nanos) throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (tryAcquire(1)) {
+                return true;
+            }
+            waitingWriters.incrementAndGet();
+            try {
+                return tryAcquireNanos(1, nanos);
+            } finally {
+                waitingWriters.decrementAndGet();
+            }
+        }
+
+        int readLockCount() {
+            return sharedCount(getState());
+        }
+
+        int writeHoldCount() {
+            return isHeldExclusively() ? exclusiveCount(getState()) : 0;
+        }
+
+        Condition newCondition() {
+            return new ConditionObject();
+        }
+    }
+
+    private final Sync sync = new Sync();
+    private final ReadLock readLock = new ReadLock();
+    private final WriteLock writeLock = new WriteLock();
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * 当前被持有的读锁总数（所有线程合计）
+     */
+    public int getReadLockCount() {
+        return sync.readLockCount();
+    }
+
+    /**
+     * 当前线程持有写锁的次数
+     */
+    public int getWriteHoldCount() {
+        return sync.writeHoldCount();
+    }
+
+    public boolean hasQueuedThreads() {
+        return sync.hasQueuedThreads();
+    }
+
+    // ==================== 读锁 / 写锁 ====================
+
+    private class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            sync.acquireShared(1);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            sync.acquireSharedInterruptibly(1);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return sync.tryReadLock();
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return sync.tryAcquireSharedNanos(1, unit.toNanos(time));
+        }
+
+        @Override
+        public void unlock() {
+            sync.releaseShared(1);
+        }
+
+        /**
+         * 读锁不支持条件变量：多个读者同时持有，signal 时无法确定释放谁的锁
+         */
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("读锁不支持 Condition");
+        }
+    }
+
+    private class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            sync.lockWrite();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            sync.lockWriteInterruptibly();
+        }
+
+        @Override
+        public boolean tryLock() {
+            return sync.tryAcquire(1);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return sync.tryLockWrite(unit.toNanos(time));
+        }
+
+        @Override
+        public void unlock() {
+            sync.release(1);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return sync.newCondition();
+        }
+    }
+
+    // ==================== 测试代码 ====================
+
+    /**
+     * 测试1：读读共享、读写互斥（对应 ReentrantLockDemo.readWriteLockDemo）
+     */
+    static void testReadWrite() throws InterruptedException {
+        System.out.println("========== 测试1：读读共享、读写互斥 ==========");
+
+        CustomReadWriteLock rwLock = new CustomReadWriteLock();
+        Lock readLock = rwLock.readLock();
+        Lock writeLock = rwLock.writeLock();
+        String[] data = {"初始数据"};
+
+        Thread[] readers = new Thread[3];
+        for (int i = 0; i < 3; i++) {
+            final int no = i;
+            readers[i] = new Thread(() -> {
+                readLock.lock();
+                try {
+                    System.out.println("[读线程" + no + "] 获取读锁，读取数据: " + data[0]
+                            + " (读锁数量: " + rwLock.getReadLockCount() + ")");
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    readLock.unlock();
+                    System.out.println("[读线程" + no + "] 释放读锁");
+                }
+            }, "Reader-" + i);
+            readers[i].start();
+        }
+
+        Thread.sleep(100);
+
+        Thread writer = new Thread(() -> {
+            System.out.println("[写线程] 尝试获取写锁（需要等待所有读锁释放）...");
+            writeLock.lock();
+            try {
+                data[0] = "更新后的数据";
+                System.out.println("[写线程] 获取写锁，写入数据: " + data[0]
+                        + " (读锁数量: " + rwLock.getReadLockCount() + ")");
+            } finally {
+                writeLock.unlock();
+                System.out.println("[写线程] 释放写锁");
+            }
+        }, "Writer");
+        writer.start();
+
+        Thread.sleep(50);
+        // 写者排队后新来的读者也要排队，不会让写者饿死
+        Thread lateReader = new Thread(() -> {
+            readLock.lock();
+            try {
+                System.out.println("[后到的读线程] 在写者之后获取读锁，读取数据: " + data[0]);
+            } finally {
+                readLock.unlock();
+            }
+        });
+        lateReader.start();
+
+        for (Thread t : readers) t.join();
+        writer.join();
+        lateReader.join();
+        System.out.println("最终数据: " + data[0]);
+        System.out.println();
+    }
+
+    /**
+     * 测试2：写锁重入与锁降级
+     */
+    static void testReentrantAndDowngrade() throws InterruptedException {
+        System.out.println("========== 测试2：写锁重入与锁降级 ==========");
+
+        CustomReadWriteLock rwLock = new CustomReadWriteLock();
+        rwLock.writeLock().lock();
+        rwLock.writeLock().lock();
+        System.out.println("写锁获取 2 次, writeHoldCount=" + rwLock.getWriteHoldCount());
+        rwLock.writeLock().unlock();
+
+        // 降级：持有写锁时获取读锁，再释放写锁
+        rwLock.readLock().lock();
+        rwLock.writeLock().unlock();
+        System.out.println("降级后 writeHoldCount=" + rwLock.getWriteHoldCount()
+                + ", readLockCount=" + rwLock.getReadLockCount());
+
+        boolean[] otherReaderGot = {false};
+        Thread other = new Thread(() -> {
+            otherReaderGot[0] = rwLock.readLock().tryLock();
+            if (otherReaderGot[0]) {
+                rwLock.readLock().unlock();
+            }
+        });
+        other.start();
+        other.join();
+        System.out.println("降级后其他线程能否获取读锁: " + otherReaderGot[0]);
+        System.out.println("降级后其他线程能否获取写锁: " + tryLockInOtherThread(rwLock.writeLock()));
+        rwLock.readLock().unlock();
+        System.out.println("释放读锁后其他线程能否获取写锁: " + tryLockInOtherThread(rwLock.writeLock()));
+        System.out.println();
+    }
+
+    private static boolean tryLockInOtherThread(Lock lock) throws InterruptedException {
+        boolean[] acquired = {false};
+        Thread t = new Thread(() -> {
+            acquired[0] = lock.tryLock();
+            if (acquired[0]) {
+                lock.unlock();
+            }
+        });
+        t.start();
+        t.join();
+        return acquired[0];
+    }
+
+    /**
+     * 测试3：并发读写的正确性
+     * 写者在写锁内把 a、b 同时加 1（中间故意让出 CPU），读者在读锁内检查 a == b
+     */
+    static void testConsistency(String name, ReadWriteLock rwLock) throws InterruptedException {
+        long[] pair = {0, 0};
+        int[] violations = {0};
+        final int WRITERS = 2;
+        final int READERS = 6;
+        final int WRITES = 2_000;
+        final int READS = 50_000;
+
+        Thread[] threads = new Thread[WRITERS + READERS];
+        for (int i = 0; i < WRITERS; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < WRITES; j++) {
+                    rwLock.writeLock().lock();
+                    try {
+                        pair[0]++;
+                        Thread.yield();
+                        pair[1]++;
+                    } finally {
+                        rwLock.writeLock().unlock();
+                    }
+                }
+            });
+        }
+        for (int i = WRITERS; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < READS; j++) {
+                    rwLock.readLock().lock();
+                    try {
+                        if (pair[0] != pair[1]) {
+                            synchronized (violations) {
+                                violations[0]++;
+                            }
+                        }
+                    } finally {
+                        rwLock.readLock().unlock();
+                    }
+                }
+            });
+        }
+
+        long start = System.currentTimeMillis();
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+        long elapsed = System.currentTimeMillis() - start;
+
+        boolean ok = violations[0] == 0 && pair[0] == (long) WRITERS * WRITES;
+        System.out.println(name + ": 写入 " + pair[0] + " 次，读到不一致 " + violations[0] + " 次，耗时 "
+                + elapsed + "ms → " + (ok ? "✅ 正确" : "❌ 错误"));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        testReadWrite();
+        testReentrantAndDowngrade();
+
+        System.out.println("========== 测试3：并发读写的正确性 ==========");
+        testConsistency("CustomReadWriteLock  ", new CustomReadWriteLock());
+        testConsistency("StripedReadWriteLock ", new StripedReadWriteLock());
+        System.out.println();
+    }
+}
@@ -0,0 +1,213 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消除回退栈（Elimination-Backoff Stack，Hendler、Shavit、Yerushalmi 2004）
+ *
+ * 问题：
+ * TreiberStack 的所有线程都在 CAS 同一个 top，线程越多失败越多，
+ * 失败后立即重试只会让竞争更激烈（CASDemo.casSpinDemo 的自旋、multiThreadCASDemo 的多线程计数器）。
+ *
+ * 思路：一个 push 紧接着一个 pop，对栈来说等于什么都没发生。
+ * 在 top 上 CAS 失败的 push 和 pop 不再重试 top，而是到旁边的"消除数组"里碰头，
+ * push 直接把元素交给 pop，两个操作都完成，top 一次都不用改。
+ * 竞争越激烈，碰头的机会越多，消除数组起到了"有用的回退"的作用。
+ *
+ * 消除数组的一个槽位：
+ *   null ──push 放入节点──→ node ──pop 取走──→ TAKEN ──push 看到后清空──→ null
+ *                            └──push 等待超时，自己取回──→ null
+ * - 只有 push 在槽位上等待，pop 只检查槽位里有没有等待中的节点（单边等待，实现更简单）
+ * - pop 的 CAS(node, TAKEN) 成功即两个操作同时完成（线性化点）
+ * - push 超时后 CAS(node, null) 取回节点；如果失败说明刚好被 pop 取走，同样算成功
+ *
+ * 自适应范围：每个线程记住自己使用的槽位范围，碰头成功就扩大、超时就缩小，
+ * 竞争小时只用很少的槽位（容易碰头），竞争大时分散到更多槽位（避免在槽位上再次争抢）。
+ */
+public class EliminationBackoffStack<E> {
+
+    static final class Node<E> {
+        final E item;
+        Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    /** 槽位中的节点已被 pop 取走 */
+    private static final Object TAKEN = new Object();
+
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** 消除数组大小：CPU 核数的一半，最多 32 个槽位 */
+    static final int ELIMINATION_SIZE = Math.max(1, Math.min(32, NCPU / 2));
+
+    /** push 在槽位上等待的自旋次数（单核上自旋没有意义，让出 CPU 给 pop） */
+    static final int WAIT_SPINS = NCPU > 1 ? 256 : 4;
+
+    private final AtomicReference<Node<E>> top = new AtomicReference<>();
+    private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(ELIMINATION_SIZE);
+
+    /** 每个线程当前使用的槽位范围 [0, range) */
+    private static final ThreadLocal<int[]> RANGE = ThreadLocal.withInitial(() -> new int[]{1});
+
+    /** 通过消除完成的 push + pop 对数 */
+    private final LongAdder eliminated = new LongAdder();
+
+    public void push(E item) {
+        if (item == null) {
+            throw new NullPointerException("EliminationBackoffStack 不允许 null 元素");
+        }
+        Node<E> node = new Node<>(item);
+        while (true) {
+            Node<E> oldTop = top.get();
+            node.next = oldTop;
+            if (top.compareAndSet(oldTop, node)) {
+                return;
+            }
+            // top 上有竞争：去消除数组等一个 pop
+            if (tryEliminatePush(node)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 栈顶元素，栈为空时返回 null
+     */
+    public E pop() {
+        while (true) {
+            Node<E> oldTop = top.get();
+            if (oldTop == null) {
+                return null;
+            }
+            if (top.compareAndSet(oldTop, oldTop.next)) {
+                return oldTop.item;
+            }
+            E item = tryEliminatePop();
+            if (item != null) {
+                return item;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return top.get() == null;
+    }
+
+    /**
+     * 通过消除完成的 push + pop 对数
+     */
+    public long getEliminatedCount() {
+        return eliminated.sum();
+    }
+
+    // ==================== 消除数组 ====================
+
+    private boolean tryEliminatePush(Node<E> node) {
+        int[] range = RANGE.get();
+        int index = ThreadLocalRandom.current().nextInt(range[0]);
+        if (!slots.compareAndSet(index, null, node)) {
+            // 槽位被占用，说明这附近竞争激烈，扩大范围
+            grow(range);
+            return false;
+        }
+        for (int spin = 0; spin < WAIT_SPINS; spin++) {
+            if (slots.get(index) == TAKEN) {
+                slots.set(index, null);
+                grow(range);
+                return true;
+            }
+            if (NCPU > 1) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        // 超时：取回节点；取回失败说明刚好被 pop 拿走了
+        if (slots.compareAndSet(index, node, null)) {
+            shrink(range);
+            return false;
+        }
+        slots.set(index, null);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E tryEliminatePop() {
+        int[] range = RANGE.get();
+        int index = ThreadLocalRandom.current().nextInt(range[0]);
+        Object v = slots.get(index);
+        if (v instanceof Node && slots.compareAndSet(index, v, TAKEN)) {
+            eliminated.increment();
+            grow(range);
+            return ((Node<E>) v).item;
+        }
+        shrink(range);
+        return null;
+    }
+
+    private static void grow(int[] range) {
+        if (range[0] < ELIMINATION_SIZE) {
+            range[0]++;
+        }
+    }
+
+    private static void shrink(int[] range) {
+        if (range[0] > 1) {
+            range[0]--;
+        }
+    }
+
+    // ==================== 测试 ====================
+
+    /**
+     * 多个线程同时 push / pop，检查每个元素恰好被弹出一次，并输出被消除的操作对数
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== EliminationBackoffStack 并发正确性测试 ==========");
+        System.out.println("CPU 核数: " + NCPU + "，消除数组槽位: " + ELIMINATION_SIZE);
+
+        final int THREADS = 8;
+        final int PER_THREAD = 100_000;
+        EliminationBackoffStack<Integer> stack = new EliminationBackoffStack<>();
+        AtomicInteger[] seen = new AtomicInteger[THREADS * PER_THREAD];
+        for (int i = 0; i < seen.length; i++) {
+            seen[i] = new AtomicInteger();
+        }
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int base = t * PER_THREAD;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    stack.push(base + i);
+                    if ((i & 1) == 1) {
+                        Integer v = stack.pop();
+                        if (v != null) seen[v].incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        Integer v;
+        while ((v = stack.pop()) != null) {
+            seen[v].incrementAndGet();
+        }
+
+        int lost = 0, duplicated = 0;
+        for (AtomicInteger count : seen) {
+            if (count.get() == 0) lost++;
+            if (count.get() > 1) duplicated++;
+        }
+        System.out.println("push " + seen.length + " 个元素，丢失 " + lost + " 个，重复弹出 " + duplicated + " 个 → "
+                + (lost == 0 && duplicated == 0 ? "✓ 正确" : "✗ 错误"));
+        System.out.println("通过消除数组完成的 push/pop 对: " + stack.getEliminatedCount()
+                + (NCPU > 1 ? "" : "（单核上 top 的 CAS 很少失败，消除很少发生）"));
+    }
+}
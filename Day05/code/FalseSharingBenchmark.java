@@ -0,0 +1,294 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 伪共享（False Sharing）基准测试
+ *
+ * 每个线程只写自己的计数器，线程之间没有任何逻辑上的共享数据；
+ * 唯一的变量是计数器在内存中的布局：
+ *
+ * | 布局                      | 相邻两个计数器的距离 |
+ * |---------------------------|----------------------|
+ * | AtomicLong[]              | 约 24 字节（连续分配的对象） |
+ * | PaddedAtomicLong[]        | ≥ 128 字节           |
+ * | AtomicLongArray[i]        | 8 字节               |
+ * | AtomicLongArray[i * 16]   | 128 字节             |
+ * | volatile long 对象        | 约 24 字节           |
+ * | 带填充的 volatile long    | ≥ 128 字节           |
+ *
+ * 前两组用 incrementAndGet（CAS 类原子指令），volatile long 组是单写者计数
+ * （每个线程只有自己写，value++ 后 volatile 写回），两者都会受伪共享影响。
+ *
+ * 说明：
+ * - 伪共享只在多核上出现：线程数应不超过 CPU 核数，单核机器上各布局结果相同
+ * - 用法：java FalseSharingBenchmark [线程数]，默认取 CPU 核数（至少 2，最多 8）
+ */
+public class FalseSharingBenchmark {
+
+    static final long RUN_MILLIS = 500;
+
+    static final int ROUNDS = 3;
+
+    /** AtomicLongArray 填充布局中相邻计数器的间隔：16 个 long = 128 字节 */
+    static final int STRIDE = 16;
+
+    // ==================== 计数器布局 ====================
+
+    /**
+     * 普通 volatile long，对象只有 24 字节
+     */
+    static final class VolatileLong {
+        volatile long value;
+    }
+
+    /**
+     * 带填充的 volatile long：父类、子类各 7 个 long 夹住 value（Disruptor Sequence 的做法）。
+     * HotSpot 按继承层次排列字段，父类字段在前，所以 value 前后各有 56 字节填充，
+     * 再加上对象头，相邻对象的 value 相隔 ≥ 128 字节。
+     */
+    @SuppressWarnings("unused")
+    static class LhsPadding {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    static class PaddedValue extends LhsPadding {
+        volatile long value;
+    }
+
+    @SuppressWarnings("unused")
+    static final class PaddedVolatileLong extends PaddedValue {
+        long p9, p10, p11, p12, p13, p14, p15;
+    }
+
+    /**
+     * 一种布局：为每个线程准备计数器，并给出"线程 id 更新一次自己的计数器"的操作
+     */
+    interface Layout {
+        String name();
+
+        void prepare(int threads);
+
+        void update(int id);
+
+        long total();
+    }
+
+    static final class AtomicLongObjects implements Layout {
+        private AtomicLong[] counters;
+
+        public String name() {
+            return "AtomicLong[]（相邻对象）";
+        }
+
+        public void prepare(int threads) {
+            counters = new AtomicLong[threads];
+            for (int i = 0; i < threads; i++) {
+                counters[i] = new AtomicLong();
+            }
+        }
+
+        public void update(int id) {
+            counters[id].incrementAndGet();
+        }
+
+        public long total() {
+            long sum = 0;
+            for (AtomicLong c : counters) sum += c.get();
+            return sum;
+        }
+    }
+
+    static final class PaddedAtomicLongObjects implements Layout {
+        private PaddedAtomicLong[] counters;
+
+        public String name() {
+            return "PaddedAtomicLong[]";
+        }
+
+        public void prepare(int threads) {
+            counters = new PaddedAtomicLong[threads];
+            for (int i = 0; i < threads; i++) {
+                counters[i] = new PaddedAtomicLong();
+            }
+        }
+
+        public void update(int id) {
+            counters[id].incrementAndGet();
+        }
+
+        public long total() {
+            long sum = 0;
+            for (PaddedAtomicLong c : counters) sum += c.get();
+            return sum;
+        }
+    }
+
+    static final class AtomicArray implements Layout {
+        private final int stride;
+        private AtomicLongArray counters;
+
+        AtomicArray(int stride) {
+            this.stride = stride;
+        }
+
+        public String name() {
+            return stride == 1 ? "AtomicLongArray[i]" : "AtomicLongArray[i*" + stride + "]";
+        }
+
+        public void prepare(int threads) {
+            counters = new AtomicLongArray(threads * stride);
+        }
+
+        public void update(int id) {
+            counters.incrementAndGet(id * stride);
+        }
+
+        public long total() {
+            long sum = 0;
+            for (int i = 0; i < counters.length(); i += stride) sum += counters.get(i);
+            return sum;
+        }
+    }
+
+    static final class VolatileLongObjects implements Layout {
+        private VolatileLong[] counters;
+
+        public String name() {
+            return "volatile long（相邻对象）";
+        }
+
+        public void prepare(int threads) {
+            counters = new VolatileLong[threads];
+            for (int i = 0; i < threads; i++) {
+                counters[i] = new VolatileLong();
+            }
+        }
+
+        public void update(int id) {
+            // 单写者：只有线程 id 会写这个计数器，value++ 不会丢失更新
+            counters[id].value++;
+        }
+
+        public long total() {
+            long sum = 0;
+            for (VolatileLong c : counters) sum += c.value;
+            return sum;
+        }
+    }
+
+    static final class PaddedVolatileLongObjects implements Layout {
+        private PaddedVolatileLong[] counters;
+
+        public String name() {
+            return "volatile long（填充）";
+        }
+
+        public void prepare(int threads) {
+            counters = new PaddedVolatileLong[threads];
+            for (int i = 0; i < threads; i++) {
+                counters[i] = new PaddedVolatileLong();
+            }
+        }
+
+        public void update(int id) {
+            counters[id].value++;
+        }
+
+        public long total() {
+            long sum = 0;
+            for (PaddedVolatileLong c : counters) sum += c.value;
+            return sum;
+        }
+    }
+
+    // ==================== 测量 ====================
+
+    /**
+     * 所有线程同时开始，各自更新自己的计数器 RUN_MILLIS 毫秒
+     *
+     * @return 每秒总更新次数
+     */
+    static double run(Layout layout, int threadCount) throws InterruptedException {
+        layout.prepare(threadCount);
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = deadline[0];
+                // 每 1024 次检查一次时间，循环计数放在局部变量里，避免它本身造成伪共享
+                do {
+                    for (int i = 0; i < 1024; i++) {
+                        layout.update(id);
+                    }
+                } while (System.nanoTime() <= end);
+            });
+            threads[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+        return layout.total() * 1e9 / elapsed;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Math.min(8, cpus));
+
+        System.out.println("========== 伪共享基准测试 ==========");
+        System.out.println("CPU 核数: " + cpus + "，线程数: " + threads + "，每种布局 "
+                + ROUNDS + " 轮 × " + RUN_MILLIS + "ms，取最好的一轮");
+        if (cpus < 2) {
+            System.out.println("⚠️ 单核机器：同一时刻只有一个线程在写，不会出现伪共享，各布局结果应当接近");
+        }
+        System.out.println();
+
+        Layout[][] pairs = {
+                {new AtomicLongObjects(), new PaddedAtomicLongObjects()},
+                {new AtomicArray(1), new AtomicArray(STRIDE)},
+                {new VolatileLongObjects(), new PaddedVolatileLongObjects()},
+        };
+
+        // 预热：让 JIT 编译完所有布局的 update
+        for (Layout[] pair : pairs) {
+            for (Layout layout : pair) {
+                run(layout, threads);
+            }
+        }
+
+        System.out.printf("%-28s %-16s %-10s%n", "布局", "百万次/秒", "相对填充");
+        for (Layout[] pair : pairs) {
+            double[] best = new double[2];
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int i = 0; i < 2; i++) {
+                    best[i] = Math.max(best[i], run(pair[i], threads));
+                }
+            }
+            for (int i = 0; i < 2; i++) {
+                System.out.printf("%-28s %-16.1f %-10s%n", pair[i].name(), best[i] / 1e6,
+                        String.format("%.2fx", best[i] / best[1]));
+            }
+            System.out.println();
+        }
+
+        System.out.println("结论：");
+        System.out.println("  - 多核上相邻布局通常只有填充布局的几分之一，线程越多差距越大");
+        System.out.println("  - 被多个线程各自频繁写入的计数器（分段计数、统计槽位、队列的 head/tail）才值得填充");
+        System.out.println("  - 只读或很少写的字段不需要填充，白白占用内存和缓存");
+        System.out.println("  - JDK 的 LongAdder Cell、ConcurrentHashMap CounterCell 用 @Contended 达到同样效果");
+    }
+}
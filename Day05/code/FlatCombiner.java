@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 平面合并（Flat Combining，Hendler、Incze、Shavit、Tzafrir 2010）：让非线程安全的数据结构支持并发访问
+ *
+ * 问题：
+ * 用 synchronized / 锁包装 SimpleHashMap、SimpleArrayList 时，每个操作都要单独获取一次锁，
+ * 线程越多，锁的所有权在 CPU 核之间来回转移越频繁，数据结构本身的缓存行也跟着来回跑。
+ *
+ * 思路：
+ * 1. 每个线程有一个自己的发布槽位（publication slot），要执行的操作写进槽位
+ * 2. 抢到锁的线程成为"合并者"（combiner），扫描所有槽位，一口气执行所有已发布的操作，
+ *    把结果写回各自的槽位
+ * 3. 没抢到锁的线程只在自己的槽位上等待结果，不去争抢锁
+ * 4. 锁空闲时直接执行自己的操作（再顺便合并），低并发下不付出发布和等待的代价
+ * 一次锁获取处理一批操作，数据结构始终只在合并者的缓存里被修改。
+ *
+ * 槽位：
+ * - 槽位数固定（MAX_SLOTS），线程第一次调用时认领一个，线程结束后槽位可被其他线程接管
+ * - 槽位用完时新线程直接加锁执行，只是失去批处理的好处，结果仍然正确
+ * - 槽位对象之间有填充，不同线程发布请求不会写同一个缓存行（见 FalseSharingBenchmark）
+ *
+ * 使用约束：
+ * - 被包装的数据结构只能通过 apply 访问
+ * - 操作会在别的线程（合并者）中执行，不要依赖 ThreadLocal 或当前线程身份
+ * - 操作中抛出的任何异常（包括偷偷抛出的受检异常）都会在调用线程中原样重新抛出
+ * - 操作内部再调用同一个 FlatCombiner 的 apply 时直接执行（合并者已持有锁）
+ *
+ * @param <S> 被包装的数据结构类型
+ */
+public class FlatCombiner<S> {
+
+    /** 最多同时使用槽位的线程数 */
+    static final int MAX_SLOTS = 128;
+
+    /** 合并者每次持锁最多扫描几轮（后几轮收集扫描期间新发布的操作） */
+    static final int COMBINE_PASSES = 3;
+
+    /** 等待结果时先自旋的次数（单核上自旋只会占用合并者需要的 CPU） */
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 128 : 0;
+
+    /**
+     * 线程的发布槽位：request 非 null 表示有待执行的操作，合并者执行后写入结果并把 request 置 null
+     */
+    @SuppressWarnings("unused")
+    static final class Slot {
+        volatile Thread owner;
+        volatile Function<Object, Object> request;
+        Object result;
+        Throwable error;
+        long p1, p2, p3, p4, p5, p6, p7, p8, p9, p10;
+    }
+
+    private final S structure;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(MAX_SLOTS);
+
+    /** 曾经被认领过的槽位数，合并者只扫描 [0, slotCount) */
+    private final AtomicInteger slotCount = new AtomicInteger();
+
+    private final ThreadLocal<Slot> mySlot = new ThreadLocal<>();
+
+    // 以下统计只由合并者在持锁时修改
+    private long combines;
+    private long combinedOps;
+
+    /**
+     * @param structure 被包装的非线程安全数据结构，之后不要再直接访问它
+     */
+    public FlatCombiner(S structure) {
+        this.structure = structure;
+    }
+
+    /**
+     * 在被包装的数据结构上执行 op，返回 op 的结果
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R apply(Function<? super S, ? extends R> op) {
+        if (lock.isHeldByCurrentThread()) {
+            return op.apply(structure);
+        }
+        // 锁空闲时直接执行自己的操作，顺便合并别人已发布的操作，省去发布和等待
+        if (!lock.isLocked() && lock.tryLock()) {
+            try {
+                R result = op.apply(structure);
+                combinedOps++;
+                combine();
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+        Slot slot = slot();
+        if (slot == null) {
+            lock.lock();
+            try {
+                return op.apply(structure);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        slot.result = null;
+        slot.error = null;
+        slot.request = (Function<Object, Object>) op;
+
+        int spins = 0;
+        while (slot.request != null) {
+            if (!lock.isLocked() && lock.tryLock()) {
+                try {
+                    combine();
+                } finally {
+                    lock.unlock();
+                }
+                // 自己的请求一定在本次合并中被执行了
+                break;
+            }
+            if (spins < SPINS) {
+                spins++;
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+        Throwable error = slot.error;
+        if (error != null) {
+            slot.error = null;
+            throw FlatCombiner.<RuntimeException>sneakyThrow(error);
+        }
+        R result = (R) slot.result;
+        slot.result = null;
+        return result;
+    }
+
+    /**
+     * 持锁执行所有已发布的操作
+     */
+    private void combine() {
+        int count = Math.min(slotCount.get(), MAX_SLOTS);
+        for (int pass = 0; pass < COMBINE_PASSES; pass++) {
+            int applied = 0;
+            for (int i = 0; i < count; i++) {
+                Slot s = slots.get(i);
+                Function<Object, Object> op = s == null ? null : s.request;
+                if (op == null) {
+                    continue;
+                }
+                try {
+                    s.result = op.apply(structure);
+                } catch (Throwable e) {
+                    // 捕获全部异常：漏掉的异常会让 request 永远不被清空，调用线程一直等下去
+                    s.error = e;
+                }
+                // volatile 写：等待线程读到 null 时一定能看到 result / error
+                s.request = null;
+                applied++;
+            }
+            combinedOps += applied;
+            if (applied == 0) {
+                break;
+            }
+        }
+        combines++;
+    }
+
+    /**
+     * 不经包装重新抛出任意异常（编译器把 T 推断为 RuntimeException，受检异常也不用声明）
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends Throwable> T sneakyThrow(Throwable t) throws T {
+        throw (T) t;
+    }
+
+    /**
+     * 当前线程的槽位，第一次调用时认领；没有可用槽位返回 null
+     */
+    private Slot slot() {
+        Slot slot = mySlot.get();
+        if (slot != null) {
+            return slot;
+        }
+        Thread current = Thread.currentThread();
+        // 先尝试接管已结束线程留下的槽位
+        int count = Math.min(slotCount.get(), MAX_SLOTS);
+        for (int i = 0; i < count; i++) {
+            Slot s = slots.get(i);
+            Thread owner = s == null ? null : s.owner;
+            if (owner != null && !owner.isAlive() && s.request == null) {
+                synchronized (s) {
+                    if (s.owner == owner) {
+                        s.owner = current;
+                        mySlot.set(s);
+                        return s;
+                    }
+                }
+            }
+        }
+        // 再认领一个新槽位
+        int index = slotCount.getAndIncrement();
+        if (index >= MAX_SLOTS) {
+            slotCount.set(MAX_SLOTS);
+            return null;
+        }
+        slot = new Slot();
+        slot.owner = current;
+        slots.set(index, slot);
+        mySlot.set(slot);
+        return slot;
+    }
+
+    /**
+     * 平均每次持锁（每次合并）执行的操作数，越大说明批处理效果越好
+     */
+    public double getAverageBatchSize() {
+        lock.lock();
+        try {
+            return combines == 0 ? 0 : (double) combinedOps / combines;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== 测试 ====================
+
+    /**
+     * 测试1：多线程通过 FlatCombiner 修改 ArrayList，检查元素不丢失
+     */
+    static void testCorrectness() throws InterruptedException {
+        System.out.println("========== 测试1：并发正确性 ==========");
+
+        final int THREADS = 8;
+        final int PER_THREAD = 50_000;
+        FlatCombiner<List<Integer>> combiner = new FlatCombiner<>(new ArrayList<>());
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int base = t * PER_THREAD;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    final int value = base + i;
+                    combiner.apply(list -> list.add(value));
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        int size = combiner.apply(List::size);
+        long sum = combiner.apply(list -> list.stream().mapToLong(Integer::longValue).sum());
+        long n = (long) THREADS * PER_THREAD;
+        System.out.println("size = " + size + "（期望 " + n + "），sum = " + sum + "（期望 " + n * (n - 1) / 2 + "）"
+                + (size == n && sum == n * (n - 1) / 2 ? " ✓" : " ✗"));
+        System.out.printf("平均每次合并执行 %.2f 个操作%n", combiner.getAverageBatchSize());
+        System.out.println();
+    }
+
+    /**
+     * 测试2：操作抛出的异常在调用线程中重新抛出；线程结束后槽位被复用
+     */
+    static void testErrorsAndSlotReuse() throws InterruptedException {
+        System.out.println("========== 测试2：异常传递与槽位复用 ==========");
+
+        FlatCombiner<List<Integer>> combiner = new FlatCombiner<>(new ArrayList<>());
+        try {
+            combiner.apply(list -> list.get(0));
+            System.out.println("✗ 没有抛出异常");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println("✓ 调用线程收到异常: " + e.getClass().getSimpleName());
+        }
+
+        // 由合并者代为执行时抛出受检异常：合并者持锁期间让另一个线程发布请求
+        Throwable[] received = new Throwable[1];
+        Thread waiter = new Thread(() -> {
+            try {
+                combiner.apply(list -> {
+                    throw FlatCombiner.<RuntimeException>sneakyThrow(new IOException("模拟受检异常"));
+                });
+            } catch (Throwable e) {
+                received[0] = e;
+            }
+        });
+        combiner.lock.lock();
+        try {
+            waiter.start();
+            while (combiner.slots.get(0) == null || combiner.slots.get(0).request == null) {
+                Thread.yield();
+            }
+            combiner.combine();
+        } finally {
+            combiner.lock.unlock();
+        }
+        waiter.join(5000);
+        System.out.println("合并者执行的操作抛出受检异常，等待线程收到: " + received[0]
+                + (received[0] instanceof IOException ? " ✓" : " ✗"));
+
+        // 锁空闲时不会用到槽位，这里直接认领
+        for (int round = 0; round < 3; round++) {
+            Thread t = new Thread(combiner::slot);
+            t.start();
+            t.join();
+        }
+        System.out.println("3 个先后结束的线程认领槽位，占用槽位数: " + combiner.slotCount.get()
+                + (combiner.slotCount.get() == 1 ? " ✓（后两个线程复用了第一个线程的槽位）" : " ✗"));
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        testCorrectness();
+        testErrorsAndSlotReuse();
+    }
+}
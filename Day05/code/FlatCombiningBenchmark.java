@@ -0,0 +1,214 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 平面合并基准：用三种方式把非线程安全的 HashMap、ArrayList 变成线程安全
+ *
+ * 1. synchronized：每个操作获取一次对象锁
+ * 2. CustomLock：每个操作获取一次本目录的 AQS 自定义锁
+ * 3. FlatCombiner：操作发布到槽位，由合并者批量执行
+ *
+ * 负载：
+ * - HashMap：1024 个 key，80% get、20% put
+ * - ArrayList：尾部 add 后立即删除最后一个元素（当作栈使用）
+ *
+ * 只依赖 JDK 自带的顺序数据结构，本目录 javac *.java 即可编译；
+ * FlatCombiner 是泛型包装，换成 Day08 的 SimpleHashMap、Day10 的 SimpleArrayList 用法完全相同。
+ */
+public class FlatCombiningBenchmark {
+
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+
+    static final long RUN_MILLIS = 300;
+
+    static final int KEYS = 1024;
+
+    /** 列表初始容量：大于最大线程数，测量时不会扩容 */
+    static final int LIST_CAPACITY = 64;
+
+    /** 预先装箱的 key / value，避免测到 Integer 分配 */
+    static final Integer[] BOXED = new Integer[KEYS];
+
+    static {
+        for (int i = 0; i < KEYS; i++) {
+            BOXED[i] = i;
+        }
+    }
+
+    /**
+     * 对被包装数据结构的线程安全访问方式
+     */
+    interface Guarded<S> {
+        <R> R apply(Function<? super S, ? extends R> op);
+    }
+
+    static <S> Guarded<S> synchronizedGuard(S structure) {
+        return new Guarded<S>() {
+            public synchronized <R> R apply(Function<? super S, ? extends R> op) {
+                return op.apply(structure);
+            }
+        };
+    }
+
+    static <S> Guarded<S> customLockGuard(S structure) {
+        CustomLock lock = new CustomLock();
+        return new Guarded<S>() {
+            public <R> R apply(Function<? super S, ? extends R> op) {
+                lock.lock();
+                try {
+                    return op.apply(structure);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    static <S> Guarded<S> flatCombinerGuard(FlatCombiner<S> combiner) {
+        return combiner::apply;
+    }
+
+    // ==================== 负载 ====================
+
+    /**
+     * 一个线程执行一次操作
+     */
+    interface Workload {
+        void run(ThreadLocalRandom random);
+    }
+
+    static Workload mapWorkload(Guarded<HashMap<Integer, Integer>> map) {
+        for (int i = 0; i < KEYS; i++) {
+            Integer key = BOXED[i];
+            map.apply(m -> m.put(key, key));
+        }
+        return random -> {
+            Integer key = BOXED[random.nextInt(KEYS)];
+            if (random.nextInt(100) < 80) {
+                map.apply(m -> m.get(key));
+            } else {
+                map.apply(m -> m.put(key, key));
+            }
+        };
+    }
+
+    /** 不捕获变量的 lambda 只会创建一次 */
+    static final Function<ArrayList<Integer>, Boolean> ADD = list -> list.add(BOXED[0]);
+
+    static final Function<ArrayList<Integer>, Integer> REMOVE_LAST =
+            list -> list.isEmpty() ? null : list.remove(list.size() - 1);
+
+    static Workload listWorkload(Guarded<ArrayList<Integer>> list) {
+        return random -> {
+            list.apply(ADD);
+            list.apply(REMOVE_LAST);
+        };
+    }
+
+    // ==================== 测量 ====================
+
+    /**
+     * @return 每秒操作数（百万），ArrayList 负载的一次 add + remove 算两次操作
+     */
+    static double runOnce(Workload workload, int opsPerCall, int threadCount) throws InterruptedException {
+        long[] ops = new long[threadCount];
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = deadline[0];
+                long n = 0;
+                do {
+                    for (int i = 0; i < 256; i++) {
+                        workload.run(random);
+                    }
+                    n += 256;
+                } while (System.nanoTime() <= end);
+                ops[id] = n * opsPerCall;
+            });
+            threads[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+        long total = 0;
+        for (long n : ops) {
+            total += n;
+        }
+        return total * 1e3 / elapsed;
+    }
+
+    // ==================== 基准1：HashMap ====================
+
+    static void benchmark1_HashMap() throws InterruptedException {
+        System.out.println("========== 基准1：HashMap（80% get / 20% put，百万次/秒） ==========");
+        System.out.printf("%-8s %-14s %-14s %-14s %-14s%n", "线程数", "synchronized", "CustomLock", "FlatCombiner",
+                "平均批大小");
+        for (int threads : THREAD_COUNTS) {
+            double[] result = new double[3];
+            FlatCombiner<HashMap<Integer, Integer>> combiner = null;
+            // 第一轮预热，第二轮正式测量
+            for (int round = 0; round < 2; round++) {
+                result[0] = runOnce(mapWorkload(synchronizedGuard(new HashMap<>())), 1, threads);
+                result[1] = runOnce(mapWorkload(customLockGuard(new HashMap<>())), 1, threads);
+                combiner = new FlatCombiner<>(new HashMap<>());
+                result[2] = runOnce(mapWorkload(flatCombinerGuard(combiner)), 1, threads);
+            }
+            System.out.printf("%-8d %-14.1f %-14.1f %-14.1f %-14.2f%n", threads,
+                    result[0], result[1], result[2], combiner.getAverageBatchSize());
+        }
+        System.out.println();
+    }
+
+    // ==================== 基准2：ArrayList ====================
+
+    static void benchmark2_ArrayList() throws InterruptedException {
+        System.out.println("========== 基准2：ArrayList（add + 删除末尾，百万次/秒） ==========");
+        System.out.printf("%-8s %-14s %-14s %-14s %-14s%n", "线程数", "synchronized", "CustomLock", "FlatCombiner",
+                "平均批大小");
+        for (int threads : THREAD_COUNTS) {
+            double[] result = new double[3];
+            FlatCombiner<ArrayList<Integer>> combiner = null;
+            for (int round = 0; round < 2; round++) {
+                result[0] = runOnce(listWorkload(synchronizedGuard(new ArrayList<>(LIST_CAPACITY))), 2, threads);
+                result[1] = runOnce(listWorkload(customLockGuard(new ArrayList<>(LIST_CAPACITY))), 2, threads);
+                combiner = new FlatCombiner<>(new ArrayList<>(LIST_CAPACITY));
+                result[2] = runOnce(listWorkload(flatCombinerGuard(combiner)), 2, threads);
+            }
+            System.out.printf("%-8d %-14.1f %-14.1f %-14.1f %-14.2f%n", threads,
+                    result[0], result[1], result[2], combiner.getAverageBatchSize());
+        }
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("CPU 核数: " + Runtime.getRuntime().availableProcessors());
+        System.out.println();
+        benchmark1_HashMap();
+        benchmark2_ArrayList();
+
+        System.out.println("结论：");
+        System.out.println("  - 多核高并发时，锁的所有权和数据结构的缓存行在核之间来回转移，synchronized / CustomLock 吞吐下降");
+        System.out.println("  - FlatCombiner 一次持锁执行一批操作，数据结构留在合并者的缓存里，批越大收益越明显");
+        System.out.println("  - 低并发时批大小接近 1，多出的槽位发布和扫描是纯开销");
+        System.out.println("  - 单核机器上同一时刻只有一个线程运行，批大小约为 1，看不出合并的收益");
+    }
+}
@@ -0,0 +1,340 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * 锁性能基准
+ *
+ * 在 ReentrantLockDemo.testPerformance（多线程循环 lock → counter++ → unlock）的基础上扩展：
+ * - 线程数从 2 扫描到 64
+ * - 固定运行时间而不是固定次数，线程多时总耗时也可控
+ * - 除吞吐量外，还抽样统计获取锁的延迟（调用 lock() 到返回）的 p50 / p99
+ *
+ * 测试内容：
+ * 1. 自适应自旋：ReentrantLock vs CustomLock（直接 park）vs CustomLock（自适应自旋）
+ * 2. 公平 vs 吞吐：ReentrantLock / CustomLock 的公平与非公平模式（对应 ReentrantLockDemo.fairnessComparisonDemo）
+ * 3. 读写锁：95% 读的 Map 负载下 CustomLock、ReentrantReadWriteLock、CustomReadWriteLock、StripedReadWriteLock
+ *
+ * 说明：
+ * - 每组先预热一轮再计时
+ * - 临界区只有一次自增，锁外有一小段本地计算，模拟"短临界区、高频获取"的场景
+ * - 结果受 CPU 核数影响很大：单核机器上持有者与等待者不可能同时运行，自旋几乎没有收益
+ */
+public class LockBenchmark {
+
+    static final int[] THREAD_COUNTS = {2, 4, 8, 16, 32, 64};
+
+    /** 每组的计时时长 */
+    static final long RUN_MILLIS = 500;
+
+    /** 每 SAMPLE_INTERVAL 次获取记录一次延迟 */
+    static final int SAMPLE_INTERVAL = 16;
+
+    /** 防止锁外计算被 JIT 消除 */
+    static volatile long sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== 锁性能基准 ==========");
+        System.out.println("CPU 核数: " + Runtime.getRuntime().availableProcessors() + "\n");
+        benchmark1_AdaptiveSpin();
+        benchmark2_Fairness();
+        benchmark3_ReadWriteLock();
+        System.out.println("========== 基准测试完成 ==========");
+    }
+
+    // ==================== 基准1：自适应自旋 ====================
+
+    static void benchmark1_AdaptiveSpin() throws InterruptedException {
+        System.out.println("--- 基准1：短临界区下的自适应自旋（万次/秒 | 获取延迟 p50 / p99 µs） ---");
+        System.out.printf("%-8s %-28s %-28s %-28s %-10s%n", "线程数",
+                "ReentrantLock", "CustomLock（park）", "CustomLock（自适应自旋）", "自旋预算");
+
+        for (int threads : THREAD_COUNTS) {
+            Result reentrant = run(ReentrantLock::new, threads);
+            Result park = run(CustomLock::new, threads);
+            CustomLock[] spinLock = new CustomLock[1];
+            Result spin = run(() -> spinLock[0] = new CustomLock(true), threads);
+            System.out.printf("%-8d %-28s %-28s %-28s %-10d%n", threads, reentrant, park, spin,
+                    spinLock[0].getSpinBudget());
+        }
+        System.out.println("\n→ CAS 失败后直接 park，每次交接锁都要 unpark + 上下文切换；自旋可以在持有者释放时立即拿到锁");
+        System.out.println("→ 预算随持有时间自适应：持有者来不及释放（例如单核机器）时预算降到最小，几乎不浪费 CPU");
+        System.out.println();
+    }
+
+    // ==================== 基准2：公平 vs 吞吐 ====================
+
+    /**
+     * 除了吞吐量和获取延迟，还统计各线程获取次数的 最少/最多 比值：
+     * 1.00 表示每个线程拿到锁的次数一样多，越接近 0 说明有线程被"饿"着
+     */
+    static void benchmark2_Fairness() throws InterruptedException {
+        System.out.println("--- 基准2：公平 vs 吞吐（万次/秒 | 获取延迟 p99 µs | 线程间 最少/最多 次数比） ---");
+        System.out.printf("%-8s %-24s %-24s %-24s %-24s%n", "线程数",
+                "ReentrantLock 非公平", "ReentrantLock 公平", "CustomLock 非公平", "CustomLock 公平");
+
+        for (int threads : THREAD_COUNTS) {
+            Result reentrantUnfair = run(() -> new ReentrantLock(false), threads);
+            Result reentrantFair = run(() -> new ReentrantLock(true), threads);
+            Result customUnfair = run(() -> new CustomLock(false, false), threads);
+            Result customFair = run(() -> new CustomLock(true, false), threads);
+            System.out.printf("%-8d %-24s %-24s %-24s %-24s%n", threads, reentrantUnfair.fairnessString(),
+                    reentrantFair.fairnessString(), customUnfair.fairnessString(), customFair.fairnessString());
+        }
+
+        // 单独跑一次带时间统计的 CustomLock，对比等待时间
+        for (boolean fair : new boolean[]{false, true}) {
+            CustomLock lock = new CustomLock(fair, false);
+            lock.setTimingEnabled(true);
+            runOnce(lock, 16, RUN_MILLIS);
+            System.out.println("16 线程 CustomLock " + (fair ? "公平  " : "非公平") + ": " + lock.getStats());
+        }
+        System.out.println("\n→ 非公平锁：释放者马上再次抢到锁，省掉唤醒等待线程的上下文切换，吞吐高；但等待线程可能一直抢不到");
+        System.out.println("→ 公平锁：每次交接都要唤醒队首线程，吞吐低得多，换来最长等待时间可控（对比上面两行的\"最长\"等待）");
+        System.out.println("→ 单核机器上谁能运行由调度器决定，次数比更多反映调度而不是锁；p99 对非公平锁偏乐观，因为大多数获取没有竞争");
+        System.out.println();
+    }
+
+    // ==================== 基准3：读写锁 ====================
+
+    /** Map 中的 key 数量 */
+    static final int MAP_KEYS = 1024;
+
+    /** 读操作所占的百分比 */
+    static final int READ_PERCENT = 95;
+
+    /**
+     * 用读写锁保护一个 HashMap，95% get、5% put。
+     * 独占锁（CustomLock 的读写都用同一把锁）作为基线。
+     */
+    static void benchmark3_ReadWriteLock() throws InterruptedException {
+        System.out.println("--- 基准3：读写锁，" + READ_PERCENT + "% 读的 HashMap（万次/秒） ---");
+        System.out.printf("%-8s %-14s %-24s %-22s %-22s%n", "线程数",
+                "CustomLock", "ReentrantReadWriteLock", "CustomReadWriteLock", "StripedReadWriteLock");
+
+        for (int threads : THREAD_COUNTS) {
+            CustomLock exclusive = new CustomLock();
+            double mutex = runMap(new ReadWriteLock() {
+                @Override
+                public Lock readLock() {
+                    return exclusive;
+                }
+
+                @Override
+                public Lock writeLock() {
+                    return exclusive;
+                }
+            }, threads);
+            double jdk = runMap(new ReentrantReadWriteLock(), threads);
+            double custom = runMap(new CustomReadWriteLock(), threads);
+            double striped = runMap(new StripedReadWriteLock(), threads);
+            System.out.printf("%-8d %-14.0f %-24.0f %-22.0f %-22.0f%n", threads,
+                    mutex / 1e4, jdk / 1e4, custom / 1e4, striped / 1e4);
+        }
+        System.out.println("\n→ ReentrantReadWriteLock / CustomReadWriteLock 每次读都 CAS 同一个 state，多核下读者之间互相争抢缓存行");
+        System.out.println("→ StripedReadWriteLock 的读者只写自己条带的计数，读吞吐随核数增长；代价是写锁要扫描所有条带");
+        System.out.println("→ 单核机器上没有缓存行争抢，几种锁的差别主要来自单次获取的指令数");
+        System.out.println();
+    }
+
+    static double runMap(ReadWriteLock rwLock, int threads) throws InterruptedException {
+        runMapOnce(rwLock, threads, RUN_MILLIS / 5);
+        return runMapOnce(rwLock, threads, RUN_MILLIS);
+    }
+
+    static double runMapOnce(ReadWriteLock rwLock, int threadCount, long millis) throws InterruptedException {
+        Map<Integer, Integer> map = new HashMap<>();
+        for (int i = 0; i < MAP_KEYS; i++) {
+            map.put(i, i);
+        }
+        Lock readLock = rwLock.readLock();
+        Lock writeLock = rwLock.writeLock();
+        long[] ops = new long[threadCount];
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int id = i;
+            threads[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long sum = 0;
+                ready.countDown();
+                awaitQuietly(go);
+                long end = deadline[0];
+                while ((count & 0xFF) != 0 || System.nanoTime() <= end) {
+                    Integer key = random.nextInt(MAP_KEYS);
+                    if (random.nextInt(100) < READ_PERCENT) {
+                        readLock.lock();
+                        try {
+                            sum += map.get(key);
+                        } finally {
+                            readLock.unlock();
+                        }
+                    } else {
+                        writeLock.lock();
+                        try {
+                            map.put(key, (int) count);
+                        } finally {
+                            writeLock.unlock();
+                        }
+                    }
+                    count++;
+                }
+                sink = sum;
+                ops[id] = count;
+            });
+            threads[i].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (long n : ops) {
+            total += n;
+        }
+        if (map.size() != MAP_KEYS) {
+            throw new IllegalStateException("Map 大小不正确: " + map.size());
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    // ==================== 通用测试框架 ====================
+
+    static final class Result {
+        final double opsPerSec;
+        final double p50Micros;
+        final double p99Micros;
+        /** 各线程获取次数的 最少/最多 比值 */
+        final double minMaxRatio;
+
+        Result(double opsPerSec, double p50Micros, double p99Micros, double minMaxRatio) {
+            this.opsPerSec = opsPerSec;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.minMaxRatio = minMaxRatio;
+        }
+
+        String fairnessString() {
+            return String.format("%.0f | %.1f | %.2f", opsPerSec / 1e4, p99Micros, minMaxRatio);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f | %.2f / %.1f", opsPerSec / 1e4, p50Micros, p99Micros);
+        }
+    }
+
+    /**
+     * 预热一轮后计时一轮，每轮使用新的锁
+     */
+    static Result run(Supplier<? extends Lock> lockFactory, int threads) throws InterruptedException {
+        runOnce(lockFactory.get(), threads, RUN_MILLIS / 5);
+        return runOnce(lockFactory.get(), threads, RUN_MILLIS);
+    }
+
+    static Result runOnce(Lock lock, int threadCount, long millis) throws InterruptedException {
+        long[] counter = {0};
+        long[] ops = new long[threadCount];
+        long[][] samples = new long[threadCount][];
+        int[] sampleCounts = new int[threadCount];
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int id = i;
+            threads[i] = new Thread(() -> {
+                long[] mine = new long[1 << 16];
+                int n = 0;
+                long count = 0;
+                long seed = id + 1;
+                ready.countDown();
+                awaitQuietly(go);
+                long end = deadline[0];
+                while (true) {
+                    // 每 256 次检查一次是否到时间，减少 nanoTime 调用
+                    if ((count & 0xFF) == 0 && System.nanoTime() > end) {
+                        break;
+                    }
+                    boolean sample = (count % SAMPLE_INTERVAL) == 0 && n < mine.length;
+                    long t0 = sample ? System.nanoTime() : 0;
+                    lock.lock();
+                    try {
+                        if (sample) {
+                            mine[n++] = System.nanoTime() - t0;
+                        }
+                        counter[0]++;
+                    } finally {
+                        lock.unlock();
+                    }
+                    count++;
+                    // 锁外的本地计算（xorshift），避免同一线程连续重入临界区
+                    for (int k = 0; k < 20; k++) {
+                        seed ^= seed << 13;
+                        seed ^= seed >>> 7;
+                        seed ^= seed << 17;
+                    }
+                }
+                sink = seed;
+                ops[id] = count;
+                samples[id] = mine;
+                sampleCounts[id] = n;
+            });
+            threads[i].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        long minOps = Long.MAX_VALUE;
+        long maxOps = 0;
+        int sampleTotal = 0;
+        for (int i = 0; i < threadCount; i++) {
+            total += ops[i];
+            minOps = Math.min(minOps, ops[i]);
+            maxOps = Math.max(maxOps, ops[i]);
+            sampleTotal += sampleCounts[i];
+        }
+        if (counter[0] != total) {
+            throw new IllegalStateException("计数器不正确: " + counter[0] + " != " + total);
+        }
+        long[] all = new long[sampleTotal];
+        int pos = 0;
+        for (int i = 0; i < threadCount; i++) {
+            System.arraycopy(samples[i], 0, all, pos, sampleCounts[i]);
+            pos += sampleCounts[i];
+        }
+        Arrays.sort(all);
+        double p50 = all.length == 0 ? 0 : all[all.length / 2] / 1e3;
+        double p99 = all.length == 0 ? 0 : all[(int) (all.length * 0.99)] / 1e3;
+        return new Result(total * 1e9 / elapsed, p50, p99, maxOps == 0 ? 0 : (double) minOps / maxOps);
+    }
+
+    static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
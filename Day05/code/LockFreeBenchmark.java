@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 无锁数据结构吞吐量基准
+ *
+ * 每个线程循环执行"放入一个元素、取出一个元素"，固定时长后统计每秒操作数（放入、取出各算一次）。
+ * 结构中的元素数量始终很少，测的是两端的竞争，而不是链表遍历。
+ *
+ * 基准列表：
+ * 1. 栈：TreiberStack / PooledTreiberStack vs synchronized LinkedList
+ * 2. 队列：MichaelScottQueue vs ConcurrentLinkedQueue vs synchronized LinkedList
+ * 3. 消除回退：EliminationBackoffStack vs TreiberStack
+ *
+ * 说明：线程数超过 CPU 核数后，synchronized 版本的持锁线程可能被切走，其余线程全部阻塞；
+ * 无锁版本中被切走的线程不会挡住别人，这是无锁结构在过载时的主要优势。
+ */
+public class LockFreeBenchmark {
+
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+
+    static final long RUN_MILLIS = 300;
+
+    /** 放入的元素（预先装箱，避免测到 Integer 分配） */
+    static final Integer ITEM = 42;
+
+    /**
+     * 被测结构的放入 / 取出操作
+     */
+    interface Container {
+        void put(Integer item);
+
+        Integer take();
+    }
+
+    static Container treiberStack() {
+        TreiberStack<Integer> stack = new TreiberStack<>();
+        return new Container() {
+            public void put(Integer item) {
+                stack.push(item);
+            }
+
+            public Integer take() {
+                return stack.pop();
+            }
+        };
+    }
+
+    static Container pooledStack() {
+        PooledTreiberStack<Integer> stack = new PooledTreiberStack<>();
+        return new Container() {
+            public void put(Integer item) {
+                stack.push(item);
+            }
+
+            public Integer take() {
+                return stack.pop();
+            }
+        };
+    }
+
+    static Container eliminationStack(EliminationBackoffStack<Integer> stack) {
+        return new Container() {
+            public void put(Integer item) {
+                stack.push(item);
+            }
+
+            public Integer take() {
+                return stack.pop();
+            }
+        };
+    }
+
+    static Container synchronizedStack() {
+        LinkedList<Integer> list = new LinkedList<>();
+        return new Container() {
+            public synchronized void put(Integer item) {
+                list.addFirst(item);
+            }
+
+            public synchronized Integer take() {
+                return list.pollFirst();
+            }
+        };
+    }
+
+    static Container msQueue() {
+        MichaelScottQueue<Integer> queue = new MichaelScottQueue<>();
+        return new Container() {
+            public void put(Integer item) {
+                queue.offer(item);
+            }
+
+            public Integer take() {
+                return queue.poll();
+            }
+        };
+    }
+
+    static Container concurrentLinkedQueue() {
+        ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+        return new Container() {
+            public void put(Integer item) {
+                queue.offer(item);
+            }
+
+            public Integer take() {
+                return queue.poll();
+            }
+        };
+    }
+
+    static Container synchronizedQueue() {
+        LinkedList<Integer> list = new LinkedList<>();
+        return new Container() {
+            public synchronized void put(Integer item) {
+                list.addLast(item);
+            }
+
+            public synchronized Integer take() {
+                return list.pollFirst();
+            }
+        };
+    }
+
+    // ==================== 测量 ====================
+
+    /**
+     * 预热一轮后正式测量
+     *
+     * @return 每秒操作数（百万）
+     */
+    static double run(Supplier<Container> factory, int threads) throws InterruptedException {
+        runOnce(factory.get(), threads);
+        return runOnce(factory.get(), threads) / 1e6;
+    }
+
+    static double runOnce(Container container, int threadCount) throws InterruptedException {
+        long[] ops = new long[threadCount];
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = deadline[0];
+                long n = 0;
+                do {
+                    for (int i = 0; i < 256; i++) {
+                        container.put(ITEM);
+                        container.take();
+                    }
+                    n += 512;
+                } while (System.nanoTime() <= end);
+                ops[id] = n;
+            });
+            threads[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+        long total = 0;
+        for (long n : ops) {
+            total += n;
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    // ==================== 基准1：栈 ====================
+
+    static void benchmark1_Stack() throws InterruptedException {
+        System.out.println("========== 基准1：栈（push + pop，百万次/秒） ==========");
+        System.out.printf("%-8s %-16s %-20s %-20s%n", "线程数", "TreiberStack", "PooledTreiberStack", "synchronized");
+        for (int threads : THREAD_COUNTS) {
+            System.out.printf("%-8d %-16.1f %-20.1f %-20.1f%n", threads,
+                    run(LockFreeBenchmark::treiberStack, threads),
+                    run(LockFreeBenchmark::pooledStack, threads),
+                    run(LockFreeBenchmark::synchronizedStack, threads));
+        }
+        System.out.println();
+        System.out.println("观察：");
+        System.out.println("  - PooledTreiberStack 每次操作要 CAS 两个带版本号的栈（数据栈 + 节点池），比 TreiberStack 慢");
+        System.out.println("  - 所有线程都在争抢 top，多核下线程越多 CAS 失败越多（改进见 EliminationBackoffStack）");
+        System.out.println();
+    }
+
+    // ==================== 基准2：队列 ====================
+
+    static void benchmark2_Queue() throws InterruptedException {
+        System.out.println("========== 基准2：队列（offer + poll，百万次/秒） ==========");
+        System.out.printf("%-8s %-20s %-24s %-20s%n", "线程数", "MichaelScottQueue", "ConcurrentLinkedQueue",
+                "synchronized");
+        for (int threads : THREAD_COUNTS) {
+            System.out.printf("%-8d %-20.1f %-24.1f %-20.1f%n", threads,
+                    run(LockFreeBenchmark::msQueue, threads),
+                    run(LockFreeBenchmark::concurrentLinkedQueue, threads),
+                    run(LockFreeBenchmark::synchronizedQueue, threads));
+        }
+        System.out.println();
+        System.out.println("观察：");
+        System.out.println("  - ConcurrentLinkedQueue 在 MS 队列基础上做了优化：tail 允许落后多个节点，减少一半 CAS");
+        System.out.println("  - 单核机器上 synchronized 很少真正竞争（持锁线程很少在临界区内被切走），可能最快");
+        System.out.println();
+    }
+
+    // ==================== 基准3：消除回退 ====================
+
+    static void benchmark3_Elimination() throws InterruptedException {
+        System.out.println("========== 基准3：消除回退栈（push + pop，百万次/秒） ==========");
+        System.out.printf("%-8s %-16s %-26s %-12s%n", "线程数", "TreiberStack", "EliminationBackoffStack", "消除比例");
+        for (int threads : THREAD_COUNTS) {
+            double treiber = run(LockFreeBenchmark::treiberStack, threads);
+            List<EliminationBackoffStack<Integer>> created = new ArrayList<>();
+            double elimination = run(() -> {
+                EliminationBackoffStack<Integer> stack = new EliminationBackoffStack<>();
+                created.add(stack);
+                return eliminationStack(stack);
+            }, threads);
+            // 正式测量那一轮：被消除的操作数（每对 2 次）/ 总操作数（按吞吐 × 时长估算）
+            long eliminatedOps = created.get(created.size() - 1).getEliminatedCount() * 2;
+            double totalOps = elimination * 1e6 * RUN_MILLIS / 1000;
+            System.out.printf("%-8d %-16.1f %-26.1f %-12s%n", threads, treiber, elimination,
+                    String.format("%.1f%%", eliminatedOps * 100 / totalOps));
+        }
+        System.out.println();
+        System.out.println("观察：");
+        System.out.println("  - 多核高并发时，TreiberStack 的吞吐随线程数增加而下降，消除回退栈基本持平甚至上升");
+        System.out.println("  - 消除比例随线程数增加：top 上的 CAS 失败越多，越多操作在消除数组中直接配对完成");
+        System.out.println("  - 低并发时 top 很少失败，两者相同（消除数组只在 CAS 失败后才使用）");
+        System.out.println("  - 单核机器上同一时刻只有一个线程运行，CAS 几乎不失败，看不出差别");
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("CPU 核数: " + Runtime.getRuntime().availableProcessors());
+        System.out.println();
+        benchmark1_Stack();
+        benchmark2_Queue();
+        benchmark3_Elimination();
+    }
+}
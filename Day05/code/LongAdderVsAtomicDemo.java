@@ -173,6 +173,7 @@ public class LongAdderVsAtomicDemo {
         System.out.println("  3. 不同线程通过 hash 映射到不同 Cell");
         System.out.println("  4. sum() 时汇总 base + 所有 Cell 的值");
         System.out.println("  5. Cell 数组会动态扩容（最大为 CPU 核数）");
+        System.out.println("  6. Cell 用 @Contended 填充，独占缓存行，避免伪共享（实测见 FalseSharingBenchmark）");
         System.out.println();
         System.out.println("适用场景：");
         System.out.println("  - AtomicLong: 需要精确读取当前值的场景");
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * 无锁队列（Michael-Scott 队列，M. Michael & M. Scott 1996，ConcurrentLinkedQueue 的原型）
+ *
+ * 结构：带哑节点（dummy）的单向链表
+ *   head → [dummy] → [A] → [B] → null
+ *                            ↑ tail
+ * - head 总是指向哑节点，队首元素是 head.next
+ * - 入队只修改队尾（tail 和最后一个节点的 next），出队只修改 head，两端的线程不争抢同一个变量
+ *
+ * offer：
+ *   1. CAS(tail.next, null, node) 把新节点挂到链表末尾 —— 这一步成功即入队成功（线性化点）
+ *   2. CAS(tail, oldTail, node) 推进 tail，失败也没关系
+ * poll：
+ *   1. CAS(head, h, h.next)，原来的 h.next 成为新的哑节点，返回它的元素
+ *
+ * "帮助"机制：第 1 步和第 2 步之间 tail 会暂时落后一个节点。
+ * 任何线程看到 tail.next != null，都先替别人把 tail 推进，再做自己的操作，
+ * 所以某个线程在两步之间被挂起也不会卡住其他线程（无锁的含义）。
+ *
+ * 与 TreiberStack 一样，每次入队都新建节点，依靠 GC 避免 ABA。
+ */
+public class MichaelScottQueue<E> {
+
+    static final class Node<E> {
+        volatile E item;
+        volatile Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    /** 对 Node.next 做 CAS，避免每个节点再包一个 AtomicReference 对象 */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+    private final AtomicReference<Node<E>> head;
+    private final AtomicReference<Node<E>> tail;
+
+    public MichaelScottQueue() {
+        Node<E> dummy = new Node<>(null);
+        head = new AtomicReference<>(dummy);
+        tail = new AtomicReference<>(dummy);
+    }
+
+    public boolean offer(E item) {
+        if (item == null) {
+            throw new NullPointerException("MichaelScottQueue 不允许 null 元素");
+        }
+        Node<E> node = new Node<>(item);
+        while (true) {
+            Node<E> t = tail.get();
+            Node<E> next = t.next;
+            if (t != tail.get()) {
+                continue;
+            }
+            if (next == null) {
+                if (NEXT.compareAndSet(t, null, node)) {
+                    tail.compareAndSet(t, node);
+                    return true;
+                }
+            } else {
+                // tail 落后了：帮上一个入队的线程推进 tail
+                tail.compareAndSet(t, next);
+            }
+        }
+    }
+
+    /**
+     * @return 队首元素，队列为空时返回 null
+     */
+    public E poll() {
+        while (true) {
+            Node<E> h = head.get();
+            Node<E> t = tail.get();
+            Node<E> first = h.next;
+            if (h != head.get()) {
+                continue;
+            }
+            if (h == t) {
+                if (first == null) {
+                    return null;
+                }
+                // 有元素刚挂上但 tail 还没推进：先帮忙推进，保证 head 不会越过 tail
+                tail.compareAndSet(t, first);
+            } else {
+                E item = first.item;
+                if (head.compareAndSet(h, first)) {
+                    // first 成为新的哑节点，清掉元素引用，让 GC 可以回收
+                    first.item = null;
+                    return item;
+                }
+            }
+        }
+    }
+
+    public E peek() {
+        while (true) {
+            Node<E> h = head.get();
+            Node<E> first = h.next;
+            if (first == null) {
+                return null;
+            }
+            E item = first.item;
+            // head 没变说明 first 还在队列里，item 还没被出队线程清掉
+            if (h == head.get()) {
+                return item;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return head.get().next == null;
+    }
+
+    /**
+     * 遍历计数，O(n)，并发修改时只是近似值（与 ConcurrentLinkedQueue.size 相同）
+     */
+    public int size() {
+        int count = 0;
+        for (Node<E> p = head.get().next; p != null; p = p.next) {
+            if (p.item != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ==================== 测试 ====================
+
+    /**
+     * 多生产者多消费者：检查每个元素恰好出队一次，并且同一个生产者的元素按入队顺序出队
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== MichaelScottQueue 并发正确性测试 ==========");
+
+        final int PRODUCERS = 4;
+        final int CONSUMERS = 4;
+        final int PER_PRODUCER = 200_000;
+        final int TOTAL = PRODUCERS * PER_PRODUCER;
+        MichaelScottQueue<Integer> queue = new MichaelScottQueue<>();
+        AtomicInteger[] seen = new AtomicInteger[TOTAL];
+        for (int i = 0; i < TOTAL; i++) {
+            seen[i] = new AtomicInteger();
+        }
+        AtomicInteger consumed = new AtomicInteger();
+        AtomicInteger orderErrors = new AtomicInteger();
+
+        Thread[] threads = new Thread[PRODUCERS + CONSUMERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int base = p * PER_PRODUCER;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < PER_PRODUCER; i++) {
+                    queue.offer(base + i);
+                }
+            });
+        }
+        for (int c = 0; c < CONSUMERS; c++) {
+            threads[PRODUCERS + c] = new Thread(() -> {
+                // 每个生产者上一次出队的值：FIFO 保证同一生产者的值在同一个消费者看来是递增的
+                int[] last = new int[PRODUCERS];
+                Arrays.fill(last, -1);
+                while (consumed.get() < TOTAL) {
+                    Integer v = queue.poll();
+                    if (v == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    int producer = v / PER_PRODUCER;
+                    if (v <= last[producer]) {
+                        orderErrors.incrementAndGet();
+                    }
+                    last[producer] = v;
+                    seen[v].incrementAndGet();
+                    consumed.incrementAndGet();
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        int lost = 0, duplicated = 0;
+        for (AtomicInteger count : seen) {
+            if (count.get() == 0) lost++;
+            if (count.get() > 1) duplicated++;
+        }
+        System.out.println(PRODUCERS + " 个生产者、" + CONSUMERS + " 个消费者，共 " + TOTAL + " 个元素");
+        System.out.println("丢失 " + lost + " 个，重复 " + duplicated + " 个，顺序错误 " + orderErrors.get() + " 次 → "
+                + (lost == 0 && duplicated == 0 && orderErrors.get() == 0 ? "✓ 正确" : "✗ 错误"));
+        System.out.println("结束后队列为空: " + queue.isEmpty());
+    }
+}
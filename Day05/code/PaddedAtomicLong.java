@@ -0,0 +1,44 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 独占缓存行的 AtomicLong
+ *
+ * 问题：
+ * 一个 AtomicLong 对象只有 24 字节（对象头 12 + value 8 + 对齐），连续创建的几个对象
+ * 往往挤在同一个 64 字节缓存行里。不同线程各自更新"自己的"计数器，
+ * 缓存行却在 CPU 核之间来回失效（伪共享），效果接近所有线程在抢同一个变量。
+ *
+ * 做法：
+ * 子类的字段排在父类字段之后，value 后面补 15 个 long（120 字节），
+ * 下一个对象的字段至少相隔 128 字节（Intel 的相邻缓存行预取以 128 字节为单位）。
+ * value 前面是本对象的对象头和上一个对象的填充，同样不会与别的热点变量共享缓存行。
+ *
+ * 为什么不用 @Contended：
+ * jdk.internal.vm.annotation.Contended 是 JDK 内部注解，应用代码需要
+ * --add-exports 才能编译，运行时还要加 -XX:-RestrictContended 才会生效（见课件 4.3.3）。
+ * 手工填充不依赖任何 JVM 参数，代价是每个对象多占约 120 字节，只应用在确实有多线程写入的热点计数器上。
+ *
+ * 继承 AtomicLong，所有方法（incrementAndGet、compareAndSet ...）都可以直接使用。
+ */
+@SuppressWarnings("unused")
+public class PaddedAtomicLong extends AtomicLong {
+
+    private static final long serialVersionUID = 1L;
+
+    /** value 之后的填充：15 个 long = 120 字节 */
+    long p1, p2, p3, p4, p5, p6, p7, p8, p9, p10, p11, p12, p13, p14, p15;
+
+    public PaddedAtomicLong() {
+    }
+
+    public PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+
+    /**
+     * 读一下填充字段，防止将来某个 JVM 认为它们没用而把它们优化掉（HotSpot 目前不会）
+     */
+    long sumPaddingToPreventOptimisation() {
+        return p1 + p2 + p3 + p4 + p5 + p6 + p7 + p8 + p9 + p10 + p11 + p12 + p13 + p14 + p15;
+    }
+}
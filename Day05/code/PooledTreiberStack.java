@@ -0,0 +1,191 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicStampedReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 复用节点的无锁栈：节点池 + AtomicStampedReference 防止 ABA
+ *
+ * 为什么复用节点会出现 ABA（TreiberStack 依靠"每次新建节点"避开了它）：
+ *   1. 线程1 pop：读到 top = N2，N2.next = N1，准备 CAS(top, N2, N1)，此时被挂起
+ *   2. 线程2 pop 掉 N2、N1（两个节点都回到节点池），再 push 两次，池里的 N1、N2 被先后取出复用
+ *      → top 又是 N2，但 N2 现在装的是新元素，next 指向 N1
+ *   3. 线程1 恢复：top 仍然"是 N2"，只比较引用的 CAS 成功，top = N1，新压入的元素丢失
+ *   （更糟的情况下 top 会指向一个还在节点池里的节点，栈和节点池互相串链）
+ *
+ * 解决（与 ABADemo.stampedReferenceDemo 相同）：
+ * top 和节点池的栈顶都用 AtomicStampedReference，每次修改版本号 +1，
+ * 步骤 3 中版本号已经变了，CAS 失败，线程1 重新读取。
+ *
+ * 读取顺序：先读版本号，再读引用，再读 next。
+ * 如果 CAS 时版本号仍然是最先读到的那个，说明这期间栈没有任何修改，读到的引用和 next 一定是一致的。
+ *
+ * 说明：
+ * - 节点池本身也是一个带版本号的 Treiber 栈，池中节点数不会超过栈的历史最大长度
+ * - AtomicStampedReference 每次成功 CAS 都会新建一个内部 Pair 对象，
+ *   在 Java 里复用节点并不能减少分配，这里主要演示"内存会被复用"时如何保证正确
+ *   （C/C++ 无 GC 的实现、堆外内存、或用数组下标代替引用时都会遇到）
+ */
+public class PooledTreiberStack<E> {
+
+    static final class Node<E> {
+        volatile E item;
+        volatile Node<E> next;
+    }
+
+    private final AtomicStampedReference<Node<E>> top = new AtomicStampedReference<>(null, 0);
+
+    /** 空闲节点池 */
+    private final AtomicStampedReference<Node<E>> free = new AtomicStampedReference<>(null, 0);
+
+    /** 新建节点的次数（其余都来自节点池） */
+    private final LongAdder allocations = new LongAdder();
+
+    public void push(E item) {
+        if (item == null) {
+            throw new NullPointerException("PooledTreiberStack 不允许 null 元素");
+        }
+        Node<E> node = popNode(free);
+        if (node == null) {
+            allocations.increment();
+            node = new Node<>();
+        }
+        node.item = item;
+        pushNode(top, node);
+    }
+
+    /**
+     * @return 栈顶元素，栈为空时返回 null
+     */
+    public E pop() {
+        Node<E> node = popNode(top);
+        if (node == null) {
+            return null;
+        }
+        E item = node.item;
+        node.item = null;
+        pushNode(free, node);
+        return item;
+    }
+
+    public boolean isEmpty() {
+        return top.getReference() == null;
+    }
+
+    /**
+     * 累计新建的节点数
+     */
+    public long getAllocationCount() {
+        return allocations.sum();
+    }
+
+    private static <E> void pushNode(AtomicStampedReference<Node<E>> stack, Node<E> node) {
+        while (true) {
+            int stamp = stack.getStamp();
+            Node<E> oldTop = stack.getReference();
+            node.next = oldTop;
+            if (stack.compareAndSet(oldTop, node, stamp, stamp + 1)) {
+                return;
+            }
+        }
+    }
+
+    private static <E> Node<E> popNode(AtomicStampedReference<Node<E>> stack) {
+        while (true) {
+            int stamp = stack.getStamp();
+            Node<E> oldTop = stack.getReference();
+            if (oldTop == null) {
+                return null;
+            }
+            Node<E> next = oldTop.next;
+            if (stack.compareAndSet(oldTop, next, stamp, stamp + 1)) {
+                return oldTop;
+            }
+        }
+    }
+
+    // ==================== 测试 ====================
+
+    /**
+     * 测试1：按上面的步骤单线程模拟 ABA 时序
+     */
+    static void testABA() {
+        System.out.println("========== 测试1：节点复用导致的 ABA ==========");
+
+        PooledTreiberStack<String> stack = new PooledTreiberStack<>();
+        stack.push("1");
+        stack.push("2");
+
+        // 线程1：读取 top 和 next，准备 CAS，然后"被挂起"
+        int stamp = stack.top.getStamp();
+        Node<String> oldTop = stack.top.getReference();
+        Node<String> next = oldTop.next;
+        System.out.println("[线程1] 读到 top = 节点(" + oldTop.item + ")，next = 节点(" + next.item + ")，版本号 " + stamp);
+
+        // 线程2：弹出两个，再压入两个（复用同样的两个节点）
+        stack.pop();
+        stack.pop();
+        stack.push("3");
+        stack.push("4");
+        System.out.println("[线程2] pop 2、pop 1、push 3、push 4，共新建节点 " + stack.getAllocationCount() + " 个");
+
+        // 线程1 恢复
+        Node<String> current = stack.top.getReference();
+        System.out.println("[线程1] top 仍是同一个节点对象: " + (current == oldTop) + "（内容已变为 " + current.item + "）");
+        System.out.println("[线程1] 只比较引用的 CAS 会成功，top 变成节点(" + next.item + ")，元素 4 丢失");
+        boolean success = stack.top.compareAndSet(oldTop, next, stamp, stamp + 1);
+        System.out.println("[线程1] 带版本号的 CAS: " + success + "（当前版本号 " + stack.top.getStamp() + "）"
+                + (success ? " ✗" : " ✓ 检测到 ABA"));
+        System.out.println("栈中元素: " + stack.pop() + ", " + stack.pop());
+        System.out.println();
+    }
+
+    /**
+     * 测试2：多线程交替 push / pop，检查元素不丢失、不重复，且节点被大量复用
+     */
+    static void testConcurrent() throws InterruptedException {
+        System.out.println("========== 测试2：并发正确性与节点复用 ==========");
+
+        final int THREADS = 8;
+        final int PER_THREAD = 100_000;
+        PooledTreiberStack<Integer> stack = new PooledTreiberStack<>();
+        AtomicInteger[] seen = new AtomicInteger[THREADS * PER_THREAD];
+        for (int i = 0; i < seen.length; i++) {
+            seen[i] = new AtomicInteger();
+        }
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int base = t * PER_THREAD;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < PER_THREAD; i++) {
+                    stack.push(base + i);
+                    Integer v = stack.pop();
+                    if (v != null) seen[v].incrementAndGet();
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        Integer v;
+        while ((v = stack.pop()) != null) {
+            seen[v].incrementAndGet();
+        }
+
+        int lost = 0, duplicated = 0;
+        for (AtomicInteger count : seen) {
+            if (count.get() == 0) lost++;
+            if (count.get() > 1) duplicated++;
+        }
+        System.out.println("push " + seen.length + " 个元素，丢失 " + lost + " 个，重复弹出 " + duplicated + " 个 → "
+                + (lost == 0 && duplicated == 0 ? "✓ 正确" : "✗ 错误"));
+        System.out.println("新建节点 " + stack.getAllocationCount() + " 个，其余 "
+                + (seen.length - stack.getAllocationCount()) + " 次 push 复用了池中的节点");
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        testABA();
+        testConcurrent();
+    }
+}
@@ -0,0 +1,814 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * 锁竞争剖析器：包装任意 Lock（CustomLock、ReentrantLock ...），运行时统计竞争情况
+ *
+ * 背景：
+ * Day03 的 CPUHighDemo.threadContention / DeadLockDemo 只能事后用 jstack 抓线程栈，
+ * 看到的是某一瞬间谁在等锁，看不到"等了多久、多频繁、是哪段代码在等"。
+ *
+ * 统计内容（每把锁一份）：
+ * 1. 获取次数、竞争次数（第一次 tryLock 失败的获取）
+ * 2. 等待时间直方图：只统计竞争的获取
+ * 3. 持有时间直方图：按 holdSampleRate 抽样
+ * 4. 等待最多的调用点（类名.方法名:行号），按累计等待时间排序
+ * 5. 每次竞争提交一个 JFR 事件（day05.LockContention），可以在 JMC 里按锁名、调用点查看
+ *
+ * 开销控制（无竞争时的快速路径）：
+ * - 先 tryLock()，成功就不调用 System.nanoTime()，不记录等待
+ * - 获取次数、重入深度、抽样计数都是普通字段，在锁内修改（锁本身保证互斥），不需要原子操作
+ * - 持有时间每 holdSampleRate 次才测一次（两次 nanoTime）
+ * - 调用点用 StackWalker 获取，只在竞争路径上执行（此时线程本来就要等待，相对开销很小）
+ * - JFR 事件未开启录制时 commit() 几乎没有开销
+ * main 中的测试4 会测量无竞争时每次 lock/unlock 的额外耗时。
+ *
+ * 注意：
+ * - 包装公平锁时不能先 tryLock（ReentrantLock.tryLock() 会插队），改为每次都计时，
+ *   等待超过 FAIR_CONTENDED_NANOS 才算竞争
+ * - Condition.await() 期间锁被释放，不计入持有时间：await 前结束本次持有，醒来重新获取后再开始计时
+ * - 直方图按 2 的幂分桶，分位数是所在桶的上界（最多高估一倍）
+ * - 只有 ReentrantLock、CustomLock 能判断当前线程是否持有锁；包装其他 Lock 实现时只统计获取次数
+ *   （重入也算一次）和等待，不跟踪重入深度和持有时间，否则非持有者误调 unlock 会打乱 owner 的统计
+ */
+public class ProfiledLock implements Lock {
+
+    /** 公平锁没有 tryLock 探测，等待超过这个时间才算竞争 */
+    static final long FAIR_CONTENDED_NANOS = 1_000;
+
+    /** 最多记录的调用点数量，超出的归入"其他" */
+    static final int MAX_CALL_SITES = 256;
+
+    static final String OTHER_CALL_SITES = "<其他>";
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final Lock delegate;
+    private final String name;
+    private final boolean probeWithTryLock;
+
+    /** 被包装的锁能否判断当前线程是否持有，不能判断时跳过重入深度和持有时间的统计 */
+    private final boolean tracksOwnership;
+
+    /** 持有时间抽样掩码（holdSampleRate - 1），holdSampleRate 为 2 的幂 */
+    private final int holdSampleMask;
+
+    // 以下字段只在持有锁时读写，由被包装的锁保证互斥
+    private long acquisitions;
+    private int depth;
+    private long holdStart;
+
+    // 以下字段由等待的线程并发写入
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final Log2Histogram waitHistogram = new Log2Histogram();
+    private final Log2Histogram holdHistogram = new Log2Histogram();
+    private final ConcurrentHashMap<String, CallSiteStats> callSites = new ConcurrentHashMap<>();
+
+    /**
+     * 持有时间每 64 次获取抽样一次
+     */
+    public ProfiledLock(String name, Lock delegate) {
+        this(name, delegate, 64);
+    }
+
+    /**
+     * @param holdSampleRate 每多少次获取测量一次持有时间（2 的幂；1 表示每次都测）
+     */
+    public ProfiledLock(String name, Lock delegate, int holdSampleRate) {
+        if (holdSampleRate <= 0 || Integer.bitCount(holdSampleRate) != 1) {
+            throw new IllegalArgumentException("holdSampleRate 必须是 2 的幂: " + holdSampleRate);
+        }
+        this.name = name;
+        this.delegate = delegate;
+        this.holdSampleMask = holdSampleRate - 1;
+        this.probeWithTryLock = !isFair(delegate);
+        this.tracksOwnership = delegate instanceof ReentrantLock || delegate instanceof CustomLock;
+    }
+
+    private static boolean isFair(Lock lock) {
+        if (lock instanceof ReentrantLock) {
+            return ((ReentrantLock) lock).isFair();
+        }
+        if (lock instanceof CustomLock) {
+            return ((CustomLock) lock).isFair();
+        }
+        return false;
+    }
+
+    /**
+     * 无法判断时（其他 Lock 实现）返回 false：调用方不改动统计字段，直接交给被包装的锁处理
+     */
+    private static boolean isHeldByCurrentThread(Lock lock) {
+        if (lock instanceof ReentrantLock) {
+            return ((ReentrantLock) lock).isHeldByCurrentThread();
+        }
+        if (lock instanceof CustomLock) {
+            return ((CustomLock) lock).isHeldByCurrentThread();
+        }
+        return false;
+    }
+
+    // ==================== Lock 接口实现 ====================
+
+    @Override
+    public void lock() {
+        if (acquiredWithoutWaiting()) {
+            onAcquired();
+            return;
+        }
+        LockContentionEvent event = new LockContentionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        delegate.lock();
+        onContendedAcquired(System.nanoTime() - start, event);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (acquiredWithoutWaiting()) {
+            onAcquired();
+            return;
+        }
+        LockContentionEvent event = new LockContentionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        delegate.lockInterruptibly();
+        onContendedAcquired(System.nanoTime() - start, event);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (delegate.tryLock()) {
+            onAcquired();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (acquiredWithoutWaiting()) {
+            onAcquired();
+            return true;
+        }
+        LockContentionEvent event = new LockContentionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        if (!delegate.tryLock(time, unit)) {
+            return false;
+        }
+        onContendedAcquired(System.nanoTime() - start, event);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (!isHeldByCurrentThread(delegate)) {
+            // 未持有锁（或无法判断）：交给被包装的锁处理，不能改动 owner 的统计字段
+            delegate.unlock();
+            return;
+        }
+        if (--depth == 0 && holdStart != 0) {
+            holdHistogram.record(System.nanoTime() - holdStart);
+            holdStart = 0;
+        }
+        delegate.unlock();
+    }
+
+    /**
+     * await 时被包装的锁会完全释放（包括重入），其他线程随后获取锁会改写 depth / holdStart，
+     * 所以返回的 Condition 在 await 前后保存、恢复当前线程的重入深度
+     */
+    @Override
+    public Condition newCondition() {
+        return new ProfiledCondition(delegate.newCondition());
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 非公平锁：tryLock 探测；公平锁：只有重入时直接获取（不会等待，也不算插队）
+     */
+    private boolean acquiredWithoutWaiting() {
+        if (probeWithTryLock) {
+            return delegate.tryLock();
+        }
+        if (isHeldByCurrentThread(delegate)) {
+            delegate.lock();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 已持有锁，在锁内更新普通字段
+     */
+    private void onAcquired() {
+        if (!tracksOwnership) {
+            acquisitions++;
+            return;
+        }
+        if (depth++ == 0 && (acquisitions++ & holdSampleMask) == 0) {
+            holdStart = System.nanoTime();
+        }
+    }
+
+    private void onContendedAcquired(long waitNanos, LockContentionEvent event) {
+        if (!probeWithTryLock && waitNanos < FAIR_CONTENDED_NANOS) {
+            onAcquired();
+            return;
+        }
+        String callSite = callSite();
+        contended.increment();
+        totalWaitNanos.add(waitNanos);
+        waitHistogram.record(waitNanos);
+        callSiteStats(callSite).record(waitNanos);
+        event.end();
+        if (event.shouldCommit()) {
+            event.lockName = name;
+            event.callSite = callSite;
+            event.commit();
+        }
+        onAcquired();
+    }
+
+    /**
+     * await 前调用（仍持有锁）：结束本次持有的计时，清零重入深度交给下一个持有者
+     *
+     * @return 重入深度；本次持有被抽样时为负数，醒来后继续抽样
+     */
+    private int releaseForAwait() {
+        int saved = holdStart != 0 ? -depth : depth;
+        if (holdStart != 0) {
+            holdHistogram.record(System.nanoTime() - holdStart);
+            holdStart = 0;
+        }
+        depth = 0;
+        return saved;
+    }
+
+    /**
+     * await 返回后调用（已重新持有锁，包括被中断、超时返回）
+     */
+    private void reacquiredAfterAwait(int saved) {
+        depth = Math.abs(saved);
+        if (saved < 0) {
+            holdStart = System.nanoTime();
+        }
+    }
+
+    private CallSiteStats callSiteStats(String callSite) {
+        CallSiteStats stats = callSites.get(callSite);
+        if (stats != null) {
+            return stats;
+        }
+        if (callSites.size() >= MAX_CALL_SITES) {
+            callSite = OTHER_CALL_SITES;
+        }
+        return callSites.computeIfAbsent(callSite, k -> new CallSiteStats());
+    }
+
+    /**
+     * 调用 lock() 的栈帧：跳过 callSite、onContendedAcquired、lock/lockInterruptibly/tryLock 三层
+     */
+    private static String callSite() {
+        return WALKER.walk(frames -> frames
+                .skip(3)
+                .findFirst()
+                .map(f -> f.getClassName() + "." + f.getMethodName() + ":" + f.getLineNumber())
+                .orElse("<未知>"));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 总获取次数（读取时不加锁，可能稍旧）
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    public long getContendedCount() {
+        return contended.sum();
+    }
+
+    /**
+     * 生成文本报告
+     *
+     * @param topCallSites 最多列出多少个调用点
+     */
+    public String report(int topCallSites) {
+        long total = acquisitions;
+        long contendedCount = contended.sum();
+        StringBuilder sb = new StringBuilder();
+        sb.append("锁 [").append(name).append("] ")
+                .append(delegate.getClass().getSimpleName()).append(isFair(delegate) ? "（公平）" : "").append('\n');
+        sb.append(String.format("  获取 %d 次，竞争 %d 次（%.1f%%），累计等待 %.1fms%n",
+                total, contendedCount, total == 0 ? 0 : contendedCount * 100.0 / total,
+                totalWaitNanos.sum() / 1e6));
+        sb.append("  等待时间: ").append(waitHistogram).append('\n');
+        sb.append("  持有时间: ").append(holdHistogram)
+                .append("（每 ").append(holdSampleMask + 1).append(" 次抽样 1 次）\n");
+
+        List<Map.Entry<String, CallSiteStats>> sites = new ArrayList<>(callSites.entrySet());
+        sites.sort(Comparator.comparingLong((Map.Entry<String, CallSiteStats> e) -> e.getValue().waitNanos.sum())
+                .reversed());
+        if (!sites.isEmpty()) {
+            sb.append("  等待最多的调用点:\n");
+        }
+        for (int i = 0; i < Math.min(topCallSites, sites.size()); i++) {
+            CallSiteStats s = sites.get(i).getValue();
+            sb.append(String.format("    %-55s 竞争 %6d 次，累计等待 %8.1fms%n",
+                    sites.get(i).getKey(), s.count.sum(), s.waitNanos.sum() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report(5);
+    }
+
+    // ==================== 内部类 ====================
+
+    /**
+     * 包装被包装锁的 Condition：await 期间锁属于别的线程，不能保留当前线程的 depth / holdStart
+     */
+    private final class ProfiledCondition implements Condition {
+        private final Condition condition;
+
+        ProfiledCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        /**
+         * 未持有锁时交给被包装的 Condition 抛出 IllegalMonitorStateException，不能改动 owner 的统计字段
+         */
+        private boolean held() {
+            return isHeldByCurrentThread(delegate);
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            if (!held()) {
+                condition.await();
+                return;
+            }
+            int saved = releaseForAwait();
+            try {
+                condition.await();
+            } finally {
+                reacquiredAfterAwait(saved);
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            if (!held()) {
+                condition.awaitUninterruptibly();
+                return;
+            }
+            int saved = releaseForAwait();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                reacquiredAfterAwait(saved);
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            if (!held()) {
+                return condition.awaitNanos(nanosTimeout);
+            }
+            int saved = releaseForAwait();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                reacquiredAfterAwait(saved);
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            if (!held()) {
+                return condition.await(time, unit);
+            }
+            int saved = releaseForAwait();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                reacquiredAfterAwait(saved);
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            if (!held()) {
+                return condition.awaitUntil(deadline);
+            }
+            int saved = releaseForAwait();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                reacquiredAfterAwait(saved);
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+
+    static final class CallSiteStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+
+        void record(long nanos) {
+            count.increment();
+            waitNanos.add(nanos);
+        }
+    }
+
+    /**
+     * 按 2 的幂分桶的无锁直方图：桶 i 统计 [2^i, 2^(i+1)) 纳秒
+     */
+    static final class Log2Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+        void record(long nanos) {
+            buckets.getAndIncrement(63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+        }
+
+        long count() {
+            long n = 0;
+            for (int i = 0; i < 64; i++) {
+                n += buckets.get(i);
+            }
+            return n;
+        }
+
+        /**
+         * @return 该分位数所在桶的上界（纳秒），没有数据时返回 0
+         */
+        long percentile(double percentile) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(63);
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket >= 62 ? Long.MAX_VALUE : (2L << bucket) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, p50≤%s, p99≤%s, max≤%s", count(),
+                    format(percentile(50)), format(percentile(99)), format(percentile(100)));
+        }
+
+        static String format(long nanos) {
+            if (nanos < 1_000) {
+                return nanos + "ns";
+            }
+            if (nanos < 1_000_000) {
+                return String.format("%.1fµs", nanos / 1e3);
+            }
+            return String.format("%.1fms", nanos / 1e6);
+        }
+    }
+
+    /**
+     * JFR 事件：一次竞争的获取，持续时间就是等待时间
+     * 录制时可以用 jfr print --events day05.LockContention 查看，或在 JMC 中按 lockName / callSite 分组
+     */
+    @Name("day05.LockContention")
+    @Label("Lock Contention")
+    @Category({"Day05", "Locks"})
+    @Description("ProfiledLock 记录的一次竞争获取")
+    static class LockContentionEvent extends Event {
+        @Label("Lock Name")
+        String lockName;
+
+        @Label("Call Site")
+        String callSite;
+    }
+
+    // ==================== 测试代码 ====================
+
+    /**
+     * 测试1：对应 CPUHighDemo.threadContention —— 多个调用点竞争同一把锁
+     * 不用 jstack，直接从报告中看出哪段代码等得最多
+     */
+    static void testContentionReport() throws InterruptedException {
+        System.out.println("========== 测试1：ReentrantLock 竞争报告 ==========");
+
+        ProfiledLock lock = new ProfiledLock("orderLock", new ReentrantLock(), 1);
+        int[] orders = {0};
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            boolean slowPath = i % 4 == 0;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    if (slowPath) {
+                        createOrderSlowly(lock, orders);
+                    } else {
+                        queryOrder(lock, orders);
+                    }
+                }
+            }, "worker-" + i);
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        System.out.print(lock.report(5));
+        System.out.println("→ createOrderSlowly 在锁内 sleep，持有时间长；queryOrder 调用多，累计等待反而最多");
+        System.out.println();
+    }
+
+    private static void createOrderSlowly(Lock lock, int[] orders) {
+        lock.lock();
+        try {
+            orders[0]++;
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int queryOrder(Lock lock, int[] orders) {
+        lock.lock();
+        try {
+            return orders[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 测试2：包装 CustomLock（公平 / 非公平）与重入
+     */
+    static void testCustomLock() throws InterruptedException {
+        System.out.println("========== 测试2：包装 CustomLock ==========");
+
+        for (boolean fair : new boolean[]{false, true}) {
+            ProfiledLock lock = new ProfiledLock(fair ? "fairLock" : "unfairLock", new CustomLock(fair, false), 1);
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 2_000; j++) {
+                        lock.lock();
+                        try {
+                            // 重入只算一次持有
+                            lock.lock();
+                            lock.unlock();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                });
+            }
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            System.out.print(lock.report(3));
+        }
+        System.out.println();
+    }
+
+    /**
+     * 测试3：录制 JFR，读回 day05.LockContention 事件
+     */
+    static void testJfrEvents() throws Exception {
+        System.out.println("========== 测试3：JFR 事件 ==========");
+
+        Path file = Files.createTempFile("profiled-lock", ".jfr");
+        ProfiledLock lock = new ProfiledLock("jfrLock", new ReentrantLock());
+        try (Recording recording = new Recording()) {
+            recording.enable(LockContentionEvent.class).withThreshold(java.time.Duration.ZERO);
+            recording.start();
+
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(() -> {
+                    for (int j = 0; j < 20; j++) {
+                        createOrderSlowly(lock, new int[1]);
+                    }
+                });
+            }
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        long count = events.stream()
+                .filter(e -> e.getEventType().getName().equals("day05.LockContention"))
+                .count();
+        System.out.println("ProfiledLock 统计的竞争次数: " + lock.getContendedCount());
+        System.out.println("JFR 中的 day05.LockContention 事件数: " + count);
+        events.stream()
+                .filter(e -> e.getEventType().getName().equals("day05.LockContention"))
+                .findFirst()
+                .ifPresent(e -> System.out.println("示例事件: lockName=" + e.getString("lockName")
+                        + ", callSite=" + e.getString("callSite")
+                        + ", 等待=" + e.getDuration().toNanos() / 1000 + "µs"));
+        System.out.println("（命令行录制: java -XX:StartFlightRecording=filename=lock.jfr ...，"
+                + "再用 jfr print --events day05.LockContention lock.jfr 查看）");
+        Files.deleteIfExists(file);
+        System.out.println();
+    }
+
+    /**
+     * 测试4：无竞争时的额外开销
+     */
+    static void testOverhead() {
+        System.out.println("========== 测试4：无竞争时的开销 ==========");
+
+        final int LOOPS = 5_000_000;
+        final int ROUNDS = 5;
+        Lock raw = new ReentrantLock();
+        Lock sampled = new ProfiledLock("sampled", new ReentrantLock());
+        Lock everyTime = new ProfiledLock("everyTime", new ReentrantLock(), 1);
+
+        double rawNs = 0;
+        double sampledNs = 0;
+        double everyNs = 0;
+        // 第一轮作为预热，取后几轮的最小值
+        for (int round = 0; round < ROUNDS; round++) {
+            double r = nanosPerOp(raw, LOOPS);
+            double s = nanosPerOp(sampled, LOOPS);
+            double e = nanosPerOp(everyTime, LOOPS);
+            if (round > 0) {
+                rawNs = rawNs == 0 ? r : Math.min(rawNs, r);
+                sampledNs = sampledNs == 0 ? s : Math.min(sampledNs, s);
+                everyNs = everyNs == 0 ? e : Math.min(everyNs, e);
+            }
+        }
+        System.out.printf("ReentrantLock 直接使用:              %.1f ns/次%n", rawNs);
+        System.out.printf("ProfiledLock（持有时间 1/64 抽样）:  %.1f ns/次（额外 %.1f ns）%n", sampledNs, sampledNs - rawNs);
+        System.out.printf("ProfiledLock（每次测持有时间）:      %.1f ns/次（额外 %.1f ns）%n", everyNs, everyNs - rawNs);
+        System.out.println("→ 默认抽样下无竞争的额外开销只有一次 tryLock 替代 lock 和几个普通字段的读写");
+        System.out.println();
+    }
+
+    private static double nanosPerOp(Lock lock, int loops) {
+        long counter = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < loops; i++) {
+            lock.lock();
+            try {
+                counter++;
+            } finally {
+                lock.unlock();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (counter != loops) {
+            throw new IllegalStateException("计数不正确");
+        }
+        return (double) elapsed / loops;
+    }
+
+    /**
+     * 测试5：Condition.await 期间其他线程获取锁，重入深度和持有时间不被打乱
+     */
+    static void testCondition() throws InterruptedException {
+        System.out.println("========== 测试5：Condition.await ==========");
+
+        ReentrantLock inner = new ReentrantLock();
+        ProfiledLock lock = new ProfiledLock("conditionLock", inner, 1);
+        Condition ready = lock.newCondition();
+        Condition innerReady = ((ProfiledCondition) ready).condition;
+        boolean[] flag = {false};
+
+        Thread waiter = new Thread(() -> {
+            lock.lock();
+            try {
+                // 重入后再 await：await 会释放全部重入
+                lock.lock();
+                try {
+                    while (!flag[0]) {
+                        ready.awaitUninterruptibly();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+        waiter.start();
+        // 直接查询被包装的锁，不经过 ProfiledLock，不计入获取次数
+        while (true) {
+            inner.lock();
+            try {
+                if (inner.hasWaiters(innerReady)) {
+                    break;
+                }
+            } finally {
+                inner.unlock();
+            }
+            Thread.sleep(1);
+        }
+        lock.lock();
+        try {
+            flag[0] = true;
+            ready.signal();
+        } finally {
+            lock.unlock();
+        }
+        waiter.join();
+
+        // 每次都抽样：每次获取一段持有，waiter 醒来后重新持有多一段
+        long holds = lock.holdHistogram.count();
+        System.out.println("获取 " + lock.getAcquisitions() + " 次，记录持有 " + holds + " 段，结束后重入深度 "
+                + lock.depth + (holds == lock.getAcquisitions() + 1 && lock.depth == 0 ? " ✓" : " ✗"));
+        System.out.println();
+    }
+
+    /**
+     * 测试6：包装无法判断持有者的 Lock（读锁），非持有者误调 unlock 不会打乱持有者的统计
+     */
+    static void testUnknownLock() throws InterruptedException {
+        System.out.println("========== 测试6：其他 Lock 实现 ==========");
+
+        ProfiledLock lock = new ProfiledLock("readLock", new ReentrantReadWriteLock().readLock(), 1);
+        lock.lock();
+        String[] misuse = {"没有抛出异常"};
+        Thread other = new Thread(() -> {
+            try {
+                lock.unlock();
+            } catch (IllegalMonitorStateException e) {
+                misuse[0] = e.getClass().getSimpleName();
+            }
+        });
+        other.start();
+        other.join();
+        lock.unlock();
+        lock.lock();
+        lock.lock();
+        lock.unlock();
+        lock.unlock();
+        System.out.println("其他线程误调 unlock: " + misuse[0] + "；持有者共获取 " + lock.getAcquisitions()
+                + " 次，重入深度 " + lock.depth + "，持有时间段数 " + lock.holdHistogram.count()
+                + (lock.getAcquisitions() == 3 && lock.depth == 0 && lock.holdHistogram.count() == 0 ? " ✓" : " ✗"));
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws Exception {
+        testContentionReport();
+        testCustomLock();
+        testJfrEvents();
+        testOverhead();
+        testCondition();
+        testUnknownLock();
+    }
+}
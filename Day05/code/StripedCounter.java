@@ -0,0 +1,639 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * 分段计数器家族（仿 Striped64 / LongAdder 的思路，补上指标系统需要而 JDK 没有的几种）
+ *
+ * 包含：
+ * 1. StripedCounter（本类）：求和计数器，等价于 LongAdder
+ * 2. StripedCounter.Accumulator：任意累加函数（max / min ...），结果不变时不写内存
+ * 3. StripedCounter.Histogram：分段直方图，按 2 的幂分桶，每个条带一组桶
+ * 4. StripedCounter.WindowedRate：滑动窗口速率计数器，窗口滚动时不加锁
+ *
+ * 与 Striped64 相同的设计：
+ * - 没有竞争时只 CAS 一个 base 值，不分配 Cell
+ * - base 上第一次 CAS 失败才分配条带（Cell 数组），之后线程按探针（probe）选择条带
+ * - 条带上 CAS 失败说明与别的线程撞车，更换探针，下次落到另一个条带
+ * - 读取（sum / get）把 base 和所有条带加起来，不加锁，只是近似值（读的同时可能有写入）
+ *
+ * 与 Striped64 的差异：
+ * - JDK 的探针存在 Thread 对象里（Thread.threadLocalRandomProbe，外部不可访问），这里用 ThreadLocal
+ * - 条带数在分配时就定为不小于 CPU 核数的 2 的幂（至少 2，最多 64），不再扩容，
+ *   所以条带用 AtomicLongArray 存储，不会因为扩容复制而丢失更新
+ * - 相邻条带间隔 STRIDE 个 long（128 字节），手工填充代替 @Contended（JDK 内部注解，应用代码默认不生效）
+ */
+public class StripedCounter {
+
+    /** 条带数：不小于 CPU 核数的 2 的幂，至少 2，最多 64 */
+    static final int STRIPES = Math.max(2, Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1));
+
+    /** 相邻条带间隔 16 个 long = 128 字节，避开相邻缓存行预取 */
+    static final int STRIDE = 16;
+
+    // ==================== 线程探针 ====================
+
+    /** 每个线程的探针值，撞车后用 xorshift 换一个 */
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> {
+        int h = (int) (Thread.currentThread().getId() * 0x9E3779B9L);
+        return new int[]{h == 0 ? 1 : h};
+    });
+
+    static int probe() {
+        return PROBE.get()[0];
+    }
+
+    static void advanceProbe() {
+        int[] holder = PROBE.get();
+        int h = holder[0];
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        holder[0] = h;
+    }
+
+    /**
+     * 当前线程对应的条带在数组中的下标
+     */
+    static int stripeOffset(int stripeSize) {
+        return (probe() & (STRIPES - 1)) * stripeSize;
+    }
+
+    // ==================== 求和计数器 ====================
+
+    private final AtomicLong base = new AtomicLong();
+    private final AtomicReference<AtomicLongArray> cells = new AtomicReference<>();
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long x) {
+        AtomicLongArray cs = cells.get();
+        if (cs == null) {
+            long b = base.get();
+            if (base.compareAndSet(b, b + x)) {
+                return;
+            }
+            cs = initCells();
+        }
+        int index = stripeOffset(STRIDE);
+        long v = cs.get(index);
+        if (!cs.compareAndSet(index, v, v + x)) {
+            // 撞车：这次直接 getAndAdd（一定成功），下次换个条带
+            cs.getAndAdd(index, x);
+            advanceProbe();
+        }
+    }
+
+    private AtomicLongArray initCells() {
+        AtomicLongArray cs = cells.get();
+        if (cs == null) {
+            cells.compareAndSet(null, new AtomicLongArray(STRIPES * STRIDE));
+            cs = cells.get();
+        }
+        return cs;
+    }
+
+    /**
+     * 不加锁求和（近似值：求和期间的写入可能只算进一部分）
+     */
+    public long sum() {
+        long sum = base.get();
+        AtomicLongArray cs = cells.get();
+        if (cs != null) {
+            for (int i = 0; i < cs.length(); i += STRIDE) {
+                sum += cs.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 求和并清零，用于按周期导出（每次增量只会被导出一次）
+     */
+    public long sumThenReset() {
+        long sum = base.getAndSet(0);
+        AtomicLongArray cs = cells.get();
+        if (cs != null) {
+            for (int i = 0; i < cs.length(); i += STRIDE) {
+                sum += cs.getAndSet(i, 0);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * 是否已经因为竞争分配了条带
+     */
+    public boolean isStriped() {
+        return cells.get() != null;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    // ==================== 任意累加函数 ====================
+
+    /**
+     * 分段累加器，对应 LongAccumulator
+     *
+     * 优化：先读当前值，计算结果与当前值相同（例如 max 时新值不比当前最大值大）就直接返回，
+     * 不做 CAS。统计最大/最小值时，绝大多数更新都不改变结果，几乎变成只读操作。
+     * LongAccumulator 也有同样的判断，但它在 base 上失败一次就会扩展 Cell，
+     * 这里的条带数固定，不需要扩容。
+     */
+    public static final class Accumulator {
+        private final LongBinaryOperator function;
+        private final long identity;
+        private final AtomicLong base;
+        private final AtomicReference<AtomicLongArray> cells = new AtomicReference<>();
+
+        /**
+         * @param function 满足交换律、结合律的累加函数
+         * @param identity 单位元（max 时为 Long.MIN_VALUE）
+         */
+        public Accumulator(LongBinaryOperator function, long identity) {
+            this.function = function;
+            this.identity = identity;
+            this.base = new AtomicLong(identity);
+        }
+
+        public static Accumulator max() {
+            return new Accumulator(Math::max, Long.MIN_VALUE);
+        }
+
+        public static Accumulator min() {
+            return new Accumulator(Math::min, Long.MAX_VALUE);
+        }
+
+        public void accumulate(long x) {
+            AtomicLongArray cs = cells.get();
+            if (cs == null) {
+                long b = base.get();
+                long r = function.applyAsLong(b, x);
+                if (r == b || base.compareAndSet(b, r)) {
+                    return;
+                }
+                cs = initCells();
+            }
+            int index = stripeOffset(STRIDE);
+            boolean collided = false;
+            while (true) {
+                long v = cs.get(index);
+                long r = function.applyAsLong(v, x);
+                if (r == v || cs.compareAndSet(index, v, r)) {
+                    break;
+                }
+                collided = true;
+            }
+            if (collided) {
+                advanceProbe();
+            }
+        }
+
+        private AtomicLongArray initCells() {
+            AtomicLongArray cs = cells.get();
+            if (cs == null) {
+                AtomicLongArray fresh = new AtomicLongArray(STRIPES * STRIDE);
+                for (int i = 0; i < fresh.length(); i += STRIDE) {
+                    fresh.set(i, identity);
+                }
+                cells.compareAndSet(null, fresh);
+                cs = cells.get();
+            }
+            return cs;
+        }
+
+        /**
+         * 不加锁合并 base 与所有条带
+         */
+        public long get() {
+            long result = base.get();
+            AtomicLongArray cs = cells.get();
+            if (cs != null) {
+                for (int i = 0; i < cs.length(); i += STRIDE) {
+                    result = function.applyAsLong(result, cs.get(i));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 取出当前结果并恢复为单位元
+         */
+        public long getThenReset() {
+            long result = base.getAndSet(identity);
+            AtomicLongArray cs = cells.get();
+            if (cs != null) {
+                for (int i = 0; i < cs.length(); i += STRIDE) {
+                    result = function.applyAsLong(result, cs.getAndSet(i, identity));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return Long.toString(get());
+        }
+    }
+
+    // ==================== 分段直方图 ====================
+
+    /**
+     * 按 2 的幂分桶的分段直方图：桶 i 统计 [2^i, 2^(i+1)) 范围内的值（0 和 1 都落在桶 0）
+     *
+     * 每个条带有自己的 64 个桶，条带之间再填充 STRIDE 个 long；
+     * 多个线程记录相近的值时也不会争抢同一个计数器。
+     * 条带在创建时一次性分配（STRIPES × 80 个 long，64 核时约 40KB）。
+     */
+    public static final class Histogram {
+        static final int BUCKETS = 64;
+        private static final int STRIPE_SIZE = BUCKETS + STRIDE;
+
+        private final AtomicLongArray counts = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+
+        public void record(long value) {
+            int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, value));
+            int index = stripeOffset(STRIPE_SIZE) + bucket;
+            long v = counts.get(index);
+            if (!counts.compareAndSet(index, v, v + 1)) {
+                counts.getAndIncrement(index);
+                advanceProbe();
+            }
+        }
+
+        /**
+         * 各桶计数的快照（各条带相加）
+         */
+        public long[] snapshot() {
+            long[] result = new long[BUCKETS];
+            for (int s = 0; s < STRIPES; s++) {
+                for (int b = 0; b < BUCKETS; b++) {
+                    result[b] += counts.get(s * STRIPE_SIZE + b);
+                }
+            }
+            return result;
+        }
+
+        public long count() {
+            long n = 0;
+            for (long c : snapshot()) {
+                n += c;
+            }
+            return n;
+        }
+
+        /**
+         * @return 该分位数所在桶的上界，没有数据时返回 0
+         */
+        public long percentile(double percentile) {
+            long[] buckets = snapshot();
+            long total = 0;
+            for (long c : buckets) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i >= 62 ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, p50≤%d, p99≤%d, max≤%d",
+                    count(), percentile(50), percentile(99), percentile(100));
+        }
+    }
+
+    // ==================== 滑动窗口速率 ====================
+
+    /**
+     * 滑动窗口速率计数器：最近 slots × slotMillis 毫秒内的事件数
+     *
+     * 不加锁的滚动：每个计数单元把"所属时间片编号"和计数打包在同一个 long 里
+     * - 高 32 位：时间片编号（epoch，对 2^32 取模）
+     * - 低 32 位：计数（单个条带在一个时间片内最多约 43 亿次）
+     * 写入时 CAS：编号相同则计数 +n；编号过期（单元属于很久以前的时间片）则直接替换为（当前编号, n），
+     * 等价于"先清零再累加"，而且只有一次 CAS，不需要后台线程或锁来清理过期时间片。
+     * 读取时只累加编号落在窗口内的单元。
+     *
+     * 编号取模后会回绕：条带空闲恰好约 2^32 个时间片（1ms 时间片约 49.7 天）时旧单元会被误认为当前时间片，
+     * 只影响回绕点附近的几个时间片；空闲时间再长也不会出现"旧单元被当成更新的时间片、计数一直丢失"。
+     *
+     * 每个时间片也按线程分条带：单元下标 = 条带 × slots + 时间片在环上的位置
+     */
+    public static final class WindowedRate {
+        private static final int EPOCH_BITS = 32;
+        private static final int COUNT_BITS = 64 - EPOCH_BITS;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+        private static final long EPOCH_MASK = (1L << EPOCH_BITS) - 1;
+
+        /**
+         * 写入线程读时钟后最多被挂起几个窗口：同一位置的单元比本线程的编号新，且差距在这个范围内，
+         * 才认为是别的线程已经滚动到了更新的时间片；否则一律当作过期单元替换
+         */
+        private static final int MAX_LAG_WINDOWS = 4;
+
+        private final int slots;
+        private final long slotNanos;
+        private final LongSupplier nanoClock;
+        private final int stripeSize;
+        private final AtomicLongArray cells;
+
+        /**
+         * @param slots      窗口被分成几个时间片（越多，窗口滑动越平滑）
+         * @param slotMillis 每个时间片的长度
+         */
+        public WindowedRate(int slots, long slotMillis) {
+            this(slots, slotMillis, System::nanoTime);
+        }
+
+        /**
+         * @param nanoClock 时钟（测试时可以传入手动推进的时钟）
+         */
+        public WindowedRate(int slots, long slotMillis, LongSupplier nanoClock) {
+            if (slots <= 0 || slotMillis <= 0) {
+                throw new IllegalArgumentException("slots 和 slotMillis 必须大于 0");
+            }
+            this.slots = slots;
+            this.slotNanos = TimeUnit.MILLISECONDS.toNanos(slotMillis);
+            this.nanoClock = nanoClock;
+            // 同一条带的所有时间片放在一起，末尾填充 STRIDE 个 long
+            this.stripeSize = slots + STRIDE;
+            this.cells = new AtomicLongArray(STRIPES * stripeSize);
+        }
+
+        private long currentEpoch() {
+            return Math.floorDiv(nanoClock.getAsLong(), slotNanos);
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public void add(long n) {
+            long epoch = currentEpoch();
+            long tag = epoch & EPOCH_MASK;
+            int index = stripeOffset(stripeSize) + (int) Math.floorMod(epoch, (long) slots);
+            boolean collided = false;
+            while (true) {
+                long v = cells.get(index);
+                long cellTag = v >>> COUNT_BITS;
+                long next;
+                if (cellTag == tag || ((cellTag - tag) & EPOCH_MASK) <= (long) MAX_LAG_WINDOWS * slots) {
+                    // 编号相同；或单元已被别的线程滚动到更新的时间片（本线程读时钟后被挂起了一会儿），计入新时间片
+                    next = v + n;
+                } else {
+                    // 单元属于更早的时间片（不管空闲了多久）：替换（相当于清零后累加）
+                    next = (tag << COUNT_BITS) | (n & COUNT_MASK);
+                }
+                if (cells.compareAndSet(index, v, next)) {
+                    break;
+                }
+                collided = true;
+            }
+            if (collided) {
+                advanceProbe();
+            }
+        }
+
+        /**
+         * 最近 slots 个时间片（含当前这个未结束的时间片）内的事件数
+         */
+        public long count() {
+            long epoch = currentEpoch();
+            long sum = 0;
+            for (int s = 0; s < STRIPES; s++) {
+                for (int i = 0; i < slots; i++) {
+                    long v = cells.get(s * stripeSize + i);
+                    long cellTag = v >>> COUNT_BITS;
+                    long age = (epoch - cellTag) & EPOCH_MASK;
+                    if (v != 0 && age < slots) {
+                        sum += v & COUNT_MASK;
+                    }
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * 每秒事件数：窗口内事件数 / 窗口长度
+         * （当前时间片还没走完，刚启动或流量突变时会偏低，时间片越多误差越小）
+         */
+        public double ratePerSecond() {
+            return count() * 1e9 / (slots * slotNanos);
+        }
+    }
+
+    // ==================== 测试代码 ====================
+
+    /**
+     * 测试1：功能验证
+     */
+    static void testBasic() throws InterruptedException {
+        System.out.println("========== 测试1：功能验证 ==========");
+        System.out.println("条带数: " + STRIPES + "（CPU 核数 " + Runtime.getRuntime().availableProcessors() + "）");
+
+        StripedCounter counter = new StripedCounter();
+        Accumulator max = Accumulator.max();
+        Accumulator min = Accumulator.min();
+        Histogram histogram = new Histogram();
+        final int THREADS = 8;
+        final int OPS = 100_000;
+
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            final int id = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < OPS; j++) {
+                    counter.increment();
+                    long value = (long) id * OPS + j;
+                    max.accumulate(value);
+                    min.accumulate(value);
+                    histogram.record(j);
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        long expected = (long) THREADS * OPS;
+        System.out.println("StripedCounter: " + counter.sum() + "（期望 " + expected + "，已分条带: "
+                + counter.isStriped() + "）" + (counter.sum() == expected ? " ✅" : " ❌"));
+        System.out.println("Accumulator.max: " + max.get() + "（期望 " + (expected - 1) + "）"
+                + (max.get() == expected - 1 ? " ✅" : " ❌"));
+        System.out.println("Accumulator.min: " + min.get() + "（期望 0）" + (min.get() == 0 ? " ✅" : " ❌"));
+        System.out.println("Histogram: " + histogram + (histogram.count() == expected ? " ✅" : " ❌"));
+        System.out.println("sumThenReset: " + counter.sumThenReset() + "，之后 sum = " + counter.sum());
+        System.out.println();
+    }
+
+    /**
+     * 测试2：滑动窗口的滚动（手动推进时钟）
+     */
+    static void testWindowedRate() {
+        System.out.println("========== 测试2：滑动窗口速率（10 个时间片 × 100ms = 1 秒窗口） ==========");
+
+        long[] now = {0};
+        WindowedRate rate = new WindowedRate(10, 100, () -> now[0]);
+        long slot = TimeUnit.MILLISECONDS.toNanos(100);
+
+        // 前 1 秒每个时间片 100 次
+        for (int i = 0; i < 10; i++) {
+            now[0] = i * slot;
+            rate.add(100);
+        }
+        System.out.println("t=0.9s  窗口内: " + rate.count() + " 次，速率 " + rate.ratePerSecond() + "/s");
+
+        // 之后 0.5 秒没有事件：旧时间片逐渐滑出窗口
+        now[0] = 14 * slot;
+        System.out.println("t=1.4s  窗口内: " + rate.count() + " 次（前 5 个时间片已滑出）");
+
+        // 时间片 15 与时间片 5 在环上是同一个位置：写入时直接覆盖过期计数，不需要清理
+        now[0] = 15 * slot;
+        rate.add(1);
+        System.out.println("t=1.5s  写入 1 次后窗口内: " + rate.count() + " 次");
+
+        now[0] = 100 * slot;
+        System.out.println("t=10s   窗口内: " + rate.count() + " 次（全部过期）");
+
+        // 条带长时间空闲：旧单元的编号离当前编号很远（超过编号范围的一半也一样），写入时必须替换而不是累加
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        for (long idleSlots : new long[]{(1L << 23) + 100, (1L << 31) + 100}) {
+            now[0] = 0;
+            WindowedRate idle = new WindowedRate(10, 1, () -> now[0]);
+            idle.add(5);
+            now[0] = idleSlots * ms;
+            idle.add(7);
+            System.out.printf("空闲 %d 个时间片（约 %.1f 小时）后写入 7 次，窗口内: %d 次 %s%n",
+                    idleSlots, idleSlots / 3.6e6, idle.count(), idle.count() == 7 ? "✓" : "✗");
+        }
+
+        // 写入线程读时钟后被挂起：同一位置已被滚动到下一圈，晚到的写入计入新时间片，不能把新计数冲掉
+        now[0] = 0;
+        WindowedRate late = new WindowedRate(10, 1, () -> now[0]);
+        now[0] = 13 * ms;
+        late.add(5);
+        now[0] = 3 * ms;
+        late.add(1);
+        now[0] = 13 * ms;
+        System.out.println("晚到的写入后窗口内: " + late.count() + " 次" + (late.count() == 6 ? " ✓" : " ✗"));
+        System.out.println();
+    }
+
+    // ==================== 基准测试 ====================
+
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    static final long RUN_MILLIS = 300;
+
+    /**
+     * 每个线程反复调用 op（参数为循环计数），固定时长后返回每秒总操作数
+     */
+    interface Op {
+        void run(long i);
+    }
+
+    static double throughput(int threadCount, Op op) throws InterruptedException {
+        long[] ops = new long[threadCount];
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = deadline[0];
+                long i = 0;
+                // 每 1024 次检查一次是否到时间
+                while ((i & 0x3FF) != 0 || System.nanoTime() <= end) {
+                    op.run(i);
+                    i++;
+                }
+                ops[id] = i;
+            });
+            threads[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+        long total = 0;
+        for (long n : ops) {
+            total += n;
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    static void benchmark() throws InterruptedException {
+        System.out.println("========== 性能对比（百万次/秒） ==========");
+        System.out.printf("%-8s %-12s %-12s %-16s %-18s %-16s %-12s %-12s%n", "线程数",
+                "AtomicLong", "LongAdder", "StripedCounter", "LongAccumulator", "Accumulator",
+                "Histogram", "WindowedRate");
+        System.out.printf("%-8s %-12s %-12s %-16s %-18s %-16s %-12s %-12s%n", "",
+                "", "", "", "(max)", "(max)", "", "");
+
+        for (int threads : THREAD_COUNTS) {
+            AtomicLong atomic = new AtomicLong();
+            LongAdder adder = new LongAdder();
+            StripedCounter striped = new StripedCounter();
+            LongAccumulator jdkMax = new LongAccumulator(Math::max, Long.MIN_VALUE);
+            Accumulator stripedMax = Accumulator.max();
+            Histogram histogram = new Histogram();
+            WindowedRate rate = new WindowedRate(10, 100);
+
+            double a = throughput(threads, i -> atomic.incrementAndGet());
+            double b = throughput(threads, i -> adder.increment());
+            double c = throughput(threads, i -> striped.increment());
+            double d = throughput(threads, jdkMax::accumulate);
+            double e = throughput(threads, stripedMax::accumulate);
+            double f = throughput(threads, i -> histogram.record(i & 0xFFFF));
+            double g = throughput(threads, i -> rate.increment());
+            System.out.printf("%-8d %-12.1f %-12.1f %-16.1f %-18.1f %-16.1f %-12.1f %-12.1f%n", threads,
+                    a / 1e6, b / 1e6, c / 1e6, d / 1e6, e / 1e6, f / 1e6, g / 1e6);
+        }
+
+        System.out.println();
+        System.out.println("结论：");
+        System.out.println("  - StripedCounter 与 LongAdder 同一量级：多一次 ThreadLocal 查找，换来条带数固定、实现简单");
+        System.out.println("  - max 累加器：值递增时每次都要写；一旦到达最大值，后续更新只读不写");
+        System.out.println("  - Histogram / WindowedRate 每次写入仍是一次 CAS，但分散在不同条带，多核下不会互相争抢");
+        System.out.println("  - WindowedRate 每次要读一次 System.nanoTime()，比纯计数慢一些");
+        System.out.println("  - 单核机器上没有缓存行争抢，AtomicLong 反而最快；分段的收益需要多核才能体现");
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        testBasic();
+        testWindowedRate();
+        benchmark();
+    }
+}
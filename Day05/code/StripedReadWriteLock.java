@@ -0,0 +1,253 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * 偏向读者的分段读写锁（per-core reader indicator）
+ *
+ * 问题：
+ * CustomReadWriteLock / ReentrantReadWriteLock 的读锁每次获取、释放都要 CAS 同一个 state，
+ * 读多写少时本该互不干扰的读者却在争抢同一个缓存行，核数越多越明显。
+ *
+ * 思路（与 Linux percpu-rwsem、BRAVO 类似）：
+ * - 读者计数分散到多个条带（stripe），每个线程按 ID 固定落在一个条带上，
+ *   条带之间相隔 128 字节，不同条带的读者不会写同一个缓存行
+ * - 写者用一把 CustomLock 互斥，拿到后设置 writerPresent，再等所有条带的读者计数归零
+ *
+ * 读锁获取（快速路径只有一次原子自增 + 一次 volatile 读）：
+ *   1. 本条带计数 +1
+ *   2. 没有写者 → 成功
+ *   3. 有写者 → 撤销 +1，在写者持有的 CustomLock 上排队（lock 后立即 unlock），醒来后重试
+ *
+ * 写锁获取：
+ *   1. writerMutex.lock()（写写互斥，可重入）
+ *   2. writerPresent = true，此后新来的读者会撤销计数并等待
+ *   3. 等所有条带计数归零（已经进入的读者读完）
+ *
+ * 正确性：读者"先写计数再读 writerPresent"，写者"先写 writerPresent 再读计数"，
+ * 两边都是 volatile 操作，不可能同时都没看到对方（Dekker 式的互相检查）。
+ *
+ * 代价与限制：
+ * - 写锁要扫描全部条带，写越多越不划算，适合 95% 以上是读的场景
+ * - 写锁释放后被挡住的读者会依次经过 writerMutex，短暂串行
+ * - 读锁不记录持有者：持有读锁时获取写锁会死锁（与其他读写锁一样不支持升级）；
+ *   持有写锁时可以获取读锁（降级）
+ * - 不支持 Condition
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+
+    /** 相邻条带间隔 32 个 int = 128 字节，避开相邻缓存行预取 */
+    private static final int STRIDE = 32;
+
+    /** 条带数：CPU 核数的 2 倍向上取 2 的幂，至少 8 */
+    private static final int STRIPES = Math.max(8,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+    /** 写者等待读者退出时，先自旋这么多次再让出 CPU */
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final AtomicIntegerArray readers = new AtomicIntegerArray(STRIPES * STRIDE);
+
+    /** 写写互斥；被挡住的读者也在它上面排队 */
+    private final CustomLock writerMutex = new CustomLock();
+
+    private volatile boolean writerPresent;
+
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /**
+     * 线程 ID 乘以黄金分割常数后取高位，连续的线程 ID 会分散到不同条带
+     */
+    private static int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+        return (hash & (STRIPES - 1)) * STRIDE;
+    }
+
+    /**
+     * 当前被持有的读锁总数（各条带之和，并发修改时只是近似值）
+     */
+    public int getReadLockCount() {
+        int sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += readers.get(i * STRIDE);
+        }
+        return sum;
+    }
+
+    // ==================== 读锁 ====================
+
+    /**
+     * @return true 表示已获取读锁；false 表示有写者，计数已撤销
+     */
+    private boolean tryEnterRead(int index) {
+        readers.getAndIncrement(index);
+        if (!writerPresent) {
+            return true;
+        }
+        // 持有写锁的线程获取读锁（降级）：计数保留，写锁释放后其他写者会等它
+        if (writerMutex.isHeldByCurrentThread()) {
+            return true;
+        }
+        readers.getAndDecrement(index);
+        return false;
+    }
+
+    private class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            int index = stripeIndex();
+            while (!tryEnterRead(index)) {
+                // 在写者持有的互斥锁上排队，写者释放后再重试
+                writerMutex.lock();
+                writerMutex.unlock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            int index = stripeIndex();
+            while (!tryEnterRead(index)) {
+                writerMutex.lockInterruptibly();
+                writerMutex.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            return tryEnterRead(stripeIndex());
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            int index = stripeIndex();
+            while (!tryEnterRead(index)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !writerMutex.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                writerMutex.unlock();
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            int index = stripeIndex();
+            if (readers.getAndDecrement(index) <= 0) {
+                readers.getAndIncrement(index);
+                throw new IllegalMonitorStateException("当前线程未持有读锁，无法释放");
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("StripedReadWriteLock 不支持 Condition");
+        }
+    }
+
+    // ==================== 写锁 ====================
+
+    private class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            writerMutex.lock();
+            if (writerMutex.getHoldCount() == 1) {
+                writerPresent = true;
+                awaitReadersDrained();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            writerMutex.lockInterruptibly();
+            if (writerMutex.getHoldCount() == 1) {
+                writerPresent = true;
+                awaitReadersDrained();
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!writerMutex.tryLock()) {
+                return false;
+            }
+            if (writerMutex.getHoldCount() > 1) {
+                return true;
+            }
+            writerPresent = true;
+            if (getReadLockCount() == 0) {
+                return true;
+            }
+            writerPresent = false;
+            writerMutex.unlock();
+            return false;
+        }
+
+        /**
+         * 超时只作用于等待 writerMutex；拿到之后等待读者退出不设超时（已进入的读者很快会读完）
+         */
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (!writerMutex.tryLock(time, unit)) {
+                return false;
+            }
+            if (writerMutex.getHoldCount() == 1) {
+                writerPresent = true;
+                awaitReadersDrained();
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            if (!writerMutex.isHeldByCurrentThread()) {
+                throw new IllegalMonitorStateException("当前线程未持有写锁，无法释放");
+            }
+            if (writerMutex.getHoldCount() == 1) {
+                writerPresent = false;
+            }
+            writerMutex.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("StripedReadWriteLock 不支持 Condition");
+        }
+    }
+
+    /**
+     * 逐个条带等待计数归零。已扫描过的条带不会再有读者进入：新读者看到 writerPresent 会立即撤销 +1。
+     * 写锁重入时不再调用：降级后自己的读计数还在条带里，不能等自己。
+     */
+    private void awaitReadersDrained() {
+        for (int i = 0; i < STRIPES; i++) {
+            int index = i * STRIDE;
+            int spins = 0;
+            while (readers.get(index) != 0) {
+                if (++spins < SPINS_BEFORE_YIELD) {
+                    Thread.onSpinWait();
+                } else if (spins < SPINS_BEFORE_YIELD * 2) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(10_000);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 无锁栈（Treiber 栈，R. K. Treiber 1986）
+ *
+ * 结构：单向链表，top 指向栈顶，只用一个 AtomicReference 表示整个栈的状态
+ *
+ * push：新建节点 → node.next = top → CAS(top, node)，失败就重读 top 再试
+ * pop： 读 top → 读 top.next → CAS(top, top.next)，失败就重试
+ *
+ * 为什么这里没有 ABA 问题（对比 ABADemo）：
+ * pop 时 CAS 期望的是"节点对象"，每次 push 都新建节点。只要本线程还持有旧节点的引用，
+ * GC 就不会回收它，新节点也不可能与它是同一个对象，所以 top 不可能"变回"旧节点。
+ * 如果节点被复用（对象池），这个前提就不成立了，见 PooledTreiberStack。
+ *
+ * 局限：所有线程都在 CAS 同一个 top，线程越多失败重试越多（CASDemo.casSpinDemo 的自旋），
+ * 高并发下的改进见 EliminationBackoffStack。
+ */
+public class TreiberStack<E> {
+
+    static final class Node<E> {
+        final E item;
+        Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    private final AtomicReference<Node<E>> top = new AtomicReference<>();
+
+    public void push(E item) {
+        if (item == null) {
+            throw new NullPointerException("TreiberStack 不允许 null 元素");
+        }
+        Node<E> node = new Node<>(item);
+        Node<E> oldTop;
+        do {
+            oldTop = top.get();
+            node.next = oldTop;
+        } while (!top.compareAndSet(oldTop, node));
+    }
+
+    /**
+     * @return 栈顶元素，栈为空时返回 null
+     */
+    public E pop() {
+        Node<E> oldTop;
+        do {
+            oldTop = top.get();
+            if (oldTop == null) {
+                return null;
+            }
+        } while (!top.compareAndSet(oldTop, oldTop.next));
+        return oldTop.item;
+    }
+
+    public E peek() {
+        Node<E> t = top.get();
+        return t == null ? null : t.item;
+    }
+
+    public boolean isEmpty() {
+        return top.get() == null;
+    }
+
+    // ==================== 测试 ====================
+
+    /**
+     * 多个线程同时 push / pop 各自的一段数字，最后检查每个数字恰好被弹出一次
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== TreiberStack 并发正确性测试 ==========");
+
+        final int THREADS = 8;
+        final int PER_THREAD = 100_000;
+        TreiberStack<Integer> stack = new TreiberStack<>();
+        AtomicInteger[] seen = new AtomicInteger[THREADS * PER_THREAD];
+        for (int i = 0; i < seen.length; i++) {
+            seen[i] = new AtomicInteger();
+        }
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int base = t * PER_THREAD;
+            threads[t] = new Thread(() -> {
+                // push 与 pop 交替进行，栈一直在被并发修改
+                for (int i = 0; i < PER_THREAD; i++) {
+                    stack.push(base + i);
+                    if ((i & 1) == 1) {
+                        Integer v = stack.pop();
+                        if (v != null) seen[v].incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        // 弹出剩余元素
+        Integer v;
+        while ((v = stack.pop()) != null) {
+            seen[v].incrementAndGet();
+        }
+
+        int lost = 0, duplicated = 0;
+        for (AtomicInteger count : seen) {
+            if (count.get() == 0) lost++;
+            if (count.get() > 1) duplicated++;
+        }
+        System.out.println("push " + seen.length + " 个元素，丢失 " + lost + " 个，重复弹出 " + duplicated + " 个 → "
+                + (lost == 0 && duplicated == 0 ? "✓ 正确" : "✗ 错误"));
+    }
+}
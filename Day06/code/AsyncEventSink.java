@@ -0,0 +1,298 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Day06 - 线程池事件的异步输出（环形缓冲区 + 后台线程）
+ *
+ * 设计要点：
+ * 1. 预分配环形缓冲区 - 每个槽位由几个基本类型数组组成，发布事件时不创建对象
+ * 2. 多生产者 - 提交线程 / Worker 线程通过 CAS 抢占序号，写完字段后发布该槽位
+ * 3. 单消费者 - 后台线程按序号顺序取出事件，交给 delegate（例如 ConsoleEventListener）真正输出
+ * 4. 缓冲区满时丢弃事件并计数，绝不阻塞线程池
+ * 5. delegate 抛出的 RuntimeException 只计数，后台线程继续输出后面的事件
+ *
+ * 与同步输出的区别：
+ * 同步 printf 需要格式化字符串并竞争 PrintStream 的锁；这里热路径上只有一次 CAS 和几次数组写入，
+ * 格式化和 I/O 都挪到了后台线程。
+ */
+public class AsyncEventSink implements SimpleThreadPool.PoolEventListener, AutoCloseable {
+
+    // ==================== 事件类型 ====================
+
+    private static final int POOL_CREATED = 1;
+    private static final int TASK_QUEUED = 2;
+    private static final int TASK_HANDED_TO_NEW_WORKER = 3;
+    private static final int TASK_REJECTED = 4;
+    private static final int TASK_RUN_BY_CALLER = 5;
+    private static final int WORKER_STARTED = 6;
+    private static final int BEFORE_EXECUTE = 7;
+    private static final int AFTER_EXECUTE = 8;
+    private static final int WORKER_INTERRUPTED = 9;
+    private static final int WORKER_EXITED = 10;
+    private static final int POOL_RESIZED = 11;
+    private static final int POOL_SHUTDOWN = 12;
+    private static final int POOL_TERMINATED = 13;
+
+    /** 关闭后后台线程把 claimed 设为该值，之后的生产者都会被判定为缓冲区满 */
+    private static final long CLOSED_SEQUENCE = Long.MAX_VALUE;
+
+    /** 没有事件时后台线程 park 的时间 */
+    private static final long DRAIN_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // ==================== 环形缓冲区 ====================
+
+    private final int capacity;
+    private final int mask;
+
+    /** published[i] == seq + 1 表示序号 seq 的事件已写完，可以被消费 */
+    private final AtomicLongArray published;
+
+    private final int[] types;
+    private final String[] names;
+    private final Object[] refs;
+    private final long[] args1;
+    private final long[] args2;
+    private final long[] args3;
+
+    /** 下一个要分配的序号（生产者 CAS 抢占） */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /** 下一个要消费的序号（只有后台线程写） */
+    private volatile long consumed;
+
+    /** 因缓冲区满被丢弃的事件数 */
+    private final LongAdder dropped = new LongAdder();
+
+    /** delegate 抛出异常的事件数（只由后台线程写） */
+    private volatile long failed;
+
+    private final SimpleThreadPool.PoolEventListener delegate;
+    private final Thread drainer;
+    private volatile boolean closed;
+
+    /**
+     * @param delegate 后台线程实际调用的监听器
+     * @param capacity 缓冲区容量（向上取整为 2 的幂）
+     */
+    public AsyncEventSink(SimpleThreadPool.PoolEventListener delegate, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = this.capacity - 1;
+        this.published = new AtomicLongArray(this.capacity);
+        this.types = new int[this.capacity];
+        this.names = new String[this.capacity];
+        this.refs = new Object[this.capacity];
+        this.args1 = new long[this.capacity];
+        this.args2 = new long[this.capacity];
+        this.args3 = new long[this.capacity];
+        this.delegate = delegate;
+
+        this.drainer = new Thread(this::drainLoop, "SimplePool-event-drainer");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    public AsyncEventSink(SimpleThreadPool.PoolEventListener delegate) {
+        this(delegate, 1 << 14);
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long failedCount() {
+        return failed;
+    }
+
+    /**
+     * 停止接收事件，等待后台线程输出完缓冲区中剩余的事件
+     *
+     * 等待期间被中断时不再等待（后台线程仍会输出完剩余事件），恢复中断标志后返回
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== 生产者（热路径） ====================
+
+    private void publish(int type, String name, Object ref, long a1, long a2, long a3) {
+        if (closed) {
+            dropped.increment();
+            return;
+        }
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int i = (int) seq & mask;
+        types[i] = type;
+        names[i] = name;
+        refs[i] = ref;
+        args1[i] = a1;
+        args2[i] = a2;
+        args3[i] = a3;
+        // volatile 写：之前的普通写对读到该序号的消费者可见
+        published.set(i, seq + 1);
+    }
+
+    @Override
+    public void poolCreated(int corePoolSize, int maximumPoolSize, int queueCapacity, SimpleThreadPool.Mode mode) {
+        publish(POOL_CREATED, null, mode, corePoolSize, maximumPoolSize, queueCapacity);
+    }
+
+    @Override
+    public void taskQueued(int taskNo, int queueSize) {
+        publish(TASK_QUEUED, null, null, taskNo, queueSize, 0);
+    }
+
+    @Override
+    public void taskHandedToNewWorker(int taskNo, int poolSize, boolean core) {
+        publish(TASK_HANDED_TO_NEW_WORKER, null, null, taskNo, poolSize, core ? 1 : 0);
+    }
+
+    @Override
+    public void taskRejected(int queueSize, int poolSize) {
+        publish(TASK_REJECTED, null, null, queueSize, poolSize, 0);
+    }
+
+    @Override
+    public void taskRunByCaller(String threadName) {
+        publish(TASK_RUN_BY_CALLER, threadName, null, 0, 0, 0);
+    }
+
+    @Override
+    public void workerStarted(String workerName) {
+        publish(WORKER_STARTED, workerName, null, 0, 0, 0);
+    }
+
+    @Override
+    public void beforeExecute(String workerName) {
+        publish(BEFORE_EXECUTE, workerName, null, 0, 0, 0);
+    }
+
+    @Override
+    public void afterExecute(String workerName, Throwable error) {
+        publish(AFTER_EXECUTE, workerName, error, 0, 0, 0);
+    }
+
+    @Override
+    public void workerInterrupted(String workerName) {
+        publish(WORKER_INTERRUPTED, workerName, null, 0, 0, 0);
+    }
+
+    @Override
+    public void workerExited(String workerName, boolean reaped) {
+        publish(WORKER_EXITED, workerName, null, reaped ? 1 : 0, 0, 0);
+    }
+
+    @Override
+    public void poolResized(int corePoolSize, int maximumPoolSize) {
+        publish(POOL_RESIZED, null, null, corePoolSize, maximumPoolSize, 0);
+    }
+
+    @Override
+    public void poolShutdown(boolean now) {
+        publish(POOL_SHUTDOWN, null, null, now ? 1 : 0, 0, 0);
+    }
+
+    @Override
+    public void poolTerminated(int remainingWorkers) {
+        publish(POOL_TERMINATED, null, null, remainingWorkers, 0, 0);
+    }
+
+    // ==================== 消费者（后台线程） ====================
+
+    private void drainLoop() {
+        while (true) {
+            long seq = consumed;
+            int i = (int) seq & mask;
+            if (published.get(i) == seq + 1) {
+                try {
+                    dispatch(i);
+                } catch (RuntimeException e) {
+                    // 一个监听器异常不能让后台线程退出，否则之后的事件全部堆积、被丢弃
+                    failed++;
+                }
+                names[i] = null; // 释放引用，避免缓冲区长期持有异常对象
+                refs[i] = null;
+                consumed = seq + 1;
+            } else if (closed && claimed.compareAndSet(seq, CLOSED_SEQUENCE)) {
+                // 生产者检查 closed 之后、抢占序号之前可能正好关闭：用 CAS 封住序号再退出，
+                // 之后的抢占都会失败并计入 dropped；CAS 失败说明有生产者刚抢到序号，继续等它发布
+                return;
+            } else {
+                LockSupport.parkNanos(this, DRAIN_PARK_NANOS);
+            }
+        }
+    }
+
+    private void dispatch(int i) {
+        String name = names[i];
+        long a1 = args1[i];
+        long a2 = args2[i];
+        switch (types[i]) {
+            case POOL_CREATED:
+                delegate.poolCreated((int) a1, (int) a2, (int) args3[i], (SimpleThreadPool.Mode) refs[i]);
+                break;
+            case TASK_QUEUED:
+                delegate.taskQueued((int) a1, (int) a2);
+                break;
+            case TASK_HANDED_TO_NEW_WORKER:
+                delegate.taskHandedToNewWorker((int) a1, (int) a2, args3[i] == 1);
+                break;
+            case TASK_REJECTED:
+                delegate.taskRejected((int) a1, (int) a2);
+                break;
+            case TASK_RUN_BY_CALLER:
+                delegate.taskRunByCaller(name);
+                break;
+            case WORKER_STARTED:
+                delegate.workerStarted(name);
+                break;
+            case BEFORE_EXECUTE:
+                delegate.beforeExecute(name);
+                break;
+            case AFTER_EXECUTE:
+                delegate.afterExecute(name, (Throwable) refs[i]);
+                break;
+            case WORKER_INTERRUPTED:
+                delegate.workerInterrupted(name);
+                break;
+            case WORKER_EXITED:
+                delegate.workerExited(name, a1 == 1);
+                break;
+            case POOL_RESIZED:
+                delegate.poolResized((int) a1, (int) a2);
+                break;
+            case POOL_SHUTDOWN:
+                delegate.poolShutdown(a1 == 1);
+                break;
+            case POOL_TERMINATED:
+                delegate.poolTerminated((int) a1);
+                break;
+            default:
+                throw new IllegalStateException("未知事件类型: " + types[i]);
+        }
+    }
+}
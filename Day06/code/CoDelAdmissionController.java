@@ -0,0 +1,244 @@
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Day06 - 基于排队时间的自适应准入控制（CoDel 思想）
+ *
+ * 问题：LoggingRejectPolicy / RetryRejectPolicy 这类拒绝策略只在队列完全满时才起作用，
+ * 而那时队列里的任务早已排了很久，延迟已经失控。
+ *
+ * 思路（参考 CoDel, Controlled Delay）：
+ * 1. 包装提交的任务，记录入队时间；任务开始执行时（出队）得到排队时间 sojourn
+ * 2. 如果在一个完整的 interval 内，所有出队任务的排队时间都超过 target
+ *    （即这段时间内的最小排队时间 > target），说明队列形成了"坏队列"，进入过载状态
+ *    —— 用最小值而不是平均值，可以忽略突发流量造成的短暂排队
+ * 3. 过载状态下新提交的任务按 OverloadAction 处理：
+ *    - SHED：直接拒绝（抛出 RejectedExecutionException），快速失败
+ *    - CALLER_RUNS：由提交线程自己执行，拖慢提交方（反压）
+ * 4. 一旦有任务的排队时间低于 target，立即退出过载状态
+ *
+ * 包装的是 Executor，因此 SimpleThreadPool 和 ThreadPoolExecutor 都可以使用。
+ */
+public class CoDelAdmissionController implements Executor {
+
+    enum OverloadAction {
+        SHED, CALLER_RUNS
+    }
+
+    private final Executor delegate;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final OverloadAction overloadAction;
+
+    /** 排队时间首次超过 target 后，interval 到期的时刻；0 表示当前排队时间正常 */
+    private final AtomicLong firstAboveTime = new AtomicLong();
+
+    /** 是否处于过载状态 */
+    private volatile boolean overloaded;
+
+    /** 最近一次任务出队的时间（过载时长时间没有出队，说明队列已空，放行一个探测任务） */
+    private volatile long lastDequeueNanos = System.nanoTime();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder overloadEntered = new LongAdder();
+
+    /**
+     * @param delegate 实际执行任务的线程池
+     * @param target 可接受的排队时间
+     * @param interval 排队时间持续超过 target 多久才进入过载状态
+     */
+    public CoDelAdmissionController(Executor delegate, long target, long interval, TimeUnit unit,
+                                    OverloadAction overloadAction) {
+        if (target <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("target 和 interval 必须大于 0");
+        }
+        this.delegate = delegate;
+        this.targetNanos = unit.toNanos(target);
+        this.intervalNanos = unit.toNanos(interval);
+        this.overloadAction = overloadAction;
+    }
+
+    /**
+     * 默认参数：target 5ms，interval 100ms（CoDel 论文推荐值）
+     */
+    public CoDelAdmissionController(Executor delegate, OverloadAction overloadAction) {
+        this(delegate, 5, 100, TimeUnit.MILLISECONDS, overloadAction);
+    }
+
+    // ==================== 准入 ====================
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        if (isOverloaded()) {
+            if (overloadAction == OverloadAction.SHED) {
+                shed.increment();
+                throw new RejectedExecutionException("[CoDel] 排队时间持续超过 "
+                        + TimeUnit.NANOSECONDS.toMillis(targetNanos) + "ms，拒绝新任务");
+            }
+            callerRuns.increment();
+            task.run();
+            return;
+        }
+        admitted.increment();
+        long enqueueNanos = System.nanoTime();
+        delegate.execute(() -> {
+            onDequeue(System.nanoTime() - enqueueNanos);
+            task.run();
+        });
+    }
+
+    private boolean isOverloaded() {
+        if (!overloaded) {
+            return false;
+        }
+        // 过载时如果一个 interval 内都没有任务出队，说明队列已经空了（或线程池卡住），放行探测
+        return System.nanoTime() - lastDequeueNanos < intervalNanos;
+    }
+
+    // ==================== 排队时间跟踪 ====================
+
+    /**
+     * 任务出队（开始执行）时调用，更新过载状态
+     */
+    private void onDequeue(long sojournNanos) {
+        long now = System.nanoTime();
+        lastDequeueNanos = now;
+        if (sojournNanos < targetNanos) {
+            // 只要有一个任务排队时间正常，就说明队列能在 target 内排空
+            firstAboveTime.set(0);
+            overloaded = false;
+            return;
+        }
+        long first = firstAboveTime.get();
+        if (first == 0) {
+            firstAboveTime.compareAndSet(0, now + intervalNanos);
+        } else if (now - first >= 0 && !overloaded) {
+            // 整个 interval 内排队时间都高于 target
+            overloaded = true;
+            overloadEntered.increment();
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    public boolean overloaded() {
+        return overloaded;
+    }
+
+    public String getStatus() {
+        return String.format("接纳=%d, 拒绝=%d, 调用者执行=%d, 进入过载=%d 次",
+                admitted.sum(), shed.sum(), callerRuns.sum(), overloadEntered.sum());
+    }
+
+    // ==================== 基准：过载下的 p99 延迟 ====================
+
+    public static void main(String[] args) throws InterruptedException {
+        final int THREADS = 4;
+        final long WORK_MILLIS = 2;
+        final int ARRIVALS_PER_SEC = 4_000;
+        final int DURATION_SECONDS = 3;
+        System.out.println("========== CoDel 准入控制：过载下的延迟 ==========\n");
+        System.out.printf("%d 个线程，每个任务 %dms（处理能力约 %,d 个/秒），到达速率 %,d 个/秒，持续 %d 秒（2 倍过载）%n",
+                THREADS, WORK_MILLIS, THREADS * 1000 / WORK_MILLIS, ARRIVALS_PER_SEC, DURATION_SECONDS);
+        System.out.println("延迟 = 任务完成时间 - 计划到达时间（包含提交方被阻塞的时间）\n");
+        System.out.printf("%-34s %-8s %-8s %-10s %-10s %-10s%n", "配置", "完成", "拒绝", "p50 ms", "p99 ms", "max ms");
+
+        SimpleThreadPool plain = newPool(THREADS);
+        runOverload("SimpleThreadPool（队列 10000）", plain, plain, ARRIVALS_PER_SEC, DURATION_SECONDS, WORK_MILLIS);
+
+        SimpleThreadPool shedPool = newPool(THREADS);
+        CoDelAdmissionController shed = new CoDelAdmissionController(shedPool, OverloadAction.SHED);
+        runOverload("+ CoDel SHED", shed, shedPool, ARRIVALS_PER_SEC, DURATION_SECONDS, WORK_MILLIS);
+        System.out.printf("  %s%n", shed.getStatus());
+
+        SimpleThreadPool callerRunsPool = newPool(THREADS);
+        CoDelAdmissionController callerRuns = new CoDelAdmissionController(callerRunsPool, OverloadAction.CALLER_RUNS);
+        runOverload("+ CoDel CALLER_RUNS", callerRuns, callerRunsPool, ARRIVALS_PER_SEC, DURATION_SECONDS, WORK_MILLIS);
+        System.out.printf("  %s%n", callerRuns.getStatus());
+
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(10_000));
+        CoDelAdmissionController tpeShed = new CoDelAdmissionController(tpe, OverloadAction.SHED);
+        runOverload("ThreadPoolExecutor + CoDel SHED", tpeShed, null, ARRIVALS_PER_SEC, DURATION_SECONDS, WORK_MILLIS);
+        tpe.shutdown();
+        tpe.awaitTermination(30, TimeUnit.SECONDS);
+        System.out.printf("  %s%n", tpeShed.getStatus());
+
+        System.out.println("\n→ 不做准入控制时排队延迟随时间线性增长；CoDel SHED 在排队时间持续超过 5ms 后快速拒绝，p99 被限制住");
+        System.out.println("→ CALLER_RUNS 只是把排队转移给提交方：开环负载下提交方落后于计划，延迟仍然很高，"
+                + "它更适合能被减速的闭环调用方");
+        System.out.println("========== 基准完成 ==========");
+    }
+
+    static SimpleThreadPool newPool(int threads) {
+        return new SimpleThreadPool(threads, threads, 60, TimeUnit.SECONDS, 10_000,
+                new SimpleThreadPool.AbortRejectPolicy(), SimpleThreadPool.Mode.SHARED_QUEUE);
+    }
+
+    /**
+     * 开环负载：按固定间隔计划到达时间提交任务，延迟从计划到达时间算起，避免协调遗漏（coordinated omission）
+     *
+     * @param pool 需要在结束时关闭的 SimpleThreadPool，可以为 null
+     */
+    static void runOverload(String label, Executor executor, SimpleThreadPool pool, int arrivalsPerSec,
+                            int seconds, long workMillis) throws InterruptedException {
+        int total = arrivalsPerSec * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / arrivalsPerSec;
+        long[] latencies = new long[total];
+        Arrays.fill(latencies, -1);
+        LongAdder finished = new LongAdder();
+        int rejected = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = start + i * intervalNanos;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final int id = i;
+            try {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(workMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    latencies[id] = System.nanoTime() - scheduled;
+                    finished.increment();
+                });
+            } catch (RuntimeException e) {
+                // RejectedExecutionException（CoDel / TPE）或 SimpleThreadPool 的 AbortRejectPolicy
+                rejected++;
+                finished.increment();
+            }
+        }
+        while (finished.sum() < total) {
+            Thread.sleep(10);
+        }
+        if (pool != null) {
+            pool.shutdown();
+            pool.awaitTermination(5000);
+        }
+
+        long[] done = Arrays.stream(latencies).filter(l -> l >= 0).sorted().toArray();
+        if (done.length == 0) {
+            System.out.printf("%-34s %-8d %-8d%n", label, 0, rejected);
+            return;
+        }
+        System.out.printf("%-34s %-8d %-8d %-10.1f %-10.1f %-10.1f%n", label, done.length, rejected,
+                done[done.length / 2] / 1e6, done[(int) (done.length * 0.99)] / 1e6, done[done.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,563 @@
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Day06 - 优先级 + 截止时间感知的任务队列（可作为 SimpleThreadPool 的任务队列）
+ *
+ * 出队顺序：
+ * 1. 优先级高的先出队（HIGH > NORMAL > LOW）
+ * 2. 同一优先级内按截止时间最早优先（EDF, Earliest Deadline First），没有截止时间的排在最后
+ * 3. 截止时间相同时按入队顺序（FIFO）
+ *
+ * 过期处理：出队时如果任务的截止时间已过（结果已经没人要了），按 ExpiryPolicy：
+ * - DROP：直接丢弃，不占用 Worker；被包装的任务是 Future（TaskFuture、FutureTask 等）时先 cancel(false)，
+ *   否则调用方会在 get() 上永远等待。cancel 在队列锁内调用，Future 的完成回调（如 FutureTask.done）不应阻塞
+ * - DEMOTE：降为 LOW 优先级并去掉截止时间，重新入队（仍会执行，但不再插队）
+ *
+ * 统计：按优先级记录排队等待时间（入队 → 出队）的次数、平均值、最大值，以及过期丢弃/降级次数
+ *（降级的任务最终出队时计入 LOW）
+ *
+ * 普通 Runnable（不是 DeadlineTask）按 NORMAL 优先级、无截止时间处理；队列内部为它创建包装，
+ * 但出队、drainTo（shutdownNow 的返回值）、迭代器拿到的仍是原来的 Runnable，remove 也按原来的对象匹配。
+ * 实现上用一把 ReentrantLock 保护 PriorityQueue（与 PriorityBlockingQueue 相同），另加容量上限，
+ * 队列满时 offer 返回 false，线程池照常扩容或触发拒绝策略。
+ */
+public class DeadlineTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    // ==================== 优先级与任务 ====================
+
+    enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    enum ExpiryPolicy {
+        DROP, DEMOTE
+    }
+
+    /** 没有截止时间 */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * 带优先级和截止时间的任务
+     */
+    static final class DeadlineTask implements Runnable {
+        final Runnable task;
+        final String name;
+        Priority priority;
+        long deadlineNanos;
+
+        /** 入队时间与序号，由队列在入队时填写 */
+        long enqueueNanos;
+        long seq;
+
+        /** 由队列为普通 Runnable 创建的包装，出队时交还原来的 Runnable */
+        boolean implicit;
+
+        DeadlineTask(Runnable task, String name, Priority priority, long deadlineNanos) {
+            this.task = task;
+            this.name = name;
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @param timeoutMillis 从现在起的相对截止时间（毫秒）
+         */
+        static DeadlineTask of(String name, Priority priority, long timeoutMillis, Runnable task) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            return new DeadlineTask(task, name, priority, deadline);
+        }
+
+        static DeadlineTask of(String name, Priority priority, Runnable task) {
+            return new DeadlineTask(task, name, priority, NO_DEADLINE);
+        }
+
+        boolean hasDeadline() {
+            return deadlineNanos != NO_DEADLINE;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + priority + ")";
+        }
+    }
+
+    /**
+     * 优先级 → 截止时间 → 入队顺序
+     * 截止时间用差值比较（与 nanoTime 的比较方式一致），NO_DEADLINE 单独处理
+     */
+    private static int compare(DeadlineTask a, DeadlineTask b) {
+        int byPriority = a.priority.compareTo(b.priority);
+        if (byPriority != 0) {
+            return byPriority;
+        }
+        if (a.deadlineNanos != b.deadlineNanos) {
+            if (!a.hasDeadline()) return 1;
+            if (!b.hasDeadline()) return -1;
+            return a.deadlineNanos - b.deadlineNanos < 0 ? -1 : 1;
+        }
+        return Long.compare(a.seq, b.seq);
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 单个优先级的排队等待统计
+     */
+    static final class WaitStats {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+        final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder expired = new LongAdder();
+
+        void record(long waitNanos) {
+            count.increment();
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulate(waitNanos);
+        }
+
+        double averageWaitMillis() {
+            long n = count.sum();
+            return n == 0 ? 0.0 : totalWaitNanos.sum() / 1e6 / n;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("出队=%d, 平均等待=%.1fms, 最大等待=%.1fms, 过期=%d",
+                    count.sum(), averageWaitMillis(), maxWaitNanos.get() / 1e6, expired.sum());
+        }
+    }
+
+    // ==================== 队列字段 ====================
+
+    private final int capacity;
+    private final ExpiryPolicy expiryPolicy;
+    private final PriorityQueue<DeadlineTask> heap = new PriorityQueue<>(DeadlineTaskQueue::compare);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicLong sequence = new AtomicLong();
+    private final WaitStats[] stats = new WaitStats[Priority.values().length];
+
+    /**
+     * @param capacity 队列容量
+     * @param expiryPolicy 出队时发现已过期的任务如何处理
+     */
+    public DeadlineTaskQueue(int capacity, ExpiryPolicy expiryPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        this.capacity = capacity;
+        this.expiryPolicy = expiryPolicy;
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new WaitStats();
+        }
+    }
+
+    public WaitStats stats(Priority priority) {
+        return stats[priority.ordinal()];
+    }
+
+    // ==================== 入队 ====================
+
+    @Override
+    public boolean offer(Runnable task) {
+        DeadlineTask deadlineTask = wrap(task);
+        lock.lock();
+        try {
+            if (heap.size() >= capacity) {
+                return false;
+            }
+            enqueue(deadlineTask);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        DeadlineTask deadlineTask = wrap(task);
+        lock.lockInterruptibly();
+        try {
+            while (heap.size() >= capacity) {
+                notFull.await();
+            }
+            enqueue(deadlineTask);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        DeadlineTask deadlineTask = wrap(task);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (heap.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(deadlineTask);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static DeadlineTask wrap(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (task instanceof DeadlineTask) {
+            return (DeadlineTask) task;
+        }
+        DeadlineTask wrapper = new DeadlineTask(task, "task", Priority.NORMAL, NO_DEADLINE);
+        wrapper.implicit = true;
+        return wrapper;
+    }
+
+    /**
+     * 队列外看到的元素始终是调用方放入的对象：普通 Runnable 的包装在这里拆掉
+     */
+    private static Runnable unwrap(DeadlineTask task) {
+        return task.implicit ? task.task : task;
+    }
+
+    /** 调用方持有锁 */
+    private void enqueue(DeadlineTask task) {
+        task.enqueueNanos = System.nanoTime();
+        task.seq = sequence.getAndIncrement();
+        heap.offer(task);
+        notEmpty.signal();
+    }
+
+    // ==================== 出队 ====================
+
+    /**
+     * 取出下一个可执行的任务：过期任务按 ExpiryPolicy 丢弃或降级后继续找。调用方持有锁
+     */
+    private Runnable dequeue() {
+        DeadlineTask task;
+        while ((task = heap.poll()) != null) {
+            long now = System.nanoTime();
+            WaitStats waitStats = stats[task.priority.ordinal()];
+            if (task.hasDeadline() && now - task.deadlineNanos > 0) {
+                waitStats.expired.increment();
+                if (expiryPolicy == ExpiryPolicy.DEMOTE) {
+                    // 降级后重新排队，不再有截止时间，因此不会再次过期
+                    task.priority = Priority.LOW;
+                    task.deadlineNanos = NO_DEADLINE;
+                    task.seq = sequence.getAndIncrement();
+                    heap.offer(task);
+                } else {
+                    if (task.task instanceof Future) {
+                        // 结果已经没人要了，但等待结果的调用方必须被唤醒
+                        ((Future<?>) task.task).cancel(false);
+                    }
+                    notFull.signal();
+                }
+                continue;
+            }
+            waitStats.record(now - task.enqueueNanos);
+            notFull.signal();
+            return unwrap(task);
+        }
+        return null;
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Runnable task;
+            while ((task = dequeue()) == null) {
+                notEmpty.await();
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            Runnable task;
+            while ((task = dequeue()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            DeadlineTask task = heap.peek();
+            return task == null ? null : unwrap(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== 其他方法 ====================
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return heap.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 按元素删除（线程池关闭时撤回刚入队的任务）；迭代器是快照，不能用来删除
+     *
+     * 堆中存放的是 DeadlineTask 包装，o 可能是包装本身，也可能是被包装的普通 Runnable，
+     * 所以不能直接用 heap.remove(o)（按 equals 比较，永远匹配不到原来的 Runnable）
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (Iterator<DeadlineTask> it = heap.iterator(); it.hasNext(); ) {
+                DeadlineTask t = it.next();
+                if (t == o || t.task == o) {
+                    it.remove();
+                    notFull.signal();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            DeadlineTask task;
+            while (n < maxElements && (task = heap.poll()) != null) {
+                c.add(unwrap(task));
+                n++;
+            }
+            notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 返回快照的迭代器（不按出队顺序）
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> snapshot = new ArrayList<>(heap.size());
+            for (DeadlineTask task : heap) {
+                snapshot.add(unwrap(task));
+            }
+            return snapshot.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== 演示：交互请求 + 批处理混合负载 ====================
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== 混合负载：交互请求 + 报表 + 批处理 ==========\n");
+        System.out.println("2 个 Worker，依次提交：");
+        System.out.println("  - 300 个批处理任务（LOW，无截止时间，每个 5ms）");
+        System.out.println("  - 40 个报表任务（NORMAL，截止 100ms，每个 10ms）—— 来不及全部完成");
+        System.out.println("  - 50 个交互请求（HIGH，截止 50ms，每个 1ms），每 10ms 到达一个\n");
+
+        System.out.println("--- FIFO：ArrayBlockingQueue ---");
+        runMixedWorkload(new ArrayBlockingQueue<>(1000), null);
+
+        System.out.println("\n--- DeadlineTaskQueue（过期丢弃） ---");
+        DeadlineTaskQueue dropQueue = new DeadlineTaskQueue(1000, ExpiryPolicy.DROP);
+        runMixedWorkload(dropQueue, dropQueue);
+
+        System.out.println("\n--- DeadlineTaskQueue（过期降级） ---");
+        DeadlineTaskQueue demoteQueue = new DeadlineTaskQueue(1000, ExpiryPolicy.DEMOTE);
+        runMixedWorkload(demoteQueue, demoteQueue);
+
+        System.out.println("\n--- 普通 Runnable 的撤回与 drainTo ---");
+        testPlainRunnable();
+
+        System.out.println("\n--- 过期丢弃的 Future ---");
+        testDroppedFuture();
+
+        System.out.println("\n========== 演示完成 ==========");
+    }
+
+    /**
+     * 普通 Runnable 在队列内部被包装，remove 和 drainTo 仍然按调用方放入的对象工作
+     */
+    static void testPlainRunnable() {
+        DeadlineTaskQueue queue = new DeadlineTaskQueue(10, ExpiryPolicy.DROP);
+        Runnable a = () -> { };
+        Runnable b = () -> { };
+        DeadlineTask c = DeadlineTask.of("c", Priority.HIGH, () -> { });
+        queue.offer(a);
+        queue.offer(b);
+        queue.offer(c);
+        boolean removed = queue.remove(a);
+        List<Runnable> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        boolean ok = removed && drained.size() == 2 && drained.get(0) == c && drained.get(1) == b;
+        System.out.printf("  remove(普通 Runnable)=%s，drainTo 返回 %d 个原始对象  %s%n",
+                removed, drained.size(), ok ? "✓" : "✗");
+    }
+
+    /**
+     * DROP 策略丢弃过期任务时取消被包装的 Future，get() 不会永远等待
+     */
+    static void testDroppedFuture() throws InterruptedException {
+        DeadlineTaskQueue queue = new DeadlineTaskQueue(10, ExpiryPolicy.DROP);
+        FutureTask<String> future = new FutureTask<>(() -> "done");
+        queue.offer(DeadlineTask.of("expired", Priority.HIGH, 1, future));
+        Thread.sleep(5);
+        Runnable polled = queue.poll();
+        System.out.printf("  出队=%s，Future 已取消=%s  %s%n", polled, future.isCancelled(),
+                polled == null && future.isCancelled() ? "✓" : "✗");
+    }
+
+    /**
+     * 一类请求的执行结果（在任务内部测量提交 → 开始执行的延迟，与队列实现无关）
+     */
+    static final class RequestStats {
+        final String name;
+        final int submitted;
+        final LongAdder executed = new LongAdder();
+        final LongAdder late = new LongAdder();
+        final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+
+        RequestStats(String name, int submitted) {
+            this.name = name;
+            this.submitted = submitted;
+        }
+
+        Runnable wrap(long timeoutMillis, long workMillis) {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                long latency = System.nanoTime() - submittedAt;
+                maxLatency.accumulate(latency);
+                if (latency > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+                    late.increment();
+                }
+                sleepMillis(workMillis);
+                executed.increment();
+            };
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: 执行=%d/%d, 超过截止时间才开始=%d, 最长等待=%.1fms",
+                    name, executed.sum(), submitted, late.sum(), maxLatency.get() / 1e6);
+        }
+    }
+
+    static void runMixedWorkload(BlockingQueue<Runnable> queue, DeadlineTaskQueue deadlineQueue)
+            throws InterruptedException {
+        SimpleThreadPool pool = new SimpleThreadPool(2, 2, 60, TimeUnit.SECONDS, queue,
+                new SimpleThreadPool.AbortRejectPolicy(), SimpleThreadPool.PoolEventListener.NO_OP);
+        RequestStats batch = new RequestStats("批处理", 300);
+        RequestStats report = new RequestStats("报表", 40);
+        RequestStats interactive = new RequestStats("交互", 50);
+
+        for (int i = 0; i < batch.submitted; i++) {
+            pool.execute(DeadlineTask.of("batch-" + i, Priority.LOW, batch.wrap(Long.MAX_VALUE, 5)));
+        }
+        for (int i = 0; i < report.submitted; i++) {
+            pool.execute(DeadlineTask.of("report-" + i, Priority.NORMAL, 100, report.wrap(100, 10)));
+        }
+        for (int i = 0; i < interactive.submitted; i++) {
+            pool.execute(DeadlineTask.of("interactive-" + i, Priority.HIGH, 50, interactive.wrap(50, 1)));
+            sleepMillis(10);
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(30_000);
+        System.out.printf("  %s%n  %s%n  %s%n", interactive, report, batch);
+        if (deadlineQueue != null) {
+            System.out.println("  队列统计（入队 → 出队）：");
+            for (Priority priority : Priority.values()) {
+                System.out.printf("    [%s] %s%n", priority, deadlineQueue.stats(priority));
+            }
+        }
+    }
+
+    static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,404 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Day06 - 带运行时指标的 Executor 包装器
+ *
+ * ThreadPoolDemo.printPoolStatus 和 SimpleThreadPool.getStatus 只能看到某一时刻的线程数和队列长度，
+ * 看不到"任务排队了多久、执行了多久"。这里在提交和执行时各打一次时间戳：
+ * - 排队时间：提交 → 开始执行，记录到 queueWait 直方图
+ * - 执行时间：开始执行 → 执行结束，记录到 execution 直方图
+ * - 计数器：已提交 / 执行中 / 已完成 / 失败 / 被拒绝
+ *
+ * 低开销设计：
+ * - 计数器使用 LongAdder，直方图使用无锁的 LatencyHistogram，热路径上没有锁
+ * - 计时的任务额外 3 次 System.nanoTime()、2 次直方图记录；在 nanoTime 较慢的机器（虚拟机常见 20~40ns）上
+ *   这是主要开销，因此支持随机采样：每个任务以 1/sampleInterval 的概率计时，计数器仍然精确
+ *   （用 ThreadLocalRandom 而不是共享的提交序号，多个提交线程之间不争抢同一个计数器）
+ * - 导出器按周期 snapshotAndReset，输出的是这一周期内的分布，而不是从启动开始的累计值
+ *
+ * 包装的是 Executor，SimpleThreadPool 和 ThreadPoolExecutor 都可以使用。
+ */
+public class InstrumentedExecutor implements Executor, AutoCloseable {
+
+    private final Executor delegate;
+    private final String name;
+
+    /** 采样掩码：随机数 & sampleMask == 0 的任务才计时，概率 1/(sampleMask + 1) */
+    private final int sampleMask;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram execution = new LatencyHistogram();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder active = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private ScheduledExecutorService exporter;
+
+    /**
+     * @param sampleInterval 平均每多少个任务随机抽一个计时（向上取整为 2 的幂），1 表示每个任务都计时
+     */
+    public InstrumentedExecutor(String name, Executor delegate, int sampleInterval) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sampleInterval 必须大于 0");
+        }
+        this.name = name;
+        this.delegate = delegate;
+        int size = 1;
+        while (size < sampleInterval) {
+            size <<= 1;
+        }
+        this.sampleMask = size - 1;
+    }
+
+    public InstrumentedExecutor(String name, Executor delegate) {
+        this(name, delegate, 1);
+    }
+
+    // ==================== 提交（热路径） ====================
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        submitted.increment();
+        boolean timed = (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+        InstrumentedTask wrapper = new InstrumentedTask(task, timed ? System.nanoTime() : 0, timed);
+        try {
+            delegate.execute(wrapper);
+        } catch (RuntimeException e) {
+            // 拒绝策略抛出的异常（RejectedExecutionException 或 SimpleThreadPool 的 RuntimeException）；
+            // 线程池在调用线程上直接执行任务（CallerRuns、直接执行的 Executor）时，任务自己的异常也会从这里抛出，
+            // 它已经计入 failed，不能再算作被拒绝
+            if (!wrapper.started) {
+                rejected.increment();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 交给被包装线程池的任务；started 用来区分"被拒绝"和"在调用线程上执行时任务自己抛出异常"
+     */
+    private final class InstrumentedTask implements Runnable {
+        private final Runnable task;
+        private final long submitNanos;
+        private final boolean timed;
+
+        /** 只在 execute 的调用线程上直接执行时才需要读取，普通字段即可 */
+        boolean started;
+
+        InstrumentedTask(Runnable task, long submitNanos, boolean timed) {
+            this.task = task;
+            this.submitNanos = submitNanos;
+            this.timed = timed;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            if (timed) {
+                runTimed(task, submitNanos);
+            } else {
+                runCounted(task);
+            }
+        }
+    }
+
+    private void runTimed(Runnable task, long submitNanos) {
+        long start = System.nanoTime();
+        queueWait.record(start - submitNanos);
+        active.increment();
+        try {
+            task.run();
+            completed.increment();
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            throw e;
+        } finally {
+            active.decrement();
+            execution.record(System.nanoTime() - start);
+        }
+    }
+
+    private void runCounted(Runnable task) {
+        active.increment();
+        try {
+            task.run();
+            completed.increment();
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            throw e;
+        } finally {
+            active.decrement();
+        }
+    }
+
+    // ==================== 快照与导出 ====================
+
+    /**
+     * 某一时间段的指标快照
+     */
+    static final class Snapshot {
+        final String name;
+        final long submitted;
+        final long active;
+        final long completed;
+        final long failed;
+        final long rejected;
+        final LatencyHistogram.Snapshot queueWait;
+        final LatencyHistogram.Snapshot execution;
+
+        Snapshot(String name, long submitted, long active, long completed, long failed, long rejected,
+                 LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution) {
+            this.name = name;
+            this.submitted = submitted;
+            this.active = active;
+            this.completed = completed;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.queueWait = queueWait;
+            this.execution = execution;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] 已提交=%d, 执行中=%d, 已完成=%d, 失败=%d, 拒绝=%d%n"
+                            + "    排队: %s%n    执行: %s",
+                    name, submitted, active, completed, failed, rejected, queueWait, execution);
+        }
+    }
+
+    /**
+     * 累计快照（直方图从创建开始累计，不清零）
+     */
+    public Snapshot snapshot() {
+        return snapshot(queueWait.snapshot(), execution.snapshot());
+    }
+
+    /**
+     * 周期快照：计数器为累计值，直方图只包含上次调用以来的记录
+     */
+    public Snapshot snapshotAndReset() {
+        return snapshot(queueWait.snapshotAndReset(), execution.snapshotAndReset());
+    }
+
+    private Snapshot snapshot(LatencyHistogram.Snapshot wait, LatencyHistogram.Snapshot exec) {
+        return new Snapshot(name, submitted.sum(), active.sum(), completed.sum(), failed.sum(), rejected.sum(),
+                wait, exec);
+    }
+
+    /**
+     * 启动周期导出：每隔 period 在后台线程上调用一次 sink（例如打印日志、推送到监控系统）
+     */
+    public synchronized void startExporter(long period, TimeUnit unit, Consumer<Snapshot> sink) {
+        if (exporter != null) {
+            throw new IllegalStateException("导出器已启动");
+        }
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-metrics-exporter");
+            t.setDaemon(true);
+            return t;
+        });
+        exporter.scheduleAtFixedRate(() -> sink.accept(snapshotAndReset()), period, period, unit);
+    }
+
+    /**
+     * 停止导出器（不关闭被包装的线程池）
+     */
+    @Override
+    public synchronized void close() {
+        if (exporter != null) {
+            exporter.shutdownNow();
+            exporter = null;
+        }
+    }
+
+    // ==================== 演示与开销基准 ====================
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== 演示1：周期导出排队/执行时间分布 ==========\n");
+        demo1_PeriodicExport();
+
+        System.out.println("\n========== 演示2：失败与拒绝分开计数 ==========\n");
+        demo2_FailedVsRejected();
+
+        System.out.println("\n========== 基准：每个任务的插桩开销 ==========\n");
+        benchmark1_DirectOverhead();
+        benchmark2_PoolThroughput();
+
+        System.out.println("========== 完成 ==========");
+    }
+
+    /**
+     * 演示1：SimpleThreadPool 在负载逐渐升高时，导出器每 500ms 输出一次分布
+     */
+    static void demo1_PeriodicExport() throws InterruptedException {
+        SimpleThreadPool pool = new SimpleThreadPool(4, 10_000);
+        InstrumentedExecutor executor = new InstrumentedExecutor("SimplePool", pool);
+        executor.startExporter(500, TimeUnit.MILLISECONDS, System.out::println);
+
+        // 每 500ms 提高一次提交速率：500、1000、1500、3000 个/秒，处理能力约 4 线程 / 2ms = 2000 个/秒，最后一段过载
+        for (int rate : new int[]{500, 1000, 1500, 3000}) {
+            long start = System.nanoTime();
+            long phaseNanos = TimeUnit.MILLISECONDS.toNanos(500);
+            long sent = 0;
+            long elapsed;
+            while ((elapsed = System.nanoTime() - start) < phaseNanos) {
+                // 按已经过去的时间补齐应提交的任务数，不受 sleep 精度影响
+                long due = elapsed * rate / TimeUnit.SECONDS.toNanos(1);
+                for (; sent < due; sent++) {
+                    executor.execute(() -> sleepMillis(2));
+                }
+                Thread.sleep(1);
+            }
+        }
+        Thread.sleep(1500);
+        executor.close();
+        pool.shutdown();
+        pool.awaitTermination(5000);
+    }
+
+    /**
+     * 演示2：任务在调用线程上直接执行时抛出的异常只算失败；线程池真正拒绝时才算被拒绝
+     */
+    static void demo2_FailedVsRejected() {
+        InstrumentedExecutor direct = new InstrumentedExecutor("direct", Runnable::run);
+        try {
+            direct.execute(() -> {
+                throw new IllegalStateException("任务失败");
+            });
+        } catch (IllegalStateException expected) {
+            // 直接执行时任务的异常传给提交方
+        }
+        InstrumentedExecutor rejecting = new InstrumentedExecutor("rejecting", task -> {
+            throw new RejectedExecutionException("队列已满");
+        });
+        try {
+            rejecting.execute(() -> { });
+        } catch (RejectedExecutionException expected) {
+            // 被拒绝
+        }
+        Snapshot d = direct.snapshot();
+        Snapshot r = rejecting.snapshot();
+        System.out.printf("直接执行、任务抛异常: 失败=%d, 拒绝=%d %s%n", d.failed, d.rejected,
+                d.failed == 1 && d.rejected == 0 ? "✓" : "✗");
+        System.out.printf("线程池拒绝:           失败=%d, 拒绝=%d %s%n", r.failed, r.rejected,
+                r.failed == 0 && r.rejected == 1 ? "✓" : "✗");
+    }
+
+    /**
+     * 基准1：用"在当前线程直接执行"的 Executor 隔离出插桩本身的开销
+     */
+    static void benchmark1_DirectOverhead() {
+        final int TASKS = 10_000_000;
+        Runnable task = () -> { };
+        Executor direct = Runnable::run;
+        System.out.printf("直接执行 %,d 个空任务（ns/任务）%n", TASKS);
+        System.out.printf("%-16s %-12s %-12s %-12s%n", "采样率", "无插桩", "有插桩", "开销");
+        for (int sampleInterval : new int[]{1, 16, 128}) {
+            InstrumentedExecutor instrumented = new InstrumentedExecutor("direct", direct, sampleInterval);
+            for (int round = 0; round < 3; round++) { // 前两轮预热
+                long baseline = timeExecute(direct, task, TASKS);
+                long withMetrics = timeExecute(instrumented, task, TASKS);
+                if (round == 2) {
+                    System.out.printf("%-16s %-12.1f %-12.1f %-12.1f%n", "1/" + sampleInterval,
+                            (double) baseline / TASKS, (double) withMetrics / TASKS,
+                            (double) (withMetrics - baseline) / TASKS);
+                }
+            }
+        }
+        long nanoTimeCost = timeNanoTime(TASKS);
+        System.out.printf("其中 System.nanoTime() 单次约 %.1f ns（每个任务调用 3 次）%n%n", (double) nanoTimeCost / TASKS);
+    }
+
+    static long timeExecute(Executor executor, Runnable task, int tasks) {
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(task);
+        }
+        return System.nanoTime() - start;
+    }
+
+    static long timeNanoTime(int times) {
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < times; i++) {
+            sink += System.nanoTime();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println(); // 防止循环被消除
+        }
+        return elapsed;
+    }
+
+    /**
+     * 基准2：通过真实线程池提交微小任务，对比吞吐量
+     */
+    static void benchmark2_PoolThroughput() throws InterruptedException {
+        final int TASKS = 1_000_000;
+        System.out.printf("%-24s %-16s %-16s%n", "线程池（4 线程）", "无插桩 tasks/s", "有插桩(全量) tasks/s");
+        for (int round = 0; round < 2; round++) { // 第一轮预热
+            double simplePlain = runPool(new SimpleThreadPool(4, TASKS), false, TASKS);
+            double simpleInstrumented = runPool(new SimpleThreadPool(4, TASKS), true, TASKS);
+            double tpePlain = runPool(newTpe(), false, TASKS);
+            double tpeInstrumented = runPool(newTpe(), true, TASKS);
+            if (round == 1) {
+                System.out.printf("%-24s %-16s %-16s%n", "SimpleThreadPool",
+                        String.format("%,.0f", simplePlain), String.format("%,.0f", simpleInstrumented));
+                System.out.printf("%-24s %-16s %-16s%n", "ThreadPoolExecutor",
+                        String.format("%,.0f", tpePlain), String.format("%,.0f", tpeInstrumented));
+            }
+        }
+        System.out.println();
+    }
+
+    static ThreadPoolExecutor newTpe() {
+        return new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    }
+
+    static double runPool(Executor pool, boolean instrumented, int tasks) throws InterruptedException {
+        LongAdder done = new LongAdder();
+        Runnable task = done::increment;
+        Executor executor = instrumented ? new InstrumentedExecutor("bench", pool) : pool;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(task);
+        }
+        while (done.sum() < tasks) {
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (pool instanceof SimpleThreadPool) {
+            ((SimpleThreadPool) pool).shutdown();
+            ((SimpleThreadPool) pool).awaitTermination(5000);
+        } else {
+            ((ThreadPoolExecutor) pool).shutdown();
+            ((ThreadPoolExecutor) pool).awaitTermination(5, TimeUnit.SECONDS);
+        }
+        return tasks * 1e9 / elapsed;
+    }
+
+    static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
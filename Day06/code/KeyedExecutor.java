@@ -0,0 +1,367 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Day06 - 按 key 串行、跨 key 并行的执行器（任务亲和 / 邮箱模型）
+ *
+ * 问题：同一个订单的事件必须按提交顺序处理，不同订单之间可以并行。
+ * 常见写法是在任务里 synchronized(订单锁)，但这样有两个问题：
+ * 1. synchronized 不保证先来先得，两个 Worker 拿到同一订单的两个事件时，后提交的可能先执行
+ * 2. 热点 key 的任务会让多个 Worker 同时阻塞在同一把锁上，其他 key 的任务没人处理
+ *
+ * 做法（邮箱模型，类似 Actor）：
+ * 1. key 哈希到 stripes 个邮箱之一，每个邮箱是一个无锁队列 + 一个"已调度"标志
+ * 2. 提交：任务放进邮箱；如果邮箱当前没有被调度，CAS 标志后把邮箱本身交给线程池
+ * 3. 线程池中同一时刻最多只有一个 Worker 在处理某个邮箱，按 FIFO 顺序执行，不需要任何锁
+ * 4. 一个邮箱连续执行 BATCH_SIZE 个任务后重新提交给线程池，让其他邮箱也有机会执行
+ *
+ * 邮箱数量固定（不为每个 key 建邮箱），内存有界；代价是落在同一个邮箱的不同 key 也会被串行，
+ * 邮箱数远大于线程数时影响很小。
+ *
+ * 对线程池的要求：execute 必须排队、在调用线程上直接执行，或者抛出异常，不能静默丢弃。
+ * 邮箱被丢弃后"已调度"标志永远为 true，之后提交到这个邮箱的任务再也不会执行。
+ * SimpleThreadPool.CallerRunsRejectPolicy 在线程池关闭后会静默丢弃，因此构造时直接拒绝这种配置。
+ * 线程池在调用线程上直接执行邮箱时（其他执行器的 CallerRuns 策略），由调用方循环处理，不会递归。
+ */
+public class KeyedExecutor<K> {
+
+    /** 一个邮箱连续执行的最大任务数 */
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor pool;
+    private final Mailbox[] mailboxes;
+    private final int mask;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param pool 执行任务的线程池
+     * @param stripes 邮箱数量（向上取整为 2 的幂）
+     */
+    public KeyedExecutor(Executor pool, int stripes) {
+        if (stripes <= 0 || stripes > (1 << 20)) {
+            throw new IllegalArgumentException("stripes 必须在 1 ~ 2^20 之间");
+        }
+        if (pool instanceof SimpleThreadPool
+                && ((SimpleThreadPool) pool).getRejectPolicy() instanceof SimpleThreadPool.CallerRunsRejectPolicy) {
+            throw new IllegalArgumentException("线程池关闭后 CallerRunsRejectPolicy 会静默丢弃邮箱，请使用会抛出异常的拒绝策略");
+        }
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.pool = pool;
+        this.mailboxes = new Mailbox[size];
+        for (int i = 0; i < size; i++) {
+            mailboxes[i] = new Mailbox(this);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 默认 1024 个邮箱
+     */
+    public KeyedExecutor(Executor pool) {
+        this(pool, 1024);
+    }
+
+    // ==================== 提交 ====================
+
+    /**
+     * 提交一个任务：同一个 key 的任务按提交顺序串行执行
+     */
+    public void execute(K key, Runnable task) {
+        if (key == null || task == null) {
+            throw new NullPointerException("key 和任务不能为 null");
+        }
+        submitted.increment();
+        mailboxFor(key).submit(task);
+    }
+
+    /**
+     * 绑定某个 key 的 Executor 视图，方便传给只接受 Executor 的代码
+     */
+    public Executor forKey(K key) {
+        Mailbox mailbox = mailboxFor(key);
+        return task -> {
+            if (task == null) {
+                throw new NullPointerException("任务不能为 null");
+            }
+            submitted.increment();
+            mailbox.submit(task);
+        };
+    }
+
+    private Mailbox mailboxFor(K key) {
+        int h = key.hashCode();
+        // 与 HashMap 相同的扰动，让高位也参与选择邮箱
+        return mailboxes[(h ^ (h >>> 16)) & mask];
+    }
+
+    // ==================== 邮箱 ====================
+
+    /**
+     * 当前线程正在把哪个邮箱交给线程池，以及线程池是否在当前线程上直接调用了它的 run()
+     */
+    private static final class HandOff {
+        Mailbox mailbox;
+        boolean ranInline;
+    }
+
+    private static final ThreadLocal<HandOff> HAND_OFF = ThreadLocal.withInitial(HandOff::new);
+
+    /**
+     * 邮箱：自身的 AtomicBoolean 值表示"已交给线程池，还没处理完"，为 true 时由唯一的持有者负责处理
+     */
+    private static final class Mailbox extends AtomicBoolean implements Runnable {
+        private final KeyedExecutor<?> owner;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        Mailbox(KeyedExecutor<?> owner) {
+            this.owner = owner;
+        }
+
+        void submit(Runnable task) {
+            tasks.offer(task);
+            if (!compareAndSet(false, true)) {
+                // 已经有 Worker 负责这个邮箱，它一定会看到刚放入的任务
+                return;
+            }
+            boolean accepted;
+            try {
+                accepted = handOff();
+            } catch (RuntimeException e) {
+                // 线程池拒绝：撤回本任务并抛出；邮箱里其他已接受的任务由当前线程执行，不能丢也不能乱序
+                tasks.remove(task);
+                drain();
+                throw e;
+            }
+            if (!accepted) {
+                drain();
+            }
+        }
+
+        /**
+         * 持有标志时把邮箱交给线程池
+         *
+         * @return false 表示线程池在当前线程上直接调用了 run()（CallerRuns），邮箱仍由当前线程处理
+         */
+        private boolean handOff() {
+            owner.scheduled.increment();
+            HandOff handOff = HAND_OFF.get();
+            Mailbox previous = handOff.mailbox;
+            handOff.mailbox = this;
+            handOff.ranInline = false;
+            try {
+                owner.pool.execute(this);
+                return !handOff.ranInline;
+            } finally {
+                // 邮箱中的任务可能再向别的邮箱提交，恢复外层的值
+                handOff.mailbox = previous;
+            }
+        }
+
+        @Override
+        public void run() {
+            HandOff handOff = HAND_OFF.get();
+            if (handOff.mailbox == this) {
+                // 线程池在交出邮箱的线程上直接执行：不在这里递归处理，返回后由 handOff 的调用方继续循环
+                handOff.ranInline = true;
+                return;
+            }
+            drain();
+        }
+
+        /**
+         * 持有标志的线程处理邮箱：每批最多 BATCH_SIZE 个任务，处理完清除标志，还有任务就重新交给线程池
+         */
+        private void drain() {
+            while (true) {
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    Runnable task = tasks.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        // 一个任务失败不影响同一 key 的后续任务
+                        owner.failed.increment();
+                    }
+                }
+                if (tasks.isEmpty()) {
+                    set(false);
+                    // 清除标志后再检查一次：提交方可能在 isEmpty 之后放入了任务，却看到标志仍为 true
+                    if (tasks.isEmpty() || !compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+                // 还有任务：让出 Worker，重新排到线程池队列末尾
+                try {
+                    if (handOff()) {
+                        return;
+                    }
+                    // 线程池把邮箱还给了当前线程，继续处理
+                } catch (RuntimeException e) {
+                    // 线程池队列满或已关闭：继续在当前线程上处理
+                }
+            }
+        }
+    }
+
+    // ==================== 统计 ====================
+
+    public String getStatus() {
+        return String.format("邮箱=%d, 已提交=%d, 邮箱调度次数=%d（平均每次 %.1f 个任务）, 失败=%d",
+                mailboxes.length, submitted.sum(), scheduled.sum(),
+                scheduled.sum() == 0 ? 0.0 : (double) submitted.sum() / scheduled.sum(), failed.sum());
+    }
+
+    // ==================== 基准：不同 key 数量下的吞吐量与顺序 ====================
+
+    public static void main(String[] args) throws InterruptedException {
+        final int THREADS = 4;
+        System.out.println("========== KeyedExecutor vs synchronized(key) ==========\n");
+        System.out.printf("%d 个 Worker；每个 key 的事件带递增序号，执行时检查是否按提交顺序处理%n", THREADS);
+
+        System.out.println("\n--- 场景1：CPU 任务（每个约 2µs），200,000 个任务 ---\n");
+        printHeader();
+        for (int keys : new int[]{1, 4, 64, 4096}) {
+            runScenario(keys + " 个 key（均匀）", THREADS, keys, false, 200_000, 2_000, 0);
+        }
+        runScenario("4096 个 key（一个热点 key 占 50%）", THREADS, 4096, true, 200_000, 2_000, 0);
+
+        System.out.println("\n--- 场景2：带阻塞的任务（每个等待约 50µs，模拟 I/O），20,000 个任务 ---\n");
+        printHeader();
+        for (int keys : new int[]{1, 4, 64, 4096}) {
+            runScenario(keys + " 个 key（均匀）", THREADS, keys, false, 20_000, 0, 50_000);
+        }
+        runScenario("4096 个 key（一个热点 key 占 50%）", THREADS, 4096, true, 20_000, 0, 50_000);
+
+        System.out.println("\n→ synchronized 方案在多个 Worker 拿到同一 key 的任务时会乱序，且 key 越少越多 Worker 阻塞在同一把锁上");
+        System.out.println("→ KeyedExecutor 同一 key 始终只占一个 Worker，严格按提交顺序执行；key 越多并行度越高");
+        System.out.println("→ 热点场景下两者吞吐都受限于热点 key 的串行速度；synchronized 方案的 Worker 会堵在热点锁上，"
+                + "其他 key 的任务排队更久");
+        System.out.println("========== 基准完成 ==========");
+    }
+
+    private static void printHeader() {
+        System.out.printf("%-36s %-20s %-14s %-10s %-14s%n", "场景", "方案", "万任务/秒", "乱序次数", "其他 key p99 ms");
+    }
+
+    private static void runScenario(String label, int threads, int keys, boolean hotKey, int total,
+                                    long cpuNanos, long parkNanos) throws InterruptedException {
+        int[] keyOf = new int[total];
+        for (int i = 0; i < total; i++) {
+            boolean hot = hotKey && ThreadLocalRandom.current().nextBoolean();
+            keyOf[i] = hot ? 0 : ThreadLocalRandom.current().nextInt(keys);
+        }
+
+        // 方案一：直接提交到线程池，任务内部 synchronized(key 对应的锁)
+        SimpleThreadPool pool = newPool(threads);
+        Object[] locks = new Object[keys];
+        for (int i = 0; i < keys; i++) {
+            locks[i] = new Object();
+        }
+        Result sync = runOnce(total, keys, keyOf, (key, task) -> pool.execute(() -> {
+            synchronized (locks[key]) {
+                task.run();
+            }
+        }), cpuNanos, parkNanos);
+        pool.shutdown();
+        pool.awaitTermination(5000);
+
+        // 方案二：KeyedExecutor
+        SimpleThreadPool keyedPool = newPool(threads);
+        KeyedExecutor<Integer> keyed = new KeyedExecutor<>(keyedPool);
+        Result mailbox = runOnce(total, keys, keyOf, keyed::execute, cpuNanos, parkNanos);
+        keyedPool.shutdown();
+        keyedPool.awaitTermination(5000);
+
+        System.out.printf("%-36s %-20s %-14.1f %-10d %-14s%n", label, "synchronized(key)", sync.rate / 1e4,
+                sync.outOfOrder, hotKey ? String.format("%.0f", sync.othersMillis) : "-");
+        System.out.printf("%-36s %-20s %-14.1f %-10d %-14s%n", "", "KeyedExecutor", mailbox.rate / 1e4,
+                mailbox.outOfOrder, hotKey ? String.format("%.0f", mailbox.othersMillis) : "-");
+    }
+
+    static SimpleThreadPool newPool(int threads) {
+        return new SimpleThreadPool(threads, threads, 60, TimeUnit.SECONDS, 1_000_000,
+                new SimpleThreadPool.AbortRejectPolicy(), SimpleThreadPool.Mode.SHARED_QUEUE);
+    }
+
+    interface KeyedSubmitter {
+        void submit(Integer key, Runnable task);
+    }
+
+    static final class Result {
+        final double rate;
+        final long outOfOrder;
+
+        /** key 0 以外的任务从提交到完成的 p99 延迟（热点场景下衡量热点 key 是否拖累其他 key） */
+        final double othersMillis;
+
+        Result(double rate, long outOfOrder, double othersMillis) {
+            this.rate = rate;
+            this.outOfOrder = outOfOrder;
+            this.othersMillis = othersMillis;
+        }
+    }
+
+    private static Result runOnce(int total, int keys, int[] keyOf, KeyedSubmitter submitter,
+                                  long cpuNanos, long parkNanos) throws InterruptedException {
+        // 每个 key 的下一个提交序号（只由提交线程访问）和最近一次执行的序号
+        long[] nextSeq = new long[keys];
+        AtomicLongArray lastRun = new AtomicLongArray(keys);
+        for (int i = 0; i < keys; i++) {
+            lastRun.set(i, -1);
+        }
+        LongAdder outOfOrder = new LongAdder();
+        CountDownLatch done = new CountDownLatch(total);
+        long[] latencies = new long[total];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            int key = keyOf[i];
+            long seq = nextSeq[key]++;
+            final int id = i;
+            long submitNanos = System.nanoTime();
+            submitter.submit(key, () -> {
+                if (lastRun.getAndSet(key, seq) > seq) {
+                    outOfOrder.increment();
+                }
+                work(cpuNanos, parkNanos);
+                if (key != 0) {
+                    latencies[id] = System.nanoTime() - submitNanos;
+                }
+                done.countDown();
+            });
+        }
+        done.await(60, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        long[] others = Arrays.stream(latencies).filter(l -> l > 0).sorted().toArray();
+        double othersP99 = others.length == 0 ? 0 : others[(int) (others.length * 0.99)] / 1e6;
+        return new Result(total * 1e9 / elapsed, outOfOrder.sum(), othersP99);
+    }
+
+    private static void work(long cpuNanos, long parkNanos) {
+        if (cpuNanos > 0) {
+            long end = System.nanoTime() + cpuNanos;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+        if (parkNanos > 0) {
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+}
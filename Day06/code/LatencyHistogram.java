@@ -0,0 +1,179 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Day06 - 无锁延迟直方图（HdrHistogram 风格的对数-线性分桶）
+ *
+ * 分桶方式：
+ * - 小于 32 的值每个值一个桶（精确）
+ * - 更大的值按最高位分成若干"层"，每层再线性分成 32 个子桶
+ *   例如 [1024, 2048) 这一层的子桶宽度为 32，相对误差不超过 1/32 ≈ 3%
+ * - 覆盖 0 ~ Long.MAX_VALUE，总共 1888 个桶，每个条带约 15KB
+ *
+ * 记录一个值：几次位运算 + 一次 AtomicLongArray.getAndIncrement，没有锁、不分配对象。
+ * 多个线程记录相近的延迟时会落在同一个桶上，为避免争抢同一个计数器（和缓存行），
+ * 计数数组按线程分成若干条带（stripe），读取时再把各条带相加。
+ * 读取分位数时遍历所有桶，只在导出统计时发生。
+ *
+ * 与 HdrHistogram 的区别：精度固定（约 1.5 位有效数字），不支持自动扩容和合并以外的高级操作。
+ */
+public class LatencyHistogram {
+
+    /** 每层的子桶数 = 2^SUB_BUCKET_BITS */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+    /** 最高位从 SUB_BUCKET_BITS 到 62，共 58 层，再加上精确的前 32 个桶 */
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /** 条带数：不小于 CPU 核数的 2 的幂，最多 16 */
+    private static final int STRIPES = Math.min(16,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    /** STRIPES 个计数数组首尾相接 */
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKET_COUNT);
+
+    // ==================== 记录 ====================
+
+    /**
+     * 记录一个值（负数按 0 处理）
+     */
+    public void record(long value) {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        counts.getAndIncrement(stripe * BUCKET_COUNT + bucketIndex(Math.max(0, value)));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & SUB_BUCKET_MASK;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + sub;
+    }
+
+    /**
+     * 桶内的最小值
+     */
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + sub) << shift;
+    }
+
+    /**
+     * 桶内的最大值
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        return lowestValue(index) + (1L << shift) - 1;
+    }
+
+    // ==================== 快照 ====================
+
+    /**
+     * 复制当前计数（记录仍在进行时，快照中各桶之间不保证严格一致）
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < counts.length(); i++) {
+            copy[i % BUCKET_COUNT] += counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * 取出当前计数并清零，用于按时间段导出（每个值只会出现在一个时间段里）
+     */
+    public Snapshot snapshotAndReset() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0) {
+                copy[i % BUCKET_COUNT] += counts.getAndSet(i, 0);
+            }
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * 不可变的直方图快照
+     */
+    static final class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.totalCount = total;
+        }
+
+        long count() {
+            return totalCount;
+        }
+
+        /**
+         * @param percentile 0 ~ 100
+         * @return 该分位数所在桶的最大值（保守估计），没有数据时返回 0
+         */
+        long valueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return highestValue(counts.length - 1);
+        }
+
+        long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestValue(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 平均值（按桶中点估算）
+         */
+        double mean() {
+            if (totalCount == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    sum += counts[i] * ((lowestValue(i) + highestValue(i)) / 2.0);
+                }
+            }
+            return sum / totalCount;
+        }
+
+        /**
+         * 以微秒输出（记录的值单位为纳秒）
+         */
+        @Override
+        public String toString() {
+            return String.format("n=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus",
+                    totalCount, mean() / 1e3, valueAtPercentile(50) / 1e3, valueAtPercentile(99) / 1e3,
+                    valueAtPercentile(99.9) / 1e3, max() / 1e3);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Day06 - 有界无锁多生产者多消费者队列（Vyukov MPMC 环形缓冲区）
+ *
+ * 设计要点：
+ * 1. 每个槽位带一个序号 sequence：
+ *    - sequence == pos       → 槽位空闲，生产者可以写入位置 pos
+ *    - sequence == pos + 1   → 槽位已写入，消费者可以读取位置 pos
+ *    - 读完后设为 pos + capacity，留给下一圈的生产者
+ * 2. 生产者 CAS 推进 tail、消费者 CAS 推进 head，各自只竞争自己那一端，没有全局锁
+ * 3. 防止伪共享：
+ *    - head / tail 各自是一个带填充的 AtomicLong，不落在同一个缓存行
+ *    - 槽位序号在数组中间隔 SEQUENCE_STRIDE 个 long（64 字节）存放，相邻槽位不共享缓存行
+ * 4. 阻塞策略：take/put 先自旋若干次（仅多核），仍不成功就登记到等待队列并 park；
+ *    另一端成功操作后 unpark 一个等待者（线程池的空闲 Worker 不会空转占用 CPU），
+ *    被唤醒的线程返回后调用方总会重试一次，不会丢失唤醒
+ *
+ * 与 ArrayBlockingQueue 的区别：ABQ 的入队和出队共用一把 ReentrantLock，
+ * 线程越多越容易在锁上排队；这里一次成功的入队/出队只需要一次 CAS。
+ *
+ * 限制：容量向上取整为 2 的幂；iterator 不支持（线程池不需要遍历队列）
+ */
+public class MpmcRingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /** 槽位序号的间隔（8 个 long = 64 字节，一个缓存行） */
+    private static final int SEQUENCE_STRIDE = 8;
+
+    /** 阻塞前的自旋次数（单核机器上自旋只会占用另一端需要的 CPU，直接 park） */
+    private static final int SPIN_TRIES = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+
+    /**
+     * 带填充的计数器：value 之后的 7 个 long 把下一个对象挤到另一个缓存行
+     */
+    @SuppressWarnings("unused")
+    static final class PaddedCounter extends AtomicLong {
+        long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> items;
+    private final AtomicLongArray sequences;
+
+    /** 下一个要写入的位置 */
+    private final PaddedCounter tail = new PaddedCounter();
+
+    /** 下一个要读取的位置 */
+    private final PaddedCounter head = new PaddedCounter();
+
+    /** 在 take/poll(timeout) 中 park 的消费者 */
+    private final ConcurrentLinkedQueue<Thread> waitingConsumers = new ConcurrentLinkedQueue<>();
+
+    /** 在 put/offer(timeout) 中 park 的生产者 */
+    private final ConcurrentLinkedQueue<Thread> waitingProducers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param capacity 队列容量（向上取整为 2 的幂）
+     */
+    public MpmcRingQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 28)) {
+            throw new IllegalArgumentException("capacity 必须在 1 ~ 2^28 之间");
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.items = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size * SEQUENCE_STRIDE);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i * SEQUENCE_STRIDE, i);
+        }
+    }
+
+    // ==================== 非阻塞操作（无锁） ====================
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index * SEQUENCE_STRIDE) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    items.lazySet(index, e);
+                    // volatile 写发布槽位：消费者看到 pos + 1 时一定能看到元素
+                    sequences.set(index * SEQUENCE_STRIDE, pos + 1);
+                    signal(waitingConsumers);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // 这个槽位上一圈的元素还没被取走：队列已满
+                return false;
+            } else {
+                // 其他生产者已经抢到了 pos，重新读取
+                pos = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index * SEQUENCE_STRIDE) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E e = items.get(index);
+                    items.lazySet(index, null);
+                    sequences.set(index * SEQUENCE_STRIDE, pos + capacity);
+                    signal(waitingProducers);
+                    return e;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                // 槽位还没有被写入：队列为空
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        while (true) {
+            long pos = head.get();
+            int index = (int) pos & mask;
+            if (sequences.get(index * SEQUENCE_STRIDE) != pos + 1) {
+                return null;
+            }
+            E e = items.get(index);
+            // 读取期间 head 没有变化，说明读到的就是队首元素
+            if (e != null && head.get() == pos) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        // 先读 head 再读 tail，保证结果不为负；并发修改时只是近似值
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, Math.min(capacity, t - h));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    // ==================== 阻塞操作（自旋 + park） ====================
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        while (!offer(e)) {
+            await(waitingProducers, Long.MAX_VALUE, true);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(e)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            await(waitingProducers, remaining, true);
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            await(waitingConsumers, Long.MAX_VALUE, false);
+        }
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        while ((e = poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            await(waitingConsumers, remaining, false);
+        }
+        return e;
+    }
+
+    /**
+     * 自旋等待另一端的进展，仍不满足就登记并 park
+     *
+     * @param producer true 表示等待队列变为非满，false 表示等待队列变为非空
+     */
+    private void await(ConcurrentLinkedQueue<Thread> waiters, long nanos, boolean producer)
+            throws InterruptedException {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (ready(producer)) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        Thread self = Thread.currentThread();
+        // 先登记再检查一次：另一端在登记之后的操作一定能看到我们并 unpark，避免丢失唤醒
+        waiters.offer(self);
+        if (!ready(producer)) {
+            LockSupport.parkNanos(this, nanos);
+        }
+        waiters.remove(self);
+        if (Thread.interrupted()) {
+            // 调用方不会再重试，可能浪费了一次唤醒，把机会传给下一个等待者
+            if (ready(producer)) {
+                signal(waiters);
+            }
+            throw new InterruptedException();
+        }
+    }
+
+    private boolean ready(boolean producer) {
+        return producer ? size() < capacity : size() > 0;
+    }
+
+    private static void signal(ConcurrentLinkedQueue<Thread> waiters) {
+        if (!waiters.isEmpty()) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    // ==================== 其他方法 ====================
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = 0;
+        E e;
+        while (n < maxElements && (e = poll()) != null) {
+            c.add(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 不支持遍历：无锁环形缓冲区中的槽位随时可能被覆盖
+     */
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException("MpmcRingQueue 不支持遍历");
+    }
+
+    @Override
+    public String toString() {
+        return "MpmcRingQueue{capacity=" + capacity + ", size=" + size() + "}";
+    }
+}
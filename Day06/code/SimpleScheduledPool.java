@@ -0,0 +1,837 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Day06 - 基于哈希时间轮的定时任务调度（schedule / scheduleAtFixedRate / scheduleWithFixedDelay）
+ *
+ * ScheduledThreadPoolExecutor 的问题：
+ * - 延迟队列是一个二叉堆，插入和删除都是 O(log n)，并且所有操作共用一把锁
+ * - 默认取消任务时不会把它移出堆（removeOnCancel = false），大量"超时后很可能被取消"的任务
+ *   会一直占着内存直到到期
+ *
+ * 哈希时间轮（参考 Netty HashedWheelTimer）：
+ * 1. 时间被切成固定长度的 tick（默认 1ms），wheelSize 个桶首尾相连组成一个环
+ * 2. 到期时间为第 n 个 tick 的任务放进桶 n % wheelSize，并记下还要转几圈（remainingRounds）
+ * 3. 时间轮线程每个 tick 只处理当前桶：圈数为 0 的到期，其余圈数减 1
+ * 4. 插入：提交线程把任务 CAS 压入无锁的待插入栈（复用任务自己的 next 字段，不额外分配节点），
+ *    由时间轮线程挂到桶的双向链表上 —— O(1)
+ *    取消：CAS 修改状态后放进待取消队列，时间轮线程直接从链表摘除 —— O(1)
+ * 5. 到期的任务交给 SimpleThreadPool 执行，时间轮线程自己不运行任务代码
+ *
+ * 代价：精度是一个 tick（任务最多晚一个 tick 执行）；每个 tick 都要遍历一个桶，
+ * 任务很多且延迟很长时，可以用更大的 wheelSize 减少每个桶里的任务数。
+ */
+public class SimpleScheduledPool {
+
+    private final SimpleThreadPool pool;
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final long startTime;
+
+    /**
+     * 提交线程 → 时间轮线程：待挂到桶上的任务（包括周期任务的下一次执行）
+     * 以 next 字段串成的栈，时间轮线程每个 tick 用 getAndSet(null) 一次取走整条链
+     */
+    private final AtomicReference<ScheduledTask<?>> pendingTasks = new AtomicReference<>();
+
+    /** 提交线程 → 时间轮线程：已取消、待从桶上摘除的任务 */
+    private final ConcurrentLinkedQueue<ScheduledTask<?>> cancelledTasks = new ConcurrentLinkedQueue<>();
+
+    private final Thread wheelThread;
+    private volatile boolean stopped;
+
+    /** 已经走过的 tick 数，只由时间轮线程读写 */
+    private long tick;
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    /** 当前挂在时间轮上或等待挂上的任务数 */
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    /**
+     * @param pool 执行到期任务的线程池（由调用方负责关闭）
+     * @param tickDuration 一个 tick 的长度，也是调度精度
+     * @param ticksPerWheel 桶的个数（向上取整为 2 的幂）
+     */
+    public SimpleScheduledPool(SimpleThreadPool pool, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > (1 << 24)) {
+            throw new IllegalArgumentException("tickDuration 必须大于 0，ticksPerWheel 必须在 1 ~ 2^24 之间");
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.pool = pool;
+        this.tickNanos = Math.max(unit.toNanos(tickDuration), TimeUnit.MICROSECONDS.toNanos(100));
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.startTime = System.nanoTime();
+        this.wheelThread = new Thread(this::wheelLoop, "SimpleScheduledPool-wheel");
+        // 任务在线程池的 Worker 上执行，时间轮线程本身不阻止 JVM 退出
+        this.wheelThread.setDaemon(true);
+        this.wheelThread.start();
+    }
+
+    /**
+     * 默认参数：tick 1ms，512 个桶
+     */
+    public SimpleScheduledPool(SimpleThreadPool pool) {
+        this(pool, 1, TimeUnit.MILLISECONDS, 512);
+    }
+
+    // ==================== 提交 ====================
+
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (command == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        return enqueue(new ScheduledTask<Void>(this, command, null, deadlineAfter(delay, unit), 0));
+    }
+
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (callable == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        return enqueue(new ScheduledTask<>(this, null, callable, deadlineAfter(delay, unit), 0));
+    }
+
+    /**
+     * 按固定频率执行：第 n 次的计划时间为 initialDelay + n * period，
+     * 某次执行超过 period 时，下一次会紧接着执行（不会并发执行同一个任务）
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return schedulePeriodic(command, initialDelay, unit.toNanos(period), unit);
+    }
+
+    /**
+     * 按固定间隔执行：上一次执行结束后再等待 delay
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return schedulePeriodic(command, initialDelay, -unit.toNanos(delay), unit);
+    }
+
+    private ScheduledFuture<?> schedulePeriodic(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (command == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        if (period == 0) {
+            throw new IllegalArgumentException("period / delay 必须大于 0");
+        }
+        return enqueue(new ScheduledTask<Void>(this, command, null, deadlineAfter(initialDelay, unit), period));
+    }
+
+    private long deadlineAfter(long delay, TimeUnit unit) {
+        return System.nanoTime() + Math.max(0, unit.toNanos(delay));
+    }
+
+    private <V> ScheduledTask<V> enqueue(ScheduledTask<V> task) {
+        if (stopped) {
+            throw new RejectedExecutionException("SimpleScheduledPool 已关闭");
+        }
+        scheduled.increment();
+        pendingCount.incrementAndGet();
+        push(task);
+        if (stopped) {
+            // 检查与压栈之间关闭了：时间轮线程可能已经做完最后一次清理，本任务只能由提交线程取消
+            task.cancel(false);
+            cancelPending();
+            if (task.isCancelled()) {
+                throw new RejectedExecutionException("SimpleScheduledPool 已关闭");
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 周期任务执行完后重新放回时间轮
+     */
+    private void reschedule(ScheduledTask<?> task) {
+        if (stopped) {
+            task.cancel(false);
+            return;
+        }
+        pendingCount.incrementAndGet();
+        push(task);
+        if (stopped) {
+            task.cancel(false);
+            cancelPending();
+        }
+    }
+
+    private void push(ScheduledTask<?> task) {
+        ScheduledTask<?> head;
+        do {
+            head = pendingTasks.get();
+            task.next = head;
+        } while (!pendingTasks.compareAndSet(head, task));
+    }
+
+    // ==================== 时间轮线程 ====================
+
+    private void wheelLoop() {
+        while (!stopped) {
+            if (!waitForNextTick()) {
+                break;
+            }
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+        // 关闭：时间轮上剩余的任务全部取消
+        removeCancelled();
+        for (Bucket bucket : wheel) {
+            bucket.cancelAll();
+        }
+        cancelPending();
+    }
+
+    /**
+     * 关闭后取消还没挂上时间轮的任务
+     *
+     * 时间轮线程退出前调用一次；在 stopped 检查之后才压栈的提交线程也会调用，
+     * 否则它的任务会永远留在待插入栈里（get() 一直阻塞，pendingCount 不归零）。
+     * getAndSet 保证每个任务只被一方取走。
+     */
+    private void cancelPending() {
+        ScheduledTask<?> task = pendingTasks.getAndSet(null);
+        while (task != null) {
+            ScheduledTask<?> next = task.next;
+            task.next = null;
+            pendingCount.decrementAndGet();
+            task.cancel(false);
+            task = next;
+        }
+    }
+
+    /**
+     * 睡到下一个 tick 的结束时刻
+     *
+     * @return 关闭时返回 false
+     */
+    private boolean waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long remaining = deadline - (System.nanoTime() - startTime);
+            if (remaining <= 0) {
+                return true;
+            }
+            if (stopped) {
+                return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void transferPending() {
+        ScheduledTask<?> task = pendingTasks.getAndSet(null);
+        while (task != null) {
+            ScheduledTask<?> next = task.next;
+            task.next = null;
+            if (task.state != ScheduledTask.WAITING) {
+                // 还没挂上时间轮就被取消了
+                pendingCount.decrementAndGet();
+                task = next;
+                continue;
+            }
+            long calculated = (task.deadline - startTime) / tickNanos;
+            task.remainingRounds = (calculated - tick) >> Integer.numberOfTrailingZeros(wheel.length);
+            // 已经过期的任务放进当前桶，本 tick 就执行
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(task);
+            task = next;
+        }
+    }
+
+    private void removeCancelled() {
+        ScheduledTask<?> task;
+        while ((task = cancelledTasks.poll()) != null) {
+            if (task.bucket != null) {
+                task.bucket.remove(task);
+                pendingCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 时间轮上的一个桶：任务组成的双向链表，只由时间轮线程访问
+     */
+    private final class Bucket {
+        private ScheduledTask<?> head;
+        private ScheduledTask<?> tail;
+
+        void add(ScheduledTask<?> task) {
+            task.bucket = this;
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        void remove(ScheduledTask<?> task) {
+            ScheduledTask<?> next = task.next;
+            if (task.prev != null) {
+                task.prev.next = next;
+            } else {
+                head = next;
+            }
+            if (next != null) {
+                next.prev = task.prev;
+            } else {
+                tail = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+
+        /**
+         * 处理到达的 tick：圈数为 0 的任务交给线程池，其余圈数减 1
+         */
+        void expire() {
+            ScheduledTask<?> task = head;
+            while (task != null) {
+                ScheduledTask<?> next = task.next;
+                if (task.remainingRounds <= 0) {
+                    remove(task);
+                    pendingCount.decrementAndGet();
+                    dispatch(task);
+                } else if (task.state == ScheduledTask.CANCELLED) {
+                    // 取消发生在本轮 removeCancelled 之后，顺手摘除（待取消队列中的记录会被跳过）
+                    remove(task);
+                    pendingCount.decrementAndGet();
+                } else {
+                    task.remainingRounds--;
+                }
+                task = next;
+            }
+        }
+
+        void cancelAll() {
+            ScheduledTask<?> task;
+            while ((task = head) != null) {
+                remove(task);
+                pendingCount.decrementAndGet();
+                task.cancel(false);
+            }
+        }
+    }
+
+    private void dispatch(ScheduledTask<?> task) {
+        if (!task.markRunning()) {
+            return;
+        }
+        fired.increment();
+        try {
+            pool.execute(task);
+        } catch (RuntimeException e) {
+            // 线程池拒绝（例如 AbortRejectPolicy），任务以失败结束
+            task.fail(e);
+        }
+    }
+
+    // ==================== 关闭与统计 ====================
+
+    /**
+     * 关闭调度器：不再接受新任务，尚未到期的任务全部取消，正在执行的任务不受影响。
+     * 不会关闭构造时传入的线程池。
+     */
+    public void shutdown() {
+        stopped = true;
+        LockSupport.unpark(wheelThread);
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        wheelThread.join(Math.max(1, unit.toMillis(timeout)));
+        return !wheelThread.isAlive();
+    }
+
+    public long pendingCount() {
+        return pendingCount.get();
+    }
+
+    public String getStatus() {
+        return String.format("已调度=%d, 已触发=%d, 已取消=%d, 等待中=%d",
+                scheduled.sum(), fired.sum(), cancelled.sum(), pendingCount.get());
+    }
+
+    // ==================== 定时任务 ====================
+
+    /**
+     * 时间轮上的一个定时任务，同时也是交给线程池执行的 Runnable
+     *
+     * 状态：WAITING（在时间轮上）→ RUNNING（已交给线程池）→ COMPLETING → DONE / FAILED；
+     * 周期任务执行完后从 RUNNING 回到 WAITING。
+     * COMPLETING 是写入结果期间的短暂状态：先 CAS 抢到状态转换再写 outcome，
+     * 与 cancel 竞争失败的一方不会覆盖胜者的结果。
+     * 一次性任务只能在 WAITING 时取消；周期任务在执行中取消会阻止下一次执行。
+     *
+     * 为了让一百万个等待中的任务尽量小，状态用 volatile int + FieldUpdater，
+     * 而不是每个任务再带一个 AtomicInteger 对象。
+     */
+    static final class ScheduledTask<V> implements ScheduledFuture<V>, Runnable {
+        static final int WAITING = 0;
+        static final int RUNNING = 1;
+        static final int COMPLETING = 2;
+        static final int DONE = 3;
+        static final int FAILED = 4;
+        static final int CANCELLED = 5;
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<ScheduledTask> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(ScheduledTask.class, "state");
+
+        private final SimpleScheduledPool scheduler;
+
+        /** runnable 和 callable 只有一个非 null（不为 Runnable 再包一层 Callable，少分配一个对象） */
+        private Runnable runnable;
+        private Callable<V> callable;
+
+        /** 0 表示一次性任务；> 0 固定频率；< 0 固定间隔 */
+        private final long period;
+
+        /** 下一次执行的计划时间（System.nanoTime） */
+        private volatile long deadline;
+
+        volatile int state;
+
+        /** 结果或异常，在 COMPLETING 之后、最终状态的 volatile 写之前写入 */
+        private Object outcome;
+
+        /** 是否有线程在 get() 中等待 */
+        private volatile boolean waiting;
+
+        // 以下字段只由时间轮线程访问（next 在压入待插入栈时由提交线程写入，CAS 发布）
+        private long remainingRounds;
+        private Bucket bucket;
+        private ScheduledTask<?> prev;
+        private ScheduledTask<?> next;
+
+        ScheduledTask(SimpleScheduledPool scheduler, Runnable runnable, Callable<V> callable,
+                      long deadline, long period) {
+            this.scheduler = scheduler;
+            this.runnable = runnable;
+            this.callable = callable;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        boolean markRunning() {
+            return STATE.compareAndSet(this, WAITING, RUNNING);
+        }
+
+        @Override
+        public void run() {
+            if (state != RUNNING) {
+                return;
+            }
+            Runnable r = runnable;
+            Callable<V> c = callable;
+            try {
+                V result = null;
+                if (r != null) {
+                    r.run();
+                } else {
+                    result = c.call();
+                }
+                if (period == 0) {
+                    complete(RUNNING, DONE, result);
+                    return;
+                }
+            } catch (Throwable e) {
+                // 周期任务抛出异常后不再执行（与 ScheduledThreadPoolExecutor 一致）
+                complete(RUNNING, FAILED, e);
+                return;
+            }
+            deadline = period > 0 ? deadline + period : System.nanoTime() - period;
+            // 执行期间被取消时 CAS 失败，不再放回时间轮
+            if (STATE.compareAndSet(this, RUNNING, WAITING)) {
+                scheduler.reschedule(this);
+            }
+        }
+
+        void fail(Throwable e) {
+            complete(RUNNING, FAILED, e);
+        }
+
+        private boolean complete(int expect, int finalState, Object result) {
+            if (!STATE.compareAndSet(this, expect, COMPLETING)) {
+                return false;
+            }
+            outcome = result;
+            // volatile 写：读到最终状态的线程一定能看到 outcome
+            state = finalState;
+            runnable = null;
+            callable = null;
+            if (waiting) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            while (true) {
+                int s = state;
+                if (s != WAITING && !(s == RUNNING && period != 0)) {
+                    return false;
+                }
+                if (complete(s, CANCELLED, null)) {
+                    scheduler.cancelled.increment();
+                    if (s == WAITING) {
+                        // 交给时间轮线程从桶上摘除，释放内存
+                        scheduler.cancelledTasks.offer(this);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return state >= DONE;
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            if (state < DONE) {
+                synchronized (this) {
+                    waiting = true;
+                    while (state < DONE) {
+                        wait();
+                    }
+                }
+            }
+            return report();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (state < DONE) {
+                long deadlineNanos = System.nanoTime() + unit.toNanos(timeout);
+                synchronized (this) {
+                    waiting = true;
+                    while (state < DONE) {
+                        long remaining = deadlineNanos - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new TimeoutException();
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                }
+            }
+            return report();
+        }
+
+        @SuppressWarnings("unchecked")
+        private V report() throws ExecutionException {
+            switch (state) {
+                case DONE:
+                    return (V) outcome;
+                case FAILED:
+                    throw new ExecutionException((Throwable) outcome);
+                default:
+                    throw new CancellationException();
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    // ==================== 演示与基准 ====================
+
+    public static void main(String[] args) throws Exception {
+        demo1_ScheduleAndCancel();
+        demo2_PeriodicTasks();
+        benchmark1_MillionPendingTimeouts();
+        benchmark2_FiringAccuracy();
+    }
+
+    static SimpleThreadPool newPool(int threads) {
+        return new SimpleThreadPool(threads, threads, 60, TimeUnit.SECONDS, 100_000,
+                new SimpleThreadPool.AbortRejectPolicy(), SimpleThreadPool.Mode.SHARED_QUEUE);
+    }
+
+    /**
+     * 演示1：延迟任务、带返回值的任务和取消
+     */
+    static void demo1_ScheduleAndCancel() throws Exception {
+        System.out.println("========== 演示1：schedule 与 cancel ==========\n");
+        SimpleThreadPool pool = newPool(2);
+        SimpleScheduledPool scheduler = new SimpleScheduledPool(pool);
+        long start = System.nanoTime();
+
+        scheduler.schedule(() -> System.out.printf("  [%s] 100ms 任务执行，实际延迟 %.1fms%n",
+                Thread.currentThread().getName(), (System.nanoTime() - start) / 1e6), 100, TimeUnit.MILLISECONDS);
+        ScheduledFuture<String> answer = scheduler.schedule(() -> "42", 50, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> doomed = scheduler.schedule(() -> System.out.println("  不应该看到这一行"),
+                200, TimeUnit.MILLISECONDS);
+
+        System.out.printf("  Callable 结果: %s（剩余延迟 %dms 时开始等待）%n",
+                answer.get(), Math.max(0, answer.getDelay(TimeUnit.MILLISECONDS)));
+        System.out.printf("  取消 200ms 任务: %s, isCancelled=%s%n", doomed.cancel(false), doomed.isCancelled());
+        Thread.sleep(300);
+        System.out.println("  " + scheduler.getStatus());
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        pool.shutdown();
+        pool.awaitTermination(1000);
+        System.out.println();
+    }
+
+    /**
+     * 演示2：固定频率 vs 固定间隔（任务本身耗时 30ms，周期 50ms）
+     */
+    static void demo2_PeriodicTasks() throws Exception {
+        System.out.println("========== 演示2：scheduleAtFixedRate vs scheduleWithFixedDelay ==========\n");
+        SimpleThreadPool pool = newPool(2);
+        SimpleScheduledPool scheduler = new SimpleScheduledPool(pool);
+        long start = System.nanoTime();
+        List<Long> rateStarts = new ArrayList<>();
+        List<Long> delayStarts = new ArrayList<>();
+
+        ScheduledFuture<?> rate = scheduler.scheduleAtFixedRate(() -> {
+            synchronized (rateStarts) {
+                rateStarts.add((System.nanoTime() - start) / 1_000_000);
+            }
+            sleepMillis(30);
+        }, 0, 50, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> delay = scheduler.scheduleWithFixedDelay(() -> {
+            synchronized (delayStarts) {
+                delayStarts.add((System.nanoTime() - start) / 1_000_000);
+            }
+            sleepMillis(30);
+        }, 0, 50, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(420);
+        rate.cancel(false);
+        delay.cancel(false);
+        Thread.sleep(100);
+        synchronized (rateStarts) {
+            System.out.println("  固定频率开始时刻(ms): " + rateStarts);
+        }
+        synchronized (delayStarts) {
+            System.out.println("  固定间隔开始时刻(ms): " + delayStarts);
+        }
+        System.out.println("  → 固定频率每 50ms 一次；固定间隔每 30 + 50 = 80ms 一次");
+        System.out.println("  " + scheduler.getStatus());
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        pool.shutdown();
+        pool.awaitTermination(1000);
+        System.out.println();
+    }
+
+    /**
+     * 基准1：一百万个等待中的超时任务（典型场景：每个请求挂一个 10~60 秒的超时，请求完成后取消）
+     *
+     * 分别测量调度、取消的耗时，以及调度后和取消后的堆内存占用
+     */
+    static void benchmark1_MillionPendingTimeouts() throws Exception {
+        final int COUNT = 1_000_000;
+        System.out.println("========== 基准1：一百万个等待中的超时任务 ==========\n");
+        System.out.printf("%,d 个延迟 10~60 秒的任务：全部调度，再全部取消%n%n", COUNT);
+        System.out.printf("%-40s %-12s %-12s %-14s %-14s%n", "调度器", "调度 ns/个", "取消 ns/个",
+                "调度后堆 MB", "取消后堆 MB");
+
+        long[] delays = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            delays[i] = ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(60));
+        }
+        Runnable noop = () -> { };
+
+        // 先各跑一遍预热，再正式测量
+        for (int round = 0; round < 2; round++) {
+            boolean print = round == 1;
+
+            SimpleThreadPool pool = newPool(1);
+            SimpleScheduledPool wheel = new SimpleScheduledPool(pool);
+            runTimeouts("SimpleScheduledPool（1ms x 512 桶）", print, delays,
+                    (d) -> wheel.schedule(noop, d, TimeUnit.NANOSECONDS), () -> wheel.pendingCount());
+            wheel.shutdown();
+            wheel.awaitTermination(5, TimeUnit.SECONDS);
+            pool.shutdown();
+            pool.awaitTermination(1000);
+
+            ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1);
+            runTimeouts("ScheduledThreadPoolExecutor（默认）", print, delays,
+                    (d) -> stpe.schedule(noop, d, TimeUnit.NANOSECONDS), () -> stpe.getQueue().size());
+            stpe.shutdownNow();
+
+            ScheduledThreadPoolExecutor stpeRemove = new ScheduledThreadPoolExecutor(1);
+            stpeRemove.setRemoveOnCancelPolicy(true);
+            runTimeouts("ScheduledThreadPoolExecutor（removeOnCancel）", print, delays,
+                    (d) -> stpeRemove.schedule(noop, d, TimeUnit.NANOSECONDS), () -> stpeRemove.getQueue().size());
+            stpeRemove.shutdownNow();
+        }
+
+        System.out.println("\n→ 时间轮的调度和取消都是 O(1)，提交线程只做一次 CAS 压栈 / 入队；STPE 每次操作都要在堆上 siftUp/siftDown 并持有锁");
+        System.out.println("→ STPE 默认取消后任务仍留在堆里直到到期；时间轮取消后立即从桶上摘除，内存马上可以回收");
+        System.out.println();
+    }
+
+    interface Scheduler {
+        ScheduledFuture<?> schedule(long delayNanos);
+    }
+
+    interface Pending {
+        long count();
+    }
+
+    private static void runTimeouts(String label, boolean print, long[] delays,
+                                    Scheduler scheduler, Pending pending) throws InterruptedException {
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[delays.length];
+        long baseline = usedHeap();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < delays.length; i++) {
+            futures[i] = scheduler.schedule(delays[i]);
+        }
+        long scheduleNanos = System.nanoTime() - start;
+        // 等时间轮线程把任务挂到桶上（STPE 在 schedule 返回时已经入堆）
+        waitUntil(() -> pending.count() >= delays.length);
+        long afterSchedule = usedHeap() - baseline;
+
+        start = System.nanoTime();
+        for (ScheduledFuture<?> future : futures) {
+            future.cancel(false);
+        }
+        long cancelNanos = System.nanoTime() - start;
+        Arrays.fill(futures, null);
+        waitUntil(() -> pending.count() == 0 || pending.count() == delays.length);
+        long afterCancel = usedHeap() - baseline;
+
+        if (print) {
+            System.out.printf("%-40s %-12.1f %-12.1f %-14.1f %-14.1f%n", label,
+                    (double) scheduleNanos / delays.length, (double) cancelNanos / delays.length,
+                    afterSchedule / 1e6, Math.max(0, afterCancel) / 1e6);
+        }
+    }
+
+    interface Condition {
+        boolean met();
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.met() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * 基准2：触发精度 —— 10 万个任务在 0~1 秒内随机到期，统计实际执行时间比计划晚多少
+     */
+    static void benchmark2_FiringAccuracy() throws Exception {
+        final int COUNT = 100_000;
+        System.out.println("========== 基准2：触发精度 ==========\n");
+        System.out.printf("%,d 个任务在 0~1000ms 内随机到期，延迟 = 实际开始执行 - 计划时间%n%n", COUNT);
+        System.out.printf("%-40s %-10s %-10s %-10s %-10s%n", "调度器", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        SimpleThreadPool pool = newPool(2);
+        SimpleScheduledPool wheel = new SimpleScheduledPool(pool);
+        runAccuracy("SimpleScheduledPool（1ms tick）", COUNT,
+                (task, d) -> wheel.schedule(task, d, TimeUnit.NANOSECONDS));
+        wheel.shutdown();
+        wheel.awaitTermination(5, TimeUnit.SECONDS);
+        pool.shutdown();
+        pool.awaitTermination(1000);
+
+        ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(2);
+        runAccuracy("ScheduledThreadPoolExecutor", COUNT,
+                (task, d) -> stpe.schedule(task, d, TimeUnit.NANOSECONDS));
+        stpe.shutdown();
+        stpe.awaitTermination(5, TimeUnit.SECONDS);
+
+        System.out.println("\n→ 时间轮的延迟上限约为一个 tick（加上线程池排队）；STPE 按纳秒精确唤醒，精度更高，代价是 O(log n) 的堆操作");
+        System.out.println("→ 超时、心跳这类\"晚 1ms 无所谓、数量巨大、多数会被取消\"的任务适合时间轮；需要精确定时的少量任务用 STPE");
+        System.out.println("========== 基准完成 ==========");
+    }
+
+    interface TimedScheduler {
+        void schedule(Runnable task, long delayNanos);
+    }
+
+    private static void runAccuracy(String label, int count, TimedScheduler scheduler) throws InterruptedException {
+        long[] lateness = new long[count];
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            long delay = ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(1000));
+            long planned = System.nanoTime() + delay;
+            final int id = i;
+            scheduler.schedule(() -> {
+                lateness[id] = System.nanoTime() - planned;
+                done.countDown();
+            }, delay);
+        }
+        done.await(30, TimeUnit.SECONDS);
+        Arrays.sort(lateness);
+        System.out.printf("%-40s %-10.2f %-10.2f %-10.2f %-10.2f%n", label,
+                lateness[count / 2] / 1e6, lateness[(int) (count * 0.99)] / 1e6,
+                lateness[(int) (count * 0.999)] / 1e6, lateness[count - 1] / 1e6);
+    }
+
+    static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,242 +1,1461 @@
+import java.io.PrintStream;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Day06 - 手写简易线程池
  *
  * 实现要点：
- * 1. 核心线程池 - 固定数量的 Worker 线程
+ * 1. 核心线程 + 最大线程 - 队列满时扩容到 maximumPoolSize，非核心线程空闲超过 keepAliveTime 后回收
  * 2. 阻塞队列 - 缓冲待执行任务
  * 3. 拒绝策略 - 队列满时的处理方式
- * 4. 优雅关闭 - shutdown + awaitTermination
+ * 4. 生命周期 - RUNNING → SHUTDOWN → STOP → TERMINATED：关闭时立即唤醒空闲 Worker，
+ *    shutdownNow 返回未执行的任务，终止时完成 terminationFuture
+ * 5. 工作窃取模式 - 每个 Worker 一个双端队列，空闲时从其他 Worker 队尾窃取
+ * 6. 运行时调整 - setCorePoolSize / setMaximumPoolSize / setKeepAliveTime
+ * 7. 事件监听 - 提交/执行/拒绝等事件交给 PoolEventListener，默认不输出，热路径上没有同步 I/O
+ * 8. 每任务一个虚拟线程 - 适合阻塞 I/O 型任务，用 Semaphore 限制并发，超出上限仍走拒绝策略
+ * 9. 批量提交与 Future - submit / executeAll / invokeAll / invokeAny
+ * 10. 可替换任务队列 - 共享队列模式可传入任意 BlockingQueue（例如无锁的 MpmcRingQueue）
  *
  * 目标：理解 ThreadPoolExecutor 的核心工作原理
  */
-public class SimpleThreadPool {
+public class SimpleThreadPool implements Executor {
+
+    // ==================== 队列模式 ====================
+
+    /**
+     * 任务队列模式
+     */
+    enum Mode {
+        /** 所有 Worker 共享一个阻塞队列（默认 ArrayBlockingQueue，每次入队/出队都竞争同一把锁） */
+        SHARED_QUEUE,
+        /**
+         * 工作窃取：每个 Worker 拥有自己的无锁双端队列
+         * - Worker 线程内提交的任务压入自己队列的头部，自己也从头部取（LIFO，缓存友好）
+         * - 外部线程提交的任务随机放入某个 Worker 队列的尾部
+         * - 自己的队列空了就从其他 Worker 队列的尾部窃取（与队列主人从两端操作，减少冲突）
+         */
+        WORK_STEALING,
+        /**
+         * 每个任务一个线程（JDK 21+ 使用虚拟线程，低版本退化为平台线程）
+         * - 不创建 Worker，阻塞的任务只占用很小的虚拟线程栈，而不是一个平台线程
+         * - 最多 maximumPoolSize 个任务同时运行，另有 queueCapacity 个任务可以等待许可
+         * - 两者都用满时触发拒绝策略，与其他模式的契约一致
+         */
+        VIRTUAL_THREAD_PER_TASK
+    }
+
+    // ==================== 事件监听接口 ====================
+
+    /**
+     * 线程池事件监听器
+     *
+     * 回调发生在提交线程或 Worker 线程上，实现必须足够轻量：
+     * - NO_OP：默认，不做任何事
+     * - ConsoleEventListener：同步打印到控制台（调试用，每次 printf 都要竞争 PrintStream 的锁）
+     * - AsyncEventSink：写入环形缓冲区，由后台线程异步输出
+     */
+    interface PoolEventListener {
+
+        PoolEventListener NO_OP = new PoolEventListener() {
+        };
+
+        default void poolCreated(int corePoolSize, int maximumPoolSize, int queueCapacity, Mode mode) {
+        }
+
+        /** 任务进入队列 */
+        default void taskQueued(int taskNo, int queueSize) {
+        }
+
+        /** 任务直接交给新建的 Worker 执行 */
+        default void taskHandedToNewWorker(int taskNo, int poolSize, boolean core) {
+        }
+
+        /** 队列已满且无法扩容，即将执行拒绝策略 */
+        default void taskRejected(int queueSize, int poolSize) {
+        }
+
+        /** CallerRuns 策略下由提交线程执行任务 */
+        default void taskRunByCaller(String threadName) {
+        }
+
+        default void workerStarted(String workerName) {
+        }
+
+        default void beforeExecute(String workerName) {
+        }
+
+        /**
+         * @param error 任务抛出的异常，正常完成时为 null
+         */
+        default void afterExecute(String workerName, Throwable error) {
+        }
+
+        default void workerInterrupted(String workerName) {
+        }
+
+        /**
+         * @param reaped true 表示空闲超时或超出 maximumPoolSize 被回收
+         */
+        default void workerExited(String workerName, boolean reaped) {
+        }
+
+        default void poolResized(int corePoolSize, int maximumPoolSize) {
+        }
+
+        default void poolShutdown(boolean now) {
+        }
+
+        default void poolTerminated(int remainingWorkers) {
+        }
+    }
+
+    /**
+     * 同步打印到控制台（原来硬编码在线程池里的输出）
+     */
+    static class ConsoleEventListener implements PoolEventListener {
+        private final PrintStream out;
+
+        ConsoleEventListener() {
+            this(System.out);
+        }
+
+        ConsoleEventListener(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void poolCreated(int corePoolSize, int maximumPoolSize, int queueCapacity, Mode mode) {
+            out.printf("[SimpleThreadPool] 初始化: corePoolSize=%d, maximumPoolSize=%d, queueCapacity=%d, mode=%s%n",
+                    corePoolSize, maximumPoolSize, queueCapacity, mode);
+        }
+
+        @Override
+        public void taskQueued(int taskNo, int queueSize) {
+            out.printf("[SimpleThreadPool] 任务 #%d 已加入队列（队列大小=%d）%n", taskNo, queueSize);
+        }
+
+        @Override
+        public void taskHandedToNewWorker(int taskNo, int poolSize, boolean core) {
+            if (core) {
+                out.printf("[SimpleThreadPool] 任务 #%d 由新建核心线程执行%n", taskNo);
+            } else {
+                out.printf("[SimpleThreadPool] 队列已满，任务 #%d 由新建非核心线程执行（线程数=%d）%n",
+                        taskNo, poolSize);
+            }
+        }
+
+        @Override
+        public void taskRejected(int queueSize, int poolSize) {
+            out.printf("[SimpleThreadPool] 队列已满！触发拒绝策略%n");
+        }
+
+        @Override
+        public void taskRunByCaller(String threadName) {
+            out.printf("  [拒绝策略] 由调用者线程 [%s] 执行任务%n", threadName);
+        }
+
+        @Override
+        public void workerStarted(String workerName) {
+            out.printf("  [%s] Worker 启动%n", workerName);
+        }
+
+        @Override
+        public void beforeExecute(String workerName) {
+            out.printf("  [%s] 取到任务，开始执行%n", workerName);
+        }
+
+        @Override
+        public void afterExecute(String workerName, Throwable error) {
+            if (error != null) {
+                out.printf("  [%s] 任务执行异常: %s%n", workerName, error.getMessage());
+            }
+            out.printf("  [%s] 任务执行完毕%n", workerName);
+        }
+
+        @Override
+        public void workerInterrupted(String workerName) {
+            out.printf("  [%s] Worker 被中断，准备退出%n", workerName);
+        }
+
+        @Override
+        public void workerExited(String workerName, boolean reaped) {
+            if (reaped) {
+                out.printf("  [%s] 空闲超过 keepAliveTime，回收%n", workerName);
+            }
+            out.printf("  [%s] Worker 退出%n", workerName);
+        }
+
+        @Override
+        public void poolResized(int corePoolSize, int maximumPoolSize) {
+            out.printf("[SimpleThreadPool] 线程数调整为 corePoolSize=%d, maximumPoolSize=%d%n",
+                    corePoolSize, maximumPoolSize);
+        }
+
+        @Override
+        public void poolShutdown(boolean now) {
+            out.println(now ? "[SimpleThreadPool] 立即关闭，中断所有线程..." : "[SimpleThreadPool] 开始关闭...");
+        }
+
+        @Override
+        public void poolTerminated(int remainingWorkers) {
+            out.printf("[SimpleThreadPool] 已关闭（剩余工作线程=%d）%n", remainingWorkers);
+        }
+    }
 
     // ==================== 拒绝策略接口 ====================
 
     /**
-     * 拒绝策略接口
+     * 拒绝策略接口
+     */
+    @FunctionalInterface
+    interface RejectPolicy {
+        void reject(Runnable task, SimpleThreadPool pool);
+    }
+
+    /**
+     * 默认拒绝策略：抛出异常
+     */
+    static class AbortRejectPolicy implements RejectPolicy {
+        @Override
+        public void reject(Runnable task, SimpleThreadPool pool) {
+            throw new RuntimeException("[拒绝策略] 线程池已满，任务被拒绝！" +
+                    " 队列大小=" + pool.queueSize() +
+                    " 工作线程=" + pool.workerCount.get());
+        }
+    }
+
+    /**
+     * 调用者执行策略：由提交任务的线程自己执行
+     */
+    static class CallerRunsRejectPolicy implements RejectPolicy {
+        @Override
+        public void reject(Runnable task, SimpleThreadPool pool) {
+            if (!pool.isShutdown()) {
+                pool.listener.taskRunByCaller(Thread.currentThread().getName());
+                task.run();
+            }
+        }
+    }
+
+    // ==================== 轻量 Future ====================
+
+    /**
+     * submit 返回的 Future
+     *
+     * 与 FutureTask 相比更轻：没有等待者链表，只有一个 AtomicInteger 状态。
+     * 没人调用 get() 时，完成任务只需一次 volatile 写；有人等待时才加锁 notifyAll。
+     * cancel 只能取消尚未开始的任务（不中断正在运行的任务）。
+     */
+    static class TaskFuture<V> implements RunnableFuture<V> {
+        private static final int NEW = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int FAILED = 3;
+        private static final int CANCELLED = 4;
+
+        private final AtomicInteger state = new AtomicInteger(NEW);
+        private Callable<V> callable;
+
+        /** 结果或异常，在 state 的 volatile 写之前写入 */
+        private Object outcome;
+
+        /** 是否有线程在 get() 中等待（与 state 构成 Dekker 式的可见性配对） */
+        private volatile boolean waiting;
+
+        /** invokeAny 使用：完成时把自己放入该队列，可以为 null */
+        private final BlockingQueue<TaskFuture<V>> completionQueue;
+
+        TaskFuture(Callable<V> callable) {
+            this(callable, null);
+        }
+
+        TaskFuture(Callable<V> callable, BlockingQueue<TaskFuture<V>> completionQueue) {
+            this.callable = callable;
+            this.completionQueue = completionQueue;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(NEW, RUNNING)) {
+                return;
+            }
+            try {
+                finish(DONE, callable.call());
+            } catch (Throwable e) {
+                finish(FAILED, e);
+            }
+        }
+
+        private void finish(int finalState, Object result) {
+            outcome = result;
+            callable = null;
+            state.set(finalState);
+            if (waiting) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+            if (completionQueue != null) {
+                completionQueue.offer(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!state.compareAndSet(NEW, CANCELLED)) {
+                return false;
+            }
+            finish(CANCELLED, null);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return state.get() >= DONE;
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException {
+            if (state.get() < DONE) {
+                synchronized (this) {
+                    waiting = true;
+                    while (state.get() < DONE) {
+                        wait();
+                    }
+                }
+            }
+            return report();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (state.get() < DONE) {
+                long deadline = System.nanoTime() + unit.toNanos(timeout);
+                synchronized (this) {
+                    waiting = true;
+                    while (state.get() < DONE) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new TimeoutException();
+                        }
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    }
+                }
+            }
+            return report();
+        }
+
+        @SuppressWarnings("unchecked")
+        private V report() throws ExecutionException {
+            switch (state.get()) {
+                case DONE:
+                    return (V) outcome;
+                case FAILED:
+                    throw new ExecutionException((Throwable) outcome);
+                default:
+                    throw new CancellationException();
+            }
+        }
+    }
+
+    // ==================== Worker 工作线程 ====================
+
+    /**
+     * Worker 线程：从任务队列取任务并执行
+     */
+    class Worker implements Runnable {
+        private final String name;
+
+        /** 运行该 Worker 的线程 */
+        private Thread thread;
+
+        /** 创建时直接交给它的第一个任务（队列满时扩容创建的线程），可以为 null */
+        private Runnable firstTask;
+
+        /** 工作窃取模式下的本地任务队列（头部归自己，尾部供他人窃取） */
+        private final Deque<Runnable> localTasks = new ConcurrentLinkedDeque<>();
+
+        /** 是否已被回收（工作窃取模式下，提交方看到该标志会把任务转投其他 Worker） */
+        private volatile boolean retired;
+
+        /**
+         * 执行任务期间为 true：interruptIdleWorkers 只中断拿得到该标志的（空闲）Worker，不会打断正在执行的任务。
+         * 不可重入，任务内部调用 shutdown() 也不会中断自己所在的 Worker。
+         */
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        Worker(String name, Runnable firstTask) {
+            this.name = name;
+            this.firstTask = firstTask;
+        }
+
+        @Override
+        public void run() {
+            currentWorker.set(this);
+            listener.workerStarted(name);
+            Runnable task = firstTask;
+            firstTask = null;
+            boolean reaped = false;
+            boolean abrupt = true;
+            long idleSince = System.nanoTime();
+            try {
+                // 核心循环：不断从队列取任务执行，STOP 之后立即退出
+                while (runState.get() < STOP) {
+                    try {
+                        if (task == null) {
+                            // maximumPoolSize 被调小后，多出的线程直接退出
+                            if (workerCount.get() > maximumPoolSize && tryRetire(maximumPoolSize)) {
+                                reaped = true;
+                                break;
+                            }
+                            if (runState.get() == SHUTDOWN) {
+                                // 关闭后不再阻塞等待：取不到任务说明队列已空，直接退出
+                                task = mode == Mode.WORK_STEALING ? takeLocalOrSteal(0) : taskQueue.poll();
+                                if (task == null) {
+                                    break;
+                                }
+                            } else {
+                                // 超过核心线程数的线程按 keepAliveTime 计时；核心线程一直阻塞，
+                                // 关闭或调整参数时由 interruptIdleWorkers 唤醒
+                                boolean timed = workerCount.get() > corePoolSize;
+                                long waitNanos = timed
+                                        ? Math.max(0, keepAliveNanos - (System.nanoTime() - idleSince))
+                                        : Long.MAX_VALUE;
+                                if (mode == Mode.WORK_STEALING) {
+                                    task = takeLocalOrSteal(waitNanos);
+                                } else {
+                                    task = timed ? taskQueue.poll(waitNanos, TimeUnit.NANOSECONDS) : taskQueue.take();
+                                }
+                                if (task == null) {
+                                    if (timed && System.nanoTime() - idleSince >= keepAliveNanos
+                                            && tryRetire(corePoolSize)) {
+                                        reaped = true;
+                                        break;
+                                    }
+                                    continue;
+                                }
+                            }
+                        }
+                        runTask(task);
+                        task = null;
+                        idleSince = System.nanoTime();
+                    } catch (InterruptedException e) {
+                        // 空闲时被唤醒（shutdown / 调整线程数），回到循环开头重新检查状态
+                        if (runState.get() >= STOP) {
+                            listener.workerInterrupted(name);
+                        }
+                    }
+                }
+                abrupt = false;
+            } finally {
+                processExit(reaped, abrupt);
+            }
+        }
+
+        /**
+         * Worker 退出时的收尾，放在 finally 中：任务抛出 Error 时线程计数也不会泄漏，线程池仍能正常终止
+         *
+         * @param reaped 是否被回收（回收时 tryRetire 已经减过线程计数）
+         * @param abrupt 是否因为任务抛出 Error 而意外退出
+         */
+        private void processExit(boolean reaped, boolean abrupt) {
+            workers.remove(this);
+            // 标记后提交方会把刚放入本地队列的任务取回转投其他 Worker，已留在队列中的由下面清空
+            retired = true;
+            try {
+                // 退出前把仍留在本地队列中的任务执行完（提交方可能刚好在退出前放入）；STOP 之后直接丢弃
+                Runnable remaining;
+                while ((remaining = localTasks.pollFirst()) != null) {
+                    queuedCount.decrementAndGet();
+                    if (runState.get() < STOP) {
+                        runTask(remaining);
+                    }
+                }
+            } finally {
+                if (!reaped) {
+                    workerCount.decrementAndGet();
+                }
+                listener.workerExited(name, reaped);
+                if (abrupt && runState.get() == RUNNING) {
+                    // 意外退出的线程由新线程补上
+                    addWorker(null, maximumPoolSize);
+                } else {
+                    ensureDrainer();
+                }
+                tryTerminate();
+            }
+        }
+
+        private void runTask(Runnable task) {
+            lock();
+            try {
+                // STOP 之后保留中断让任务尽快结束；否则清除空闲时收到的中断，
+                // 清除后再检查一次状态，避免吞掉刚好到达的 shutdownNow 中断
+                boolean stopping = runState.get() >= STOP;
+                if (!stopping) {
+                    Thread.interrupted();
+                    stopping = runState.get() >= STOP;
+                }
+                if (stopping) {
+                    Thread.currentThread().interrupt();
+                }
+                listener.beforeExecute(name);
+                Throwable error = null;
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    error = e;
+                } catch (Error e) {
+                    // Error 报告后继续抛出：Worker 退出，由 processExit 收尾并补充线程
+                    listener.afterExecute(name, e);
+                    throw e;
+                }
+                listener.afterExecute(name, error);
+            } finally {
+                unlock();
+            }
+        }
+
+        private void lock() {
+            // interruptIdleWorkers 只持有标志一瞬间，自旋即可
+            while (!busy.compareAndSet(false, true)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private boolean tryLock() {
+            return busy.compareAndSet(false, true);
+        }
+
+        private void unlock() {
+            busy.set(false);
+        }
+
+        /**
+         * 工作窃取模式取任务：本地队列头部 → 窃取其他 Worker 队列尾部 → 登记空闲并 park
+         *
+         * @param waitNanos 没有任务时最多 park 的时间
+         */
+        private Runnable takeLocalOrSteal(long waitNanos) throws InterruptedException {
+            Runnable task = localTasks.pollFirst();
+            if (task == null) {
+                task = steal();
+            }
+            if (task == null && waitNanos > 0) {
+                // 先登记空闲再扫描一次：提交方入队后会唤醒空闲 Worker，避免丢失唤醒
+                idleWorkers.offer(this);
+                task = steal();
+                if (task == null) {
+                    LockSupport.parkNanos(this, waitNanos);
+                }
+                idleWorkers.remove(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            if (task != null) {
+                queuedCount.decrementAndGet();
+            }
+            return task;
+        }
+
+        /**
+         * 从随机位置开始扫描所有 Worker，从队尾窃取一个任务（包括自己的队列）
+         */
+        private Runnable steal() {
+            // 取一次快照再扫描：Worker 退出时会从列表中移除自己，size() 与 get() 之间列表可能变短
+            Worker[] ws = workers.toArray(new Worker[0]);
+            int n = ws.length;
+            if (n == 0) {
+                return null;
+            }
+            int start = ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                Worker victim = ws[(start + i) % n];
+                Runnable task = victim.localTasks.pollLast();
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+    }
+
+    // ==================== 线程池核心字段 ====================
+
+    /** 虚拟线程工厂（Thread.ofVirtual().factory()），当前 JDK 不支持时为 null */
+    static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    /** 核心线程数（可在运行时调整） */
+    private volatile int corePoolSize;
+
+    /** 最大线程数（可在运行时调整） */
+    private volatile int maximumPoolSize;
+
+    /** 非核心线程的空闲存活时间（纳秒） */
+    private volatile long keepAliveNanos;
+
+    /** 队列容量（工作窃取模式下为所有本地队列的总容量） */
+    private final int queueCapacity;
+
+    /** 队列模式 */
+    private final Mode mode;
+
+    /** 任务队列（共享队列模式使用，默认 ArrayBlockingQueue，可由构造方法替换） */
+    private final BlockingQueue<Runnable> taskQueue;
+
+    /** 拒绝策略 */
+    private final RejectPolicy rejectPolicy;
+
+    /** 事件监听器（默认 NO_OP） */
+    private final PoolEventListener listener;
+
+    /** 工作线程列表（工作窃取时需要遍历，使用写时复制列表） */
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+
+    /** 工作窃取模式：所有本地队列中的任务总数 */
+    private final AtomicInteger queuedCount = new AtomicInteger(0);
+
+    /** 工作窃取模式：正在 park 的空闲 Worker */
+    private final ConcurrentLinkedQueue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+
+    /** 当前线程对应的 Worker（判断提交方是否是本池的 Worker） */
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+
+    /** 运行中：接受新任务 */
+    private static final int RUNNING = 0;
+
+    /** shutdown() 之后：不再接受新任务，执行完已排队的任务 */
+    private static final int SHUTDOWN = 1;
+
+    /** shutdownNow() 之后：丢弃已排队的任务，中断正在执行的任务 */
+    private static final int STOP = 2;
+
+    /** 所有线程都已退出 */
+    private static final int TERMINATED = 3;
+
+    /** 生命周期状态（只增不减） */
+    private final AtomicInteger runState = new AtomicInteger(RUNNING);
+
+    private static final String[] STATE_NAMES = {"RUNNING", "SHUTDOWN", "STOP", "TERMINATED"};
+
+    /** 进入 TERMINATED 时完成 */
+    private final CompletableFuture<Void> terminationFuture = new CompletableFuture<>();
+
+    /** 当前工作线程数 */
+    private final AtomicInteger workerCount = new AtomicInteger(0);
+
+    /** 历史峰值线程数 */
+    private final AtomicInteger largestPoolSize = new AtomicInteger(0);
+
+    /** 已提交任务数（统计用） */
+    private final AtomicInteger submittedCount = new AtomicInteger(0);
+
+    /** executeAll 一个分片最多包含的任务数 */
+    private static final int MAX_BATCH_SLICE = 256;
+
+    /** 线程编号 */
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    /** 每任务一个线程模式：已接纳（运行中 + 等待许可）的任务数上限 maximumPoolSize + queueCapacity，其他模式为 null */
+    private final Semaphore admission;
+
+    /** 每任务一个线程模式：同时运行的任务数上限 maximumPoolSize，其他模式为 null */
+    private final Semaphore concurrency;
+
+    /** 每任务一个线程模式：存活的任务线程（shutdownNow 时中断） */
+    private final Set<Thread> taskThreads = ConcurrentHashMap.newKeySet();
+
+    // ==================== 构造方法 ====================
+
+    /**
+     * 创建简易线程池
+     *
+     * @param corePoolSize 核心线程数
+     * @param maximumPoolSize 最大线程数（队列满时扩容的上限）
+     * @param keepAliveTime 非核心线程的空闲存活时间
+     * @param unit keepAliveTime 的时间单位
+     * @param queueCapacity 任务队列容量
+     * @param rejectPolicy 拒绝策略
+     * @param mode 队列模式
+     * @param listener 事件监听器
+     */
+    public SimpleThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                            int queueCapacity, RejectPolicy rejectPolicy, Mode mode, PoolEventListener listener) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, queueCapacity,
+                new ArrayBlockingQueue<>(checkCapacity(queueCapacity)), rejectPolicy, mode, listener);
+    }
+
+    /**
+     * 共享队列模式，使用指定的任务队列
+     *
+     * @param workQueue 任务队列，例如 ArrayBlockingQueue、LinkedBlockingQueue、SynchronousQueue、MpmcRingQueue；
+     *                  队列容量取 remainingCapacity()，SynchronousQueue 只有在有空闲 Worker 等待时才能入队
+     */
+    public SimpleThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                            BlockingQueue<Runnable> workQueue, RejectPolicy rejectPolicy, PoolEventListener listener) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue.remainingCapacity(), workQueue,
+                rejectPolicy, Mode.SHARED_QUEUE, listener);
+    }
+
+    private SimpleThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                             int queueCapacity, BlockingQueue<Runnable> workQueue, RejectPolicy rejectPolicy,
+                             Mode mode, PoolEventListener listener) {
+        if (corePoolSize <= 0) {
+            throw new IllegalArgumentException("corePoolSize 必须大于 0");
+        }
+        if (maximumPoolSize < corePoolSize || keepAliveTime < 0) {
+            throw new IllegalArgumentException("maximumPoolSize 不能小于 corePoolSize，keepAliveTime 不能为负数");
+        }
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.keepAliveNanos = unit.toNanos(keepAliveTime);
+        this.queueCapacity = queueCapacity;
+        this.mode = mode;
+        this.taskQueue = workQueue;
+        this.rejectPolicy = rejectPolicy;
+        this.listener = listener;
+        boolean perTask = mode == Mode.VIRTUAL_THREAD_PER_TASK;
+        this.admission = perTask ? new Semaphore(maximumPoolSize + queueCapacity) : null;
+        this.concurrency = perTask ? new Semaphore(maximumPoolSize) : null;
+
+        // 预先创建所有核心线程（每任务一个线程模式没有常驻 Worker）
+        listener.poolCreated(corePoolSize, maximumPoolSize, queueCapacity, mode);
+        if (!perTask) {
+            for (int i = 0; i < corePoolSize; i++) {
+                addWorker(null, corePoolSize);
+            }
+        }
+    }
+
+    /**
+     * 不输出事件
+     */
+    public SimpleThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                            int queueCapacity, RejectPolicy rejectPolicy, Mode mode) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, queueCapacity, rejectPolicy, mode,
+                PoolEventListener.NO_OP);
+    }
+
+    /**
+     * 共享队列模式，支持扩容到 maximumPoolSize
+     */
+    public SimpleThreadPool(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                            int queueCapacity, RejectPolicy rejectPolicy) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, queueCapacity, rejectPolicy, Mode.SHARED_QUEUE);
+    }
+
+    /**
+     * 固定线程数（maximumPoolSize = corePoolSize）
+     */
+    public SimpleThreadPool(int corePoolSize, int queueCapacity, RejectPolicy rejectPolicy, Mode mode) {
+        this(corePoolSize, corePoolSize, 60L, TimeUnit.SECONDS, queueCapacity, rejectPolicy, mode);
+    }
+
+    /**
+     * 共享队列模式
+     */
+    public SimpleThreadPool(int corePoolSize, int queueCapacity, RejectPolicy rejectPolicy) {
+        this(corePoolSize, queueCapacity, rejectPolicy, Mode.SHARED_QUEUE);
+    }
+
+    /**
+     * 使用默认拒绝策略创建线程池
+     */
+    public SimpleThreadPool(int corePoolSize, int queueCapacity) {
+        this(corePoolSize, queueCapacity, new AbortRejectPolicy());
+    }
+
+    private static int checkCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity 必须大于 0");
+        }
+        return queueCapacity;
+    }
+
+    // ==================== 核心方法 ====================
+
+    /**
+     * 创建并启动一个 Worker 线程
+     *
+     * @param firstTask 新线程的第一个任务，可以为 null
+     * @param limit 线程数上限（corePoolSize 或 maximumPoolSize）
+     * @return false 表示线程数已达上限或线程池已关闭
+     */
+    private boolean addWorker(Runnable firstTask, int limit) {
+        if (runState.get() != RUNNING) {
+            return false;
+        }
+        return startWorker(firstTask, limit);
+    }
+
+    /**
+     * SHUTDOWN 之后队列中还有任务、却已经没有 Worker 时（最后一个 Worker 退出与提交方入队交错），
+     * 补一个线程把队列清空，否则这些任务永远不会执行，线程池也无法终止
+     */
+    private void ensureDrainer() {
+        if (runState.get() == SHUTDOWN && workerCount.get() == 0 && hasPendingTasks()) {
+            startWorker(null, 1);
+        }
+    }
+
+    /**
+     * 不检查运行状态，线程数小于 limit 时创建并启动 Worker
+     */
+    private boolean startWorker(Runnable firstTask, int limit) {
+        // CAS 占位，保证并发扩容时线程数不超过上限
+        int count;
+        do {
+            count = workerCount.get();
+            if (count >= limit) {
+                return false;
+            }
+        } while (!workerCount.compareAndSet(count, count + 1));
+        largestPoolSize.accumulateAndGet(count + 1, Math::max);
+
+        String name = "SimplePool-worker-" + threadNumber.getAndIncrement();
+        Worker worker = new Worker(name, firstTask);
+        Thread thread = new Thread(worker, name);
+        thread.setDaemon(false);
+        worker.thread = thread;
+        workers.add(worker);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 线程数大于 floor 时减少一个线程计数，成功表示调用方可以退出
+     */
+    private boolean tryRetire(int floor) {
+        int count;
+        do {
+            count = workerCount.get();
+            if (count <= floor) {
+                return false;
+            }
+        } while (!workerCount.compareAndSet(count, count - 1));
+        return true;
+    }
+
+    /**
+     * 提交任务到线程池
+     *
+     * @param task 待执行的任务
+     */
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        if (runState.get() != RUNNING) {
+            throw new RuntimeException("线程池已关闭，无法提交新任务");
+        }
+        dispatch(task, 1);
+    }
+
+    /**
+     * 把一个可执行单元交给线程池
+     *
+     * @param taskCount 该单元包含的任务数（executeAll 的分片大于 1），计入已提交任务数
+     */
+    private void dispatch(Runnable task, int taskCount) {
+        if (mode == Mode.VIRTUAL_THREAD_PER_TASK) {
+            executePerTask(task, taskCount);
+            return;
+        }
+
+        // 核心线程不足（例如刚调大 corePoolSize）时直接创建核心线程
+        if (workerCount.get() < corePoolSize && addWorker(task, corePoolSize)) {
+            listener.taskHandedToNewWorker(submittedCount.addAndGet(taskCount), workerCount.get(), true);
+            return;
+        }
+
+        // 尝试放入队列
+        boolean offered = mode == Mode.WORK_STEALING ? pushToWorker(task) : taskQueue.offer(task);
+        if (offered) {
+            // 入队后再检查一次：检查状态与入队之间线程池可能已关闭、Worker 已全部退出，任务不能留在队列里
+            if (runState.get() != RUNNING) {
+                if (removeQueued(task)) {
+                    throw new RuntimeException("线程池已关闭，无法提交新任务");
+                }
+                // 撤回失败：任务可能已被 Worker 取走，也可能仍在队列中（队列不支持按元素删除、
+                // 目标 Worker 正在退出），最后一个 Worker 可能已经退出，保证有线程把队列清空
+                ensureDrainer();
+            }
+            int count = submittedCount.addAndGet(taskCount);
+            // NO_OP 时不要为了事件参数额外查询队列大小
+            if (listener != PoolEventListener.NO_OP) {
+                listener.taskQueued(count, queueSize());
+            }
+        } else if (addWorker(task, maximumPoolSize)) {
+            // 队列满了，扩容非核心线程直接执行该任务
+            listener.taskHandedToNewWorker(submittedCount.addAndGet(taskCount), workerCount.get(), false);
+        } else {
+            // 队列满了，触发拒绝策略
+            listener.taskRejected(queueSize(), workerCount.get());
+            rejectPolicy.reject(task, this);
+        }
+    }
+
+    /**
+     * 工作窃取模式入队：Worker 线程压入自己队列头部，外部线程随机放入某个 Worker 队列尾部
+     *
+     * @return false 表示所有本地队列的任务总数已达容量上限
+     */
+    private boolean pushToWorker(Runnable task) {
+        // 先占位再入队，保证总数不超过 queueCapacity
+        int queued;
+        do {
+            queued = queuedCount.get();
+            if (queued >= queueCapacity) {
+                return false;
+            }
+        } while (!queuedCount.compareAndSet(queued, queued + 1));
+
+        Worker self = currentWorker.get();
+        while (true) {
+            Worker target = self;
+            if (target == null || target.retired) {
+                // 快照：并发退出的 Worker 会让列表变短，不能先 size() 再 get()
+                Worker[] ws = workers.toArray(new Worker[0]);
+                if (ws.length == 0) {
+                    queuedCount.decrementAndGet();
+                    return false;
+                }
+                // 随机选择而不是轮询计数器，避免外部提交方争抢同一个原子变量
+                target = ws[ThreadLocalRandom.current().nextInt(ws.length)];
+            }
+            if (target == self) {
+                target.localTasks.addFirst(task);
+            } else {
+                target.localTasks.addLast(task);
+            }
+            // 目标 Worker 正在被回收：它的最后一次清空可能已经结束，把任务取回来转投其他 Worker
+            if (!target.retired || !target.localTasks.removeLastOccurrence(task)) {
+                break;
+            }
+        }
+
+        Worker idle = idleWorkers.poll();
+        if (idle != null) {
+            LockSupport.unpark(idle.thread);
+        }
+        return true;
+    }
+
+    /**
+     * 从队列中撤回一个刚入队的任务
+     *
+     * @return false 表示任务已被 Worker 取走，或无法撤回（调用方负责保证有线程清空队列）
+     */
+    private boolean removeQueued(Runnable task) {
+        if (mode == Mode.WORK_STEALING) {
+            for (Worker worker : workers) {
+                if (worker.localTasks.removeLastOccurrence(task)) {
+                    queuedCount.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+        try {
+            return taskQueue.remove(task);
+        } catch (UnsupportedOperationException e) {
+            // 例如 MpmcRingQueue
+            return false;
+        }
+    }
+
+    // ==================== 批量提交与 Future ====================
+
+    /**
+     * 提交有返回值的任务
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        if (task == null) {
+            throw new NullPointerException("任务不能为 null");
+        }
+        TaskFuture<T> future = new TaskFuture<>(task);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * 批量提交任务
+     *
+     * 按顺序把任务切成若干分片，每个分片作为一个单元入队：一个分片只占一个队列位置、
+     * 只竞争一次队列锁、只更新一次计数器。分片大小按线程数计算，保证每个线程至少能分到几个分片。
+     * 分片中某个任务抛出异常不影响后续任务，第一个异常在分片结束后抛出（交给 afterExecute）。
+     * 队列满时拒绝策略以分片为单位执行。
+     */
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        if (runState.get() != RUNNING) {
+            throw new RuntimeException("线程池已关闭，无法提交新任务");
+        }
+        Runnable[] batch = tasks.toArray(new Runnable[0]);
+        for (Runnable task : batch) {
+            if (task == null) {
+                throw new NullPointerException("任务不能为 null");
+            }
+        }
+        int threads = Math.max(1, mode == Mode.VIRTUAL_THREAD_PER_TASK ? maximumPoolSize : workerCount.get());
+        int sliceSize = Math.max(1, Math.min(MAX_BATCH_SLICE, batch.length / (threads * 4)));
+        for (int from = 0; from < batch.length; from += sliceSize) {
+            int to = Math.min(batch.length, from + sliceSize);
+            if (to - from == 1) {
+                dispatch(batch[from], 1);
+            } else {
+                dispatch(new BatchSlice(batch, from, to), to - from);
+            }
+        }
+    }
+
+    /**
+     * executeAll 的一个分片：在同一个 Worker 上依次执行 [from, to) 范围内的任务
+     */
+    private static final class BatchSlice implements Runnable {
+        private final Runnable[] tasks;
+        private final int from;
+        private final int to;
+
+        BatchSlice(Runnable[] tasks, int from, int to) {
+            this.tasks = tasks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            RuntimeException first = null;
+            for (int i = from; i < to; i++) {
+                try {
+                    tasks[i].run();
+                } catch (RuntimeException e) {
+                    if (first == null) {
+                        first = e;
+                    }
+                }
+            }
+            if (first != null) {
+                throw first;
+            }
+        }
+    }
+
+    /**
+     * 批量提交并等待全部完成（任务通过 executeAll 一次性入队）
+     *
+     * 提交中途被拒绝或等待时被中断，会取消全部任务后再抛出：已入队的分片不会在调用方放弃后继续执行。
+     */
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        List<TaskFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new TaskFuture<>(task));
+        }
+        try {
+            executeAll(futures);
+            for (TaskFuture<T> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException | CancellationException ignored) {
+                    // 结果由调用方通过 Future 查看
+                }
+            }
+        } catch (InterruptedException | RuntimeException | Error e) {
+            for (TaskFuture<T> future : futures) {
+                future.cancel(false);
+            }
+            throw e;
+        }
+        return new ArrayList<>(futures);
+    }
+
+    /**
+     * 批量提交，返回第一个成功完成的结果，并取消其余尚未开始的任务
+     *
+     * @throws ExecutionException 所有任务都失败时，携带最后一个异常
+     */
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        if (tasks.isEmpty()) {
+            throw new IllegalArgumentException("tasks 不能为空");
+        }
+        BlockingQueue<TaskFuture<T>> completed = new ArrayBlockingQueue<>(tasks.size());
+        List<TaskFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new TaskFuture<>(task, completed));
+        }
+        ExecutionException last = null;
+        try {
+            executeAll(futures);
+            for (int i = 0; i < futures.size(); i++) {
+                TaskFuture<T> future = completed.take();
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    last = e;
+                }
+            }
+            throw last;
+        } finally {
+            for (TaskFuture<T> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    // ==================== 每任务一个线程 ====================
+
+    /**
+     * 通过反射获取虚拟线程工厂，这样本文件在 JDK 17 上也能编译运行
+     */
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // JDK 21 之前没有 Thread.ofVirtual（JDK 19/20 未开启 --enable-preview 时会抛异常）
+            return null;
+        }
+    }
+
+    /**
+     * 每任务一个线程模式提交：先拿接纳许可，拿不到说明运行 + 等待的任务都满了，走拒绝策略
+     */
+    private void executePerTask(Runnable task, int taskCount) {
+        if (!admission.tryAcquire()) {
+            listener.taskRejected(queueSize(), workerCount.get());
+            rejectPolicy.reject(task, this);
+            return;
+        }
+        int count = workerCount.incrementAndGet();
+        // 先占线程计数再检查状态：与 shutdown 的"先改状态再检查线程数"配对，两者至少有一方看到对方
+        if (runState.get() != RUNNING) {
+            workerCount.decrementAndGet();
+            admission.release();
+            tryTerminate();
+            throw new RuntimeException("线程池已关闭，无法提交新任务");
+        }
+        int taskNo = submittedCount.addAndGet(taskCount);
+        largestPoolSize.accumulateAndGet(count, Math::max);
+
+        String name = "SimplePool-vthread-" + threadNumber.getAndIncrement();
+        Runnable body = () -> runPerTask(name, task);
+        Thread thread = VIRTUAL_THREAD_FACTORY != null ? VIRTUAL_THREAD_FACTORY.newThread(body) : new Thread(body);
+        thread.setName(name);
+        taskThreads.add(thread);
+        thread.start();
+        listener.taskHandedToNewWorker(taskNo, count, true);
+    }
+
+    /**
+     * 任务线程体：等待并发许可 → 执行任务 → 归还许可
+     */
+    private void runPerTask(String name, Runnable task) {
+        try {
+            concurrency.acquire();
+            try {
+                listener.beforeExecute(name);
+                Throwable error = null;
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    error = e;
+                }
+                listener.afterExecute(name, error);
+            } finally {
+                concurrency.release();
+            }
+        } catch (InterruptedException e) {
+            // shutdownNow 中断了仍在等待许可的任务
+            listener.workerInterrupted(name);
+        } finally {
+            taskThreads.remove(Thread.currentThread());
+            workerCount.decrementAndGet();
+            admission.release();
+            tryTerminate();
+        }
+    }
+
+    // ==================== 运行时调整 ====================
+
+    /**
+     * 调整核心线程数
+     * - 调大：立即补足新增的核心线程
+     * - 调小：多出的线程变为非核心线程，空闲超过 keepAliveTime 后回收
      */
-    @FunctionalInterface
-    interface RejectPolicy {
-        void reject(Runnable task, SimpleThreadPool pool);
+    public void setCorePoolSize(int corePoolSize) {
+        checkResizable();
+        if (corePoolSize <= 0 || corePoolSize > maximumPoolSize) {
+            throw new IllegalArgumentException("corePoolSize 必须大于 0 且不超过 maximumPoolSize");
+        }
+        int delta = corePoolSize - this.corePoolSize;
+        this.corePoolSize = corePoolSize;
+        listener.poolResized(corePoolSize, maximumPoolSize);
+        if (delta < 0) {
+            // 阻塞在 take 上的核心线程变成了非核心线程，唤醒它们开始按 keepAliveTime 计时
+            interruptIdleWorkers();
+        }
+        while (delta-- > 0 && addWorker(null, corePoolSize)) {
+            // 逐个创建，达到上限时停止
+        }
     }
 
     /**
-     * 默认拒绝策略：抛出异常
+     * 调整最大线程数
+     * - 调小：超出的线程执行完当前任务后退出
      */
-    static class AbortRejectPolicy implements RejectPolicy {
-        @Override
-        public void reject(Runnable task, SimpleThreadPool pool) {
-            throw new RuntimeException("[拒绝策略] 线程池已满，任务被拒绝！" +
-                    " 队列大小=" + pool.taskQueue.size() +
-                    " 工作线程=" + pool.workerCount.get());
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        checkResizable();
+        if (maximumPoolSize < corePoolSize) {
+            throw new IllegalArgumentException("maximumPoolSize 不能小于 corePoolSize");
+        }
+        boolean shrink = maximumPoolSize < this.maximumPoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        listener.poolResized(corePoolSize, maximumPoolSize);
+        if (shrink) {
+            interruptIdleWorkers();
         }
     }
 
     /**
-     * 调用者执行策略：由提交任务的线程自己执行
+     * 每任务一个线程模式的并发上限由 Semaphore 固定，不支持运行时调整
      */
-    static class CallerRunsRejectPolicy implements RejectPolicy {
-        @Override
-        public void reject(Runnable task, SimpleThreadPool pool) {
-            if (!pool.isStopped.get()) {
-                System.out.printf("  [拒绝策略] 由调用者线程 [%s] 执行任务%n",
-                        Thread.currentThread().getName());
-                task.run();
-            }
+    private void checkResizable() {
+        if (mode == Mode.VIRTUAL_THREAD_PER_TASK) {
+            throw new UnsupportedOperationException("VIRTUAL_THREAD_PER_TASK 模式不支持运行时调整线程数");
         }
     }
 
-    // ==================== Worker 工作线程 ====================
-
     /**
-     * Worker 线程：从任务队列取任务并执行
+     * 调整非核心线程的空闲存活时间
      */
-    class Worker implements Runnable {
-        private final String name;
-
-        Worker(String name) {
-            this.name = name;
+    public void setKeepAliveTime(long time, TimeUnit unit) {
+        if (time < 0) {
+            throw new IllegalArgumentException("keepAliveTime 不能为负数");
         }
-
-        @Override
-        public void run() {
-            System.out.printf("  [%s] Worker 启动%n", name);
-            // 核心循环：不断从队列取任务执行
-            while (!isStopped.get() || !taskQueue.isEmpty()) {
-                try {
-                    // 从阻塞队列取任务（poll 带超时，避免永久阻塞）
-                    Runnable task = taskQueue.poll(1, java.util.concurrent.TimeUnit.SECONDS);
-                    if (task != null) {
-                        System.out.printf("  [%s] 取到任务，开始执行%n", name);
-                        try {
-                            task.run();
-                        } catch (Exception e) {
-                            System.out.printf("  [%s] 任务执行异常: %s%n", name, e.getMessage());
-                        }
-                        System.out.printf("  [%s] 任务执行完毕%n", name);
-                    }
-                } catch (InterruptedException e) {
-                    System.out.printf("  [%s] Worker 被中断，准备退出%n", name);
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-            System.out.printf("  [%s] Worker 退出%n", name);
-            workerCount.decrementAndGet();
+        long old = keepAliveNanos;
+        this.keepAliveNanos = unit.toNanos(time);
+        if (keepAliveNanos < old) {
+            interruptIdleWorkers();
         }
     }
 
-    // ==================== 线程池核心字段 ====================
-
-    /** 核心线程数 */
-    private final int corePoolSize;
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
 
-    /** 任务队列（有界阻塞队列） */
-    private final BlockingQueue<Runnable> taskQueue;
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
 
-    /** 拒绝策略 */
-    private final RejectPolicy rejectPolicy;
+    public int getPoolSize() {
+        return workerCount.get();
+    }
 
-    /** 工作线程列表 */
-    private final List<Thread> workers;
+    public int getLargestPoolSize() {
+        return largestPoolSize.get();
+    }
 
-    /** 是否已停止 */
-    private final AtomicBoolean isStopped = new AtomicBoolean(false);
+    RejectPolicy getRejectPolicy() {
+        return rejectPolicy;
+    }
 
-    /** 当前工作线程数 */
-    private final AtomicInteger workerCount = new AtomicInteger(0);
+    /**
+     * 当前排队中的任务数
+     */
+    public int queueSize() {
+        switch (mode) {
+            case WORK_STEALING:
+                return queuedCount.get();
+            case VIRTUAL_THREAD_PER_TASK:
+                return concurrency.getQueueLength();
+            default:
+                return taskQueue.size();
+        }
+    }
 
-    /** 已提交任务数（统计用） */
-    private final AtomicInteger submittedCount = new AtomicInteger(0);
+    private boolean hasPendingTasks() {
+        return queueSize() > 0;
+    }
 
-    /** 线程编号 */
-    private final AtomicInteger threadNumber = new AtomicInteger(1);
+    // ==================== 生命周期 ====================
 
-    // ==================== 构造方法 ====================
+    /**
+     * 优雅关闭线程池
+     * - 不再接受新任务
+     * - 已排队的任务继续执行，空闲的 Worker 立即被唤醒并退出
+     */
+    public void shutdown() {
+        if (advanceRunState(SHUTDOWN)) {
+            listener.poolShutdown(false);
+        }
+        interruptIdleWorkers();
+        tryTerminate();
+    }
 
     /**
-     * 创建简易线程池
+     * 立即关闭：中断所有线程，取出并返回尚未开始执行的任务
      *
-     * @param corePoolSize 核心线程数
-     * @param queueCapacity 任务队列容量
-     * @param rejectPolicy 拒绝策略
+     * 每任务一个线程模式下，等待并发许可的任务线程被中断后直接结束，不在返回列表中。
      */
-    public SimpleThreadPool(int corePoolSize, int queueCapacity, RejectPolicy rejectPolicy) {
-        if (corePoolSize <= 0 || queueCapacity <= 0) {
-            throw new IllegalArgumentException("corePoolSize 和 queueCapacity 必须大于 0");
+    public List<Runnable> shutdownNow() {
+        if (advanceRunState(STOP)) {
+            listener.poolShutdown(true);
         }
-        this.corePoolSize = corePoolSize;
-        this.taskQueue = new ArrayBlockingQueue<>(queueCapacity);
-        this.rejectPolicy = rejectPolicy;
-        this.workers = Collections.synchronizedList(new ArrayList<>());
-
-        // 预先创建所有核心线程
-        System.out.printf("[SimpleThreadPool] 初始化: corePoolSize=%d, queueCapacity=%d%n",
-                corePoolSize, queueCapacity);
-        for (int i = 0; i < corePoolSize; i++) {
-            createWorker();
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        for (Thread thread : taskThreads) {
+            thread.interrupt();
         }
+        List<Runnable> remaining = drainQueue();
+        tryTerminate();
+        return remaining;
     }
 
     /**
-     * 使用默认拒绝策略创建线程池
+     * 等待线程池终止
+     *
+     * @param timeoutMillis 最大等待时间（毫秒）
+     * @return false 表示超时时线程池仍未终止
      */
-    public SimpleThreadPool(int corePoolSize, int queueCapacity) {
-        this(corePoolSize, queueCapacity, new AbortRejectPolicy());
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        try {
+            terminationFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // terminationFuture 只会正常完成
+            throw new IllegalStateException(e);
+        }
     }
 
-    // ==================== 核心方法 ====================
-
     /**
-     * 创建并启动一个 Worker 线程
+     * 线程池终止时完成的 Future（返回副本，调用方无法替线程池完成它）
      */
-    private void createWorker() {
-        String name = "SimplePool-worker-" + threadNumber.getAndIncrement();
-        Worker worker = new Worker(name);
-        Thread thread = new Thread(worker, name);
-        thread.setDaemon(false);
-        workers.add(thread);
-        workerCount.incrementAndGet();
-        thread.start();
+    public CompletableFuture<Void> terminationFuture() {
+        return terminationFuture.copy();
+    }
+
+    public boolean isShutdown() {
+        return runState.get() != RUNNING;
+    }
+
+    public boolean isTerminated() {
+        return runState.get() == TERMINATED;
     }
 
     /**
-     * 提交任务到线程池
+     * 把状态推进到 target（状态只增不减）
      *
-     * @param task 待执行的任务
+     * @return false 表示已经处于 target 或更后面的状态
      */
-    public void execute(Runnable task) {
-        if (task == null) {
-            throw new NullPointerException("任务不能为 null");
-        }
-        if (isStopped.get()) {
-            throw new RuntimeException("线程池已关闭，无法提交新任务");
-        }
-
-        // 尝试放入队列
-        boolean offered = taskQueue.offer(task);
-        if (offered) {
-            int count = submittedCount.incrementAndGet();
-            System.out.printf("[SimpleThreadPool] 任务 #%d 已加入队列（队列大小=%d）%n",
-                    count, taskQueue.size());
-        } else {
-            // 队列满了，触发拒绝策略
-            System.out.printf("[SimpleThreadPool] 队列已满！触发拒绝策略%n");
-            rejectPolicy.reject(task, this);
+    private boolean advanceRunState(int target) {
+        while (true) {
+            int state = runState.get();
+            if (state >= target) {
+                return false;
+            }
+            if (runState.compareAndSet(state, target)) {
+                return true;
+            }
         }
     }
 
     /**
-     * 优雅关闭线程池
-     * - 不再接受新任务
-     * - 等待已提交的任务执行完毕
+     * 满足条件时进入 TERMINATED：已关闭、没有存活的线程、SHUTDOWN 状态下队列为空
+     *
+     * 在状态变化和每个线程退出时调用，最后一个退出的线程负责完成终止。
      */
-    public void shutdown() {
-        System.out.println("[SimpleThreadPool] 开始关闭...");
-        isStopped.set(true);
+    private void tryTerminate() {
+        int state = runState.get();
+        if (state == RUNNING || state == TERMINATED) {
+            return;
+        }
+        if (workerCount.get() > 0 || (state == SHUTDOWN && hasPendingTasks())) {
+            return;
+        }
+        if (runState.compareAndSet(state, TERMINATED)) {
+            listener.poolTerminated(0);
+            terminationFuture.complete(null);
+        }
     }
 
     /**
-     * 等待线程池终止
-     *
-     * @param timeoutMillis 最大等待时间（毫秒）
+     * 中断所有空闲的 Worker（阻塞在 take / poll / park 中），让它们立即重新检查状态和线程数
      */
-    public void awaitTermination(long timeoutMillis) throws InterruptedException {
-        long deadline = System.currentTimeMillis() + timeoutMillis;
-        for (Thread worker : workers) {
-            long remaining = deadline - System.currentTimeMillis();
-            if (remaining <= 0) break;
-            worker.join(remaining);
+    private void interruptIdleWorkers() {
+        for (Worker worker : workers) {
+            if (worker.tryLock()) {
+                try {
+                    worker.thread.interrupt();
+                } finally {
+                    worker.unlock();
+                }
+            }
         }
-        System.out.printf("[SimpleThreadPool] 已关闭（剩余工作线程=%d）%n", workerCount.get());
     }
 
     /**
-     * 立即关闭：中断所有线程
+     * 取出所有尚未执行的任务
      */
-    public void shutdownNow() {
-        System.out.println("[SimpleThreadPool] 立即关闭，中断所有线程...");
-        isStopped.set(true);
-        for (Thread worker : workers) {
-            worker.interrupt();
+    private List<Runnable> drainQueue() {
+        List<Runnable> remaining = new ArrayList<>();
+        if (mode == Mode.WORK_STEALING) {
+            for (Worker worker : workers) {
+                Runnable task;
+                while ((task = worker.localTasks.pollFirst()) != null) {
+                    queuedCount.decrementAndGet();
+                    remaining.add(task);
+                }
+            }
+        } else if (mode == Mode.SHARED_QUEUE) {
+            taskQueue.drainTo(remaining);
         }
+        return remaining;
     }
 
     /**
      * 获取线程池状态信息
      */
     public String getStatus() {
-        return String.format("线程数=%d, 队列大小=%d, 已提交=%d, isStopped=%s",
-                workerCount.get(), taskQueue.size(), submittedCount.get(), isStopped.get());
+        return String.format("线程数=%d（核心=%d, 最大=%d, 峰值=%d）, 队列大小=%d, 已提交=%d, 状态=%s",
+                workerCount.get(), corePoolSize, maximumPoolSize, largestPoolSize.get(),
+                queueSize(), submittedCount.get(), STATE_NAMES[runState.get()]);
     }
 
     // ==================== 测试主方法 ====================
@@ -253,15 +1472,43 @@ public class SimpleThreadPool {
         System.out.println("\n========== 测试3：CallerRuns 拒绝策略 ==========\n");
         testCallerRunsPolicy();
 
+        Thread.sleep(1000);
+        System.out.println("\n========== 测试4：工作窃取模式 ==========\n");
+        testWorkStealing();
+
+        Thread.sleep(1000);
+        System.out.println("\n========== 测试5：动态扩缩容 ==========\n");
+        testDynamicSizing();
+
+        Thread.sleep(1000);
+        System.out.println("\n========== 测试6：每任务一个虚拟线程 ==========\n");
+        testVirtualThreadPerTask();
+
+        Thread.sleep(1000);
+        System.out.println("\n========== 测试7：submit / invokeAll / invokeAny ==========\n");
+        testFutures();
+
+        Thread.sleep(1000);
+        System.out.println("\n========== 测试8：生命周期（关闭延迟 / shutdownNow / terminationFuture） ==========\n");
+        testLifecycle();
+
         System.out.println("\n========== 所有测试完成 ==========");
     }
 
+    /**
+     * 创建固定线程数、同步打印事件的线程池（测试用，便于观察执行过程）
+     */
+    static SimpleThreadPool newConsolePool(int corePoolSize, int queueCapacity, RejectPolicy rejectPolicy) {
+        return new SimpleThreadPool(corePoolSize, corePoolSize, 60, TimeUnit.SECONDS, queueCapacity,
+                rejectPolicy, Mode.SHARED_QUEUE, new ConsoleEventListener());
+    }
+
     /**
      * 测试1：基本功能 - 提交任务、执行、关闭
      */
     static void testBasicFunction() throws InterruptedException {
         // 创建线程池：3个核心线程，队列容量5
-        SimpleThreadPool pool = new SimpleThreadPool(3, 5);
+        SimpleThreadPool pool = newConsolePool(3, 5, new AbortRejectPolicy());
 
         System.out.println("\n提交 8 个任务：\n");
 
@@ -289,7 +1536,7 @@ public class SimpleThreadPool {
      */
     static void testRejectPolicy() throws InterruptedException {
         // 创建线程池：2个核心线程，队列容量2
-        SimpleThreadPool pool = new SimpleThreadPool(2, 2);
+        SimpleThreadPool pool = newConsolePool(2, 2, new AbortRejectPolicy());
 
         System.out.println("\n提交 6 个任务（超出容量会触发拒绝）：\n");
 
@@ -317,7 +1564,7 @@ public class SimpleThreadPool {
      */
     static void testCallerRunsPolicy() throws InterruptedException {
         // 使用 CallerRunsRejectPolicy
-        SimpleThreadPool pool = new SimpleThreadPool(2, 2, new CallerRunsRejectPolicy());
+        SimpleThreadPool pool = newConsolePool(2, 2, new CallerRunsRejectPolicy());
 
         System.out.println("\n提交 6 个任务（多余任务由调用者线程执行）：\n");
 
@@ -337,4 +1584,268 @@ public class SimpleThreadPool {
         pool.shutdown();
         pool.awaitTermination(10000);
     }
+
+    /**
+     * 测试4：工作窃取模式 - 任务在 Worker 内部提交子任务
+     */
+    static void testWorkStealing() throws InterruptedException {
+        SimpleThreadPool pool = new SimpleThreadPool(3, 3, 60, TimeUnit.SECONDS, 20, new AbortRejectPolicy(),
+                Mode.WORK_STEALING, new ConsoleEventListener());
+
+        System.out.println("\n提交 2 个父任务，每个父任务在 Worker 内部再提交 3 个子任务：\n");
+
+        for (int i = 1; i <= 2; i++) {
+            final int parentId = i;
+            pool.execute(() -> {
+                String parentThread = Thread.currentThread().getName();
+                for (int j = 1; j <= 3; j++) {
+                    final int childId = j;
+                    // Worker 线程内提交：压入自己的本地队列，空闲 Worker 会从队尾窃取
+                    pool.execute(() -> System.out.printf("  子任务 %d-%d 由 [%s] 提交，在 [%s] 上执行%n",
+                            parentId, childId, parentThread, Thread.currentThread().getName()));
+                }
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        Thread.sleep(500);
+        pool.shutdown();
+        pool.awaitTermination(10000);
+    }
+
+    /**
+     * 测试5：队列满时扩容到 maximumPoolSize，空闲后回收，运行时调整线程数
+     */
+    static void testDynamicSizing() throws InterruptedException {
+        // 核心 2、最大 4、非核心线程空闲 1 秒回收、队列容量 2
+        SimpleThreadPool pool = new SimpleThreadPool(2, 4, 1, TimeUnit.SECONDS, 2, new AbortRejectPolicy(),
+                Mode.SHARED_QUEUE, new ConsoleEventListener());
+
+        System.out.println("\n提交 6 个任务（2 核心 + 2 队列 + 2 非核心）：\n");
+        for (int i = 1; i <= 6; i++) {
+            pool.execute(() -> {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        System.out.printf("%n扩容后: %s%n%n", pool.getStatus());
+
+        Thread.sleep(2500);
+        System.out.printf("%n空闲 2.5 秒后: %s%n%n", pool.getStatus());
+
+        pool.setMaximumPoolSize(6);
+        pool.setCorePoolSize(3);
+        System.out.printf("%n调整后: %s%n%n", pool.getStatus());
+
+        pool.shutdown();
+        pool.awaitTermination(10000);
+    }
+
+    /**
+     * 测试6：每任务一个虚拟线程 - 并发上限 2、等待上限 2，第 5 个任务触发拒绝策略
+     */
+    static void testVirtualThreadPerTask() throws InterruptedException {
+        System.out.printf("虚拟线程可用: %s（不可用时退化为平台线程）%n",
+                VIRTUAL_THREAD_FACTORY != null ? "是" : "否");
+        SimpleThreadPool pool = new SimpleThreadPool(2, 2, 60, TimeUnit.SECONDS, 2, new AbortRejectPolicy(),
+                Mode.VIRTUAL_THREAD_PER_TASK, new ConsoleEventListener());
+
+        System.out.println("\n提交 5 个阻塞任务（2 个运行 + 2 个等待许可，第 5 个被拒绝）：\n");
+        for (int i = 1; i <= 5; i++) {
+            final int taskId = i;
+            try {
+                pool.execute(() -> {
+                    System.out.printf("  任务 #%d 在 [%s] 上执行%n", taskId, Thread.currentThread());
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (RuntimeException e) {
+                System.out.printf("  任务 #%d 被拒绝: %s%n", taskId, e.getMessage());
+            }
+        }
+        System.out.printf("%n线程池状态: %s%n%n", pool.getStatus());
+
+        pool.shutdown();
+        pool.awaitTermination(10000);
+    }
+
+    /**
+     * 测试7：submit / executeAll / invokeAll / invokeAny
+     */
+    static void testFutures() throws InterruptedException {
+        SimpleThreadPool pool = new SimpleThreadPool(4, 100, new AbortRejectPolicy());
+
+        try {
+            Future<Integer> future = pool.submit(() -> 6 * 7);
+            System.out.printf("submit 结果: %d%n", future.get());
+
+            Future<Integer> failed = pool.submit(() -> {
+                throw new IllegalStateException("模拟失败");
+            });
+            try {
+                failed.get();
+            } catch (ExecutionException e) {
+                System.out.printf("submit 异常: %s%n", e.getCause());
+            }
+
+            AtomicInteger counter = new AtomicInteger();
+            List<Runnable> batch = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                batch.add(counter::incrementAndGet);
+            }
+            pool.executeAll(batch);
+            while (counter.get() < batch.size()) {
+                Thread.sleep(1);
+            }
+            System.out.printf("executeAll 1000 个任务后计数: %d，%s%n", counter.get(), pool.getStatus());
+
+            List<Callable<String>> calls = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                final int id = i;
+                calls.add(() -> {
+                    Thread.sleep(100L * id);
+                    return "服务" + id;
+                });
+            }
+            List<String> results = new ArrayList<>();
+            for (Future<String> f : pool.invokeAll(calls)) {
+                results.add(f.get());
+            }
+            System.out.printf("invokeAll 结果: %s%n", results);
+
+            // 最快的服务先失败，invokeAny 返回第一个成功的结果
+            calls.set(0, () -> {
+                throw new IllegalStateException("服务1 不可用");
+            });
+            System.out.printf("invokeAny 结果: %s%n", pool.invokeAny(calls));
+        } catch (ExecutionException e) {
+            System.out.printf("意外异常: %s%n", e.getCause());
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(10000);
+
+        // 1 个线程、队列容量 1：第一个分片入队后第二个分片被拒绝，已入队的分片必须随之取消
+        SimpleThreadPool small = new SimpleThreadPool(1, 1, new AbortRejectPolicy());
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        small.execute(gate::join);
+        AtomicInteger ran = new AtomicInteger();
+        List<Callable<Integer>> many = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            many.add(ran::incrementAndGet);
+        }
+        String rejected = "无";
+        try {
+            small.invokeAll(many);
+        } catch (RuntimeException e) {
+            rejected = e.getMessage();
+        }
+        gate.complete(null);
+        small.shutdown();
+        small.awaitTermination(10000);
+        System.out.printf("invokeAll 提交中途被拒绝: %s，已入队任务实际执行 %d 个 %s%n",
+                rejected, ran.get(), ran.get() == 0 ? "✓" : "✗");
+    }
+
+    /**
+     * 测试8：生命周期
+     * - 空闲 Worker 在 shutdown 时被立即唤醒：关闭延迟与 keepAliveTime、队列等待时间无关
+     * - shutdown 后已排队的任务仍会执行完，新任务被拒绝
+     * - shutdownNow 中断正在执行的任务，返回尚未执行的任务
+     * - 任务抛出 Error 不会让线程计数泄漏
+     */
+    static void testLifecycle() throws InterruptedException {
+        System.out.println("1. 空闲线程池的关闭延迟（核心 2、最大 4，非核心线程 keepAlive 60 秒）：\n");
+        for (Mode mode : new Mode[]{Mode.SHARED_QUEUE, Mode.WORK_STEALING}) {
+            SimpleThreadPool pool = new SimpleThreadPool(2, 4, 60, TimeUnit.SECONDS, 2, new CallerRunsRejectPolicy(),
+                    mode);
+            // 6 个短任务：队列满后扩容出非核心线程，之后全部空闲阻塞
+            for (int i = 0; i < 6; i++) {
+                pool.execute(() -> sleepQuietly(50));
+            }
+            Thread.sleep(300);
+            CompletableFuture<Void> terminated = pool.terminationFuture();
+
+            long start = System.nanoTime();
+            pool.shutdown();
+            boolean done = pool.awaitTermination(5000);
+            double millis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("  %-14s %d 个空闲 Worker，shutdown → 终止 %.2fms，terminationFuture 已完成=%s  %s%n",
+                    mode, pool.getLargestPoolSize(), millis, terminated.isDone(),
+                    done && millis < 100 ? "✓ 不需要等待空闲超时" : "✗ 关闭延迟过长");
+        }
+
+        System.out.println("\n2. shutdown：已排队的任务执行完，新任务被拒绝：\n");
+        SimpleThreadPool pool = new SimpleThreadPool(1, 1, 60, TimeUnit.SECONDS, 10, new AbortRejectPolicy(),
+                Mode.SHARED_QUEUE);
+        AtomicInteger finished = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            pool.execute(() -> {
+                sleepQuietly(50);
+                finished.incrementAndGet();
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.execute(finished::incrementAndGet);
+        } catch (RuntimeException e) {
+            System.out.printf("  关闭后提交被拒绝: %s%n", e.getMessage());
+        }
+        pool.awaitTermination(5000);
+        System.out.printf("  已执行 %d / 5 个排队任务，%s%n", finished.get(), pool.getStatus());
+
+        System.out.println("\n3. shutdownNow：中断正在执行的任务，返回未执行的任务：\n");
+        pool = new SimpleThreadPool(1, 1, 60, TimeUnit.SECONDS, 10, new AbortRejectPolicy(), Mode.SHARED_QUEUE);
+        AtomicInteger interrupted = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            pool.execute(() -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                }
+            });
+        }
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        List<Runnable> notExecuted = pool.shutdownNow();
+        pool.awaitTermination(5000);
+        System.out.printf("  返回 %d 个未执行的任务，%d 个正在执行的任务被中断，终止耗时 %.2fms，%s%n",
+                notExecuted.size(), interrupted.get(), (System.nanoTime() - start) / 1e6, pool.getStatus());
+
+        System.out.println("\n4. 任务抛出 Error：Worker 退出后由新线程补上，线程池仍能正常终止：\n");
+        for (Mode mode : new Mode[]{Mode.SHARED_QUEUE, Mode.WORK_STEALING}) {
+            pool = new SimpleThreadPool(2, 2, 60, TimeUnit.SECONDS, 10, new AbortRejectPolicy(), mode);
+            AtomicInteger ran = new AtomicInteger();
+            pool.execute(() -> {
+                throw new AssertionError("模拟 Error");
+            });
+            for (int i = 0; i < 5; i++) {
+                pool.execute(ran::incrementAndGet);
+            }
+            Thread.sleep(100);
+            pool.shutdown();
+            boolean done = pool.awaitTermination(5000);
+            System.out.printf("  %-14s 其余 %d / 5 个任务已执行，终止=%s  %s%n", mode, ran.get(), done,
+                    done && ran.get() == 5 ? "✓" : "✗ 线程计数泄漏");
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,383 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Day06 - SimpleThreadPool 性能基准
+ *
+ * 测试内容：
+ * 1. 共享队列 vs 工作窃取：外部线程提交大量微小任务
+ * 2. 共享队列 vs 工作窃取：任务在 Worker 内部派生子任务（fork 风格）
+ * 3. 事件输出方式：不输出（NO_OP）vs 异步环形缓冲区 vs 同步 printf
+ * 4. 阻塞型任务：固定平台线程池 vs 每任务一个虚拟线程（延迟分位数、峰值线程数、内存）
+ * 5. 提交方式：逐个 execute vs 逐个 submit vs executeAll 批量提交
+ * 6. 任务队列实现：ArrayBlockingQueue / LinkedBlockingQueue / SynchronousQueue / MpmcRingQueue
+ *
+ * 说明：
+ * - 线程数从 1 扫描到 64，每组先预热一轮再计时
+ * - 基准1、2 使用默认的 NO_OP 监听器；基准3 的输出写到空输出流，只统计格式化和加锁的开销
+ * - 每轮结束后等待线程池终止（不计时），避免上一轮的线程影响下一轮
+ * - 结果受 CPU 核数影响很大，核数越多，共享队列的锁竞争越明显
+ */
+public class SimpleThreadPoolBenchmark {
+
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    static final PrintStream CONSOLE = System.out;
+    static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    public static void main(String[] args) throws InterruptedException {
+        CONSOLE.println("========== SimpleThreadPool 基准测试 ==========\n");
+        benchmark1_WorkStealingExternal();
+        benchmark2_WorkStealingFork();
+        benchmark3_EventListener();
+        benchmark4_BlockingTasks();
+        benchmark5_BatchSubmission();
+        benchmark6_QueueImplementations();
+        CONSOLE.println("========== 基准测试完成 ==========");
+    }
+
+    // ==================== 基准1：外部提交微小任务 ====================
+
+    static void benchmark1_WorkStealingExternal() throws InterruptedException {
+        final int TASKS = 100_000;
+        CONSOLE.printf("--- 基准1：外部线程提交 %,d 个微小任务（tasks/sec） ---%n", TASKS);
+        CONSOLE.printf("%-8s %-16s %-16s%n", "线程数", "SHARED_QUEUE", "WORK_STEALING");
+
+        for (int threads : THREAD_COUNTS) {
+            double shared = runExternal(threads, TASKS, SimpleThreadPool.Mode.SHARED_QUEUE);
+            double stealing = runExternal(threads, TASKS, SimpleThreadPool.Mode.WORK_STEALING);
+            CONSOLE.printf("%-8d %-16s %-16s%n", threads, formatRate(shared), formatRate(stealing));
+        }
+        CONSOLE.println();
+    }
+
+    static double runExternal(int threads, int tasks, SimpleThreadPool.Mode mode) throws InterruptedException {
+        return runExternal(new SimpleThreadPool(threads, tasks, new SimpleThreadPool.AbortRejectPolicy(), mode), tasks);
+    }
+
+    static double runExternal(SimpleThreadPool pool, int tasks) throws InterruptedException {
+        LongAdder done = new LongAdder();
+        Runnable task = done::increment;
+
+        submitAndWait(pool, task, done, tasks / 10); // 预热
+        done.reset();
+
+        long start = System.nanoTime();
+        submitAndWait(pool, task, done, tasks);
+        long elapsed = System.nanoTime() - start;
+
+        pool.shutdown();
+        pool.awaitTermination(5000);
+        return tasks * 1e9 / elapsed;
+    }
+
+    static void submitAndWait(SimpleThreadPool pool, Runnable task, LongAdder done, int tasks)
+            throws InterruptedException {
+        for (int i = 0; i < tasks; i++) {
+            pool.execute(task);
+        }
+        awaitCount(done, tasks);
+    }
+
+    // ==================== 基准2：Worker 内部派生子任务 ====================
+
+    static void benchmark2_WorkStealingFork() throws InterruptedException {
+        final int ROOTS = 64;
+        final int CHILDREN = 1_000;
+        CONSOLE.printf("--- 基准2：%d 个父任务各派生 %,d 个子任务（tasks/sec） ---%n", ROOTS, CHILDREN);
+        CONSOLE.printf("%-8s %-16s %-16s%n", "线程数", "SHARED_QUEUE", "WORK_STEALING");
+
+        for (int threads : THREAD_COUNTS) {
+            double shared = runFork(threads, ROOTS, CHILDREN, SimpleThreadPool.Mode.SHARED_QUEUE);
+            double stealing = runFork(threads, ROOTS, CHILDREN, SimpleThreadPool.Mode.WORK_STEALING);
+            CONSOLE.printf("%-8d %-16s %-16s%n", threads, formatRate(shared), formatRate(stealing));
+        }
+        CONSOLE.println();
+    }
+
+    static double runFork(int threads, int roots, int children, SimpleThreadPool.Mode mode)
+            throws InterruptedException {
+        int total = roots * (children + 1);
+        SimpleThreadPool pool = new SimpleThreadPool(threads, total, new SimpleThreadPool.AbortRejectPolicy(), mode);
+        LongAdder done = new LongAdder();
+        Runnable child = done::increment;
+        Runnable root = () -> {
+            for (int i = 0; i < children; i++) {
+                pool.execute(child);
+            }
+            done.increment();
+        };
+
+        for (int i = 0; i < roots / 8; i++) pool.execute(root); // 预热
+        awaitCount(done, (long) (roots / 8) * (children + 1));
+        done.reset();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < roots; i++) {
+            pool.execute(root);
+        }
+        awaitCount(done, total);
+        long elapsed = System.nanoTime() - start;
+
+        pool.shutdown();
+        pool.awaitTermination(5000);
+        return total * 1e9 / elapsed;
+    }
+
+    // ==================== 基准3：事件输出方式 ====================
+
+    static void benchmark3_EventListener() throws InterruptedException {
+        final int TASKS = 100_000;
+        CONSOLE.printf("--- 基准3：事件输出方式对吞吐量的影响，%,d 个微小任务（tasks/sec） ---%n", TASKS);
+        CONSOLE.printf("%-8s %-16s %-16s %-16s %-12s%n", "线程数", "NO_OP", "ASYNC", "SYNC(printf)", "ASYNC丢弃");
+
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            double noOp = runExternal(newPool(threads, TASKS, SimpleThreadPool.PoolEventListener.NO_OP), TASKS);
+
+            AsyncEventSink sink = new AsyncEventSink(new SimpleThreadPool.ConsoleEventListener(DISCARD), 1 << 16);
+            double async = runExternal(newPool(threads, TASKS, sink), TASKS);
+            sink.close();
+
+            double sync = runExternal(newPool(threads, TASKS, new SimpleThreadPool.ConsoleEventListener(DISCARD)), TASKS);
+
+            CONSOLE.printf("%-8d %-16s %-16s %-16s %-12d%n", threads,
+                    formatRate(noOp), formatRate(async), formatRate(sync), sink.droppedCount());
+        }
+        CONSOLE.println("→ 异步模式在缓冲区满时丢弃事件而不是阻塞线程池\n");
+    }
+
+    static SimpleThreadPool newPool(int threads, int queueCapacity, SimpleThreadPool.PoolEventListener listener) {
+        return new SimpleThreadPool(threads, threads, 60, TimeUnit.SECONDS, queueCapacity,
+                new SimpleThreadPool.AbortRejectPolicy(), SimpleThreadPool.Mode.SHARED_QUEUE, listener);
+    }
+
+    // ==================== 基准4：阻塞型任务 ====================
+
+    static void benchmark4_BlockingTasks() throws InterruptedException {
+        final int TASKS = 100_000;
+        final int SLEEP_MILLIS = 10;
+        final int PLATFORM_THREADS = 200;
+        boolean virtual = SimpleThreadPool.VIRTUAL_THREAD_FACTORY != null;
+        // 没有虚拟线程时每个任务都是平台线程，并发上限和等待数都要受 ulimit 约束
+        int limit = virtual ? 10_000 : 1_000;
+        int waiting = virtual ? TASKS : limit;
+
+        CONSOLE.printf("--- 基准4：%,d 个阻塞任务（每个 sleep %dms） ---%n", TASKS, SLEEP_MILLIS);
+        CONSOLE.printf("虚拟线程可用: %s%n", virtual ? "是" : "否（JDK 21 之前退化为每任务一个平台线程）");
+        CONSOLE.printf("%-36s %-10s %-10s %-10s %-10s %-10s %-12s%n",
+                "线程池", "总耗时ms", "p50 ms", "p99 ms", "max ms", "峰值线程", "峰值RSS增量MB");
+
+        SimpleThreadPool platform = new SimpleThreadPool(PLATFORM_THREADS, PLATFORM_THREADS, 60, TimeUnit.SECONDS,
+                TASKS, new SimpleThreadPool.CallerRunsRejectPolicy(), SimpleThreadPool.Mode.SHARED_QUEUE);
+        runBlocking("平台线程池(" + PLATFORM_THREADS + " 线程)", platform, TASKS, SLEEP_MILLIS);
+
+        SimpleThreadPool perTask = new SimpleThreadPool(limit, limit, 60, TimeUnit.SECONDS, waiting,
+                new SimpleThreadPool.CallerRunsRejectPolicy(), SimpleThreadPool.Mode.VIRTUAL_THREAD_PER_TASK);
+        runBlocking("每任务一个线程(并发上限 " + limit + ")", perTask, TASKS, SLEEP_MILLIS);
+        CONSOLE.println("→ 并发上限决定阻塞型任务的吞吐量；虚拟线程让上限可以远大于平台线程数\n");
+    }
+
+    static void runBlocking(String label, SimpleThreadPool pool, int tasks, int sleepMillis)
+            throws InterruptedException {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        System.gc();
+        threadBean.resetPeakThreadCount();
+        long baseRss = readRssKb();
+        long peakRss = baseRss;
+
+        long[] latencies = new long[tasks];
+        LongAdder done = new LongAdder();
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            final int id = i;
+            final long submitted = System.nanoTime();
+            pool.execute(() -> {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                latencies[id] = System.nanoTime() - submitted;
+                done.increment();
+            });
+            if ((i & 1023) == 0) {
+                peakRss = Math.max(peakRss, readRssKb());
+            }
+        }
+        while (done.sum() < tasks) {
+            peakRss = Math.max(peakRss, readRssKb());
+            Thread.sleep(10);
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(5000);
+
+        Arrays.sort(latencies);
+        CONSOLE.printf("%-36s %-10d %-10.1f %-10.1f %-10.1f %-10d %-12s%n", label,
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                latencies[tasks / 2] / 1e6, latencies[(int) (tasks * 0.99)] / 1e6, latencies[tasks - 1] / 1e6,
+                threadBean.getPeakThreadCount(),
+                baseRss < 0 ? "n/a" : String.valueOf((peakRss - baseRss) / 1024));
+    }
+
+    /**
+     * 读取进程常驻内存（包含线程栈等堆外内存），非 Linux 平台返回 -1
+     */
+    static long readRssKb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 忽略，按不支持处理
+        }
+        return -1;
+    }
+
+    // ==================== 基准5：批量提交 ====================
+
+    static void benchmark5_BatchSubmission() throws InterruptedException {
+        final int TASKS = 1_000_000;
+        final int BATCH = 10_000;
+        CONSOLE.printf("--- 基准5：%,d 个微小任务的提交方式（tasks/sec，批大小 %,d） ---%n", TASKS, BATCH);
+        CONSOLE.printf("%-8s %-16s %-16s %-16s%n", "线程数", "execute", "submit", "executeAll");
+
+        for (int threads : new int[]{1, 4, 16}) {
+            double single = runSubmission(threads, TASKS, BATCH, 0);
+            double futures = runSubmission(threads, TASKS, BATCH, 1);
+            double batched = runSubmission(threads, TASKS, BATCH, 2);
+            CONSOLE.printf("%-8d %-16s %-16s %-16s%n", threads,
+                    formatRate(single), formatRate(futures), formatRate(batched));
+        }
+        CONSOLE.println("→ executeAll 把任务切成分片入队，队列锁竞争和计数器更新按分片而不是按任务计\n");
+    }
+
+    /**
+     * @param style 0 = 逐个 execute，1 = 逐个 submit，2 = executeAll
+     */
+    static double runSubmission(int threads, int tasks, int batch, int style) throws InterruptedException {
+        SimpleThreadPool pool = new SimpleThreadPool(threads, tasks, new SimpleThreadPool.AbortRejectPolicy());
+        LongAdder done = new LongAdder();
+        Runnable task = done::increment;
+        List<Runnable> chunk = new ArrayList<>(batch);
+        for (int i = 0; i < batch; i++) {
+            chunk.add(task);
+        }
+
+        submitInStyle(pool, task, chunk, tasks / 10, style); // 预热
+        awaitCount(done, tasks / 10);
+        done.reset();
+
+        long start = System.nanoTime();
+        submitInStyle(pool, task, chunk, tasks, style);
+        awaitCount(done, tasks);
+        long elapsed = System.nanoTime() - start;
+
+        pool.shutdown();
+        pool.awaitTermination(5000);
+        return tasks * 1e9 / elapsed;
+    }
+
+    static void submitInStyle(SimpleThreadPool pool, Runnable task, List<Runnable> chunk, int tasks, int style) {
+        if (style == 2) {
+            for (int i = 0; i < tasks; i += chunk.size()) {
+                pool.executeAll(chunk);
+            }
+            return;
+        }
+        for (int i = 0; i < tasks; i++) {
+            if (style == 0) {
+                pool.execute(task);
+            } else {
+                pool.submit(() -> {
+                    task.run();
+                    return null;
+                });
+            }
+        }
+    }
+
+    // ==================== 基准6：任务队列实现 ====================
+
+    /**
+     * 参考 RejectPolicyDemo.demo4_QueueImpactOnRejection：同一个线程池换不同的队列，
+     * 除吞吐量外还统计触发拒绝策略的次数。拒绝时用 put 阻塞等待队列空位（而不是由调用者执行），
+     * 这样测到的是队列本身的交接吞吐量
+     */
+    static void benchmark6_QueueImplementations() throws InterruptedException {
+        final int TASKS = 200_000;
+        final int CAPACITY = 1024;
+        CONSOLE.printf("--- 基准6：任务队列实现对比，%,d 个微小任务，有界队列容量 %d（tasks/sec / 拒绝次数） ---%n",
+                TASKS, CAPACITY);
+        CONSOLE.printf("%-8s %-24s %-24s %-24s %-24s%n",
+                "线程数", "ArrayBlockingQueue", "LinkedBlockingQueue", "SynchronousQueue", "MpmcRingQueue");
+
+        for (int threads : new int[]{1, 4, 16, 64}) {
+            String abq = runQueue(threads, TASKS, () -> new ArrayBlockingQueue<>(CAPACITY));
+            String lbq = runQueue(threads, TASKS, LinkedBlockingQueue::new);
+            String sync = runQueue(threads, TASKS, SynchronousQueue::new);
+            String ring = runQueue(threads, TASKS, () -> new MpmcRingQueue<>(CAPACITY));
+            CONSOLE.printf("%-8d %-24s %-24s %-24s %-24s%n", threads, abq, lbq, sync, ring);
+        }
+        CONSOLE.println("→ 无界队列永远不触发拒绝；SynchronousQueue 只有 Worker 正在等待时才能交接，几乎每次都要阻塞\n");
+    }
+
+    static String runQueue(int threads, int tasks, Supplier<BlockingQueue<Runnable>> queueFactory)
+            throws InterruptedException {
+        BlockingQueue<Runnable> queue = queueFactory.get();
+        LongAdder rejected = new LongAdder();
+        SimpleThreadPool.RejectPolicy blockingPut = (task, pool) -> {
+            rejected.increment();
+            try {
+                queue.put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        SimpleThreadPool pool = new SimpleThreadPool(threads, threads, 60, TimeUnit.SECONDS, queue,
+                blockingPut, SimpleThreadPool.PoolEventListener.NO_OP);
+        LongAdder done = new LongAdder();
+        Runnable task = done::increment;
+
+        submitAndWait(pool, task, done, tasks / 10); // 预热
+        done.reset();
+        rejected.reset();
+
+        long start = System.nanoTime();
+        submitAndWait(pool, task, done, tasks);
+        long elapsed = System.nanoTime() - start;
+
+        pool.shutdown();
+        pool.awaitTermination(5000);
+        return formatRate(tasks * 1e9 / elapsed) + " / " + rejected.sum();
+    }
+
+    // ==================== 辅助方法 ====================
+
+    static void awaitCount(LongAdder done, long expected) throws InterruptedException {
+        while (done.sum() < expected) {
+            Thread.sleep(1);
+        }
+    }
+
+    static String formatRate(double tasksPerSec) {
+        return String.format("%,.0f", tasksPerSec);
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 读多写少场景下 SimpleHashMap 的几种线程安全包装对比
+ *
+ * 对比对象：
+ * 1. synchronized：所有操作串行
+ * 2. ReentrantReadWriteLock：读读并行，但每次读都要 CAS 读锁计数
+ * 3. StampedSimpleHashMap：乐观读，不写任何共享状态，失败才加读锁
+ * 4. ConcurrentHashMap：参照（读完全无锁，写锁单个桶）
+ *
+ * 读写比例：99% 读 / 1% 写、90% 读 / 10% 写，线程数 1 ~ 16
+ *
+ * 说明：
+ * - 仓库没有构建工具和 JMH 依赖，这里用手写基准：每组先预热一轮，再固定时长计时，统计总操作数
+ * - 结果受 CPU 核数影响很大，单核机器上看不出读锁计数的缓存行争抢
+ *
+ * 运行方式：
+ *   cd Day08/code
+ *   javac *.java
+ *   java StampedMapBenchmark
+ */
+public class StampedMapBenchmark {
+
+    static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+    static final int[] READ_PERCENTS = {99, 90};
+
+    /** Map 中的 key 数量 */
+    static final int KEYS = 10_000;
+
+    /** 每组的计时时长 */
+    static final long RUN_MILLIS = 400;
+
+    /** 防止读到的结果被 JIT 消除 */
+    static volatile long sink;
+
+    /**
+     * 被测 Map 的最小接口
+     */
+    interface IntMap {
+        Integer get(int key);
+
+        void put(int key, int value);
+    }
+
+    // ==================== 四种包装 ====================
+
+    static IntMap synchronizedMap() {
+        SimpleHashMap<Integer, Integer> map = new SimpleHashMap<>();
+        return new IntMap() {
+            @Override
+            public synchronized Integer get(int key) {
+                return map.get(key);
+            }
+
+            @Override
+            public synchronized void put(int key, int value) {
+                map.put(key, value);
+            }
+        };
+    }
+
+    static IntMap readWriteLockMap() {
+        SimpleHashMap<Integer, Integer> map = new SimpleHashMap<>();
+        ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+        return new IntMap() {
+            @Override
+            public Integer get(int key) {
+                rwLock.readLock().lock();
+                try {
+                    return map.get(key);
+                } finally {
+                    rwLock.readLock().unlock();
+                }
+            }
+
+            @Override
+            public void put(int key, int value) {
+                rwLock.writeLock().lock();
+                try {
+                    map.put(key, value);
+                } finally {
+                    rwLock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    static IntMap stampedMap() {
+        StampedSimpleHashMap<Integer, Integer> map = new StampedSimpleHashMap<>();
+        return new IntMap() {
+            @Override
+            public Integer get(int key) {
+                return map.get(key);
+            }
+
+            @Override
+            public void put(int key, int value) {
+                map.put(key, value);
+            }
+        };
+    }
+
+    static IntMap concurrentHashMap() {
+        ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+        return new IntMap() {
+            @Override
+            public Integer get(int key) {
+                return map.get(key);
+            }
+
+            @Override
+            public void put(int key, int value) {
+                map.put(key, value);
+            }
+        };
+    }
+
+    // ==================== 测试框架 ====================
+
+    interface MapFactory {
+        IntMap create();
+    }
+
+    /**
+     * 预热一轮后计时一轮，每轮使用新的 Map
+     *
+     * @return 每秒操作数
+     */
+    static double run(MapFactory factory, int threads, int readPercent) throws InterruptedException {
+        runOnce(factory.create(), threads, readPercent, RUN_MILLIS / 4);
+        return runOnce(factory.create(), threads, readPercent, RUN_MILLIS);
+    }
+
+    static double runOnce(IntMap map, int threadCount, int readPercent, long millis) throws InterruptedException {
+        for (int i = 0; i < KEYS; i++) {
+            map.put(i, i);
+        }
+        long[] ops = new long[threadCount];
+        CountDownLatch ready = new CountDownLatch(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] deadline = new long[1];
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int id = i;
+            threads[i] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long sum = 0;
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long end = deadline[0];
+                // 每 256 次检查一次是否到时间，减少 nanoTime 调用
+                while ((count & 0xFF) != 0 || System.nanoTime() <= end) {
+                    int key = random.nextInt(KEYS);
+                    if (random.nextInt(100) < readPercent) {
+                        sum += map.get(key);
+                    } else {
+                        map.put(key, key);
+                    }
+                    count++;
+                }
+                sink = sum;
+                ops[id] = count;
+            });
+            threads[i].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        deadline[0] = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        go.countDown();
+        for (Thread t : threads) t.join();
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (long n : ops) {
+            total += n;
+        }
+        return total * 1e9 / elapsed;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== SimpleHashMap 线程安全包装性能对比 ==========");
+        System.out.println("CPU 核数: " + Runtime.getRuntime().availableProcessors()
+                + "，key 数量: " + KEYS + "，单位: 万次/秒");
+
+        for (int readPercent : READ_PERCENTS) {
+            System.out.println();
+            System.out.println("--- " + readPercent + "% 读 / " + (100 - readPercent) + "% 写 ---");
+            System.out.printf("%-8s %-14s %-24s %-22s %-18s%n", "线程数",
+                    "synchronized", "ReentrantReadWriteLock", "StampedLock 乐观读", "ConcurrentHashMap");
+            for (int threads : THREAD_COUNTS) {
+                double sync = run(StampedMapBenchmark::synchronizedMap, threads, readPercent);
+                double rw = run(StampedMapBenchmark::readWriteLockMap, threads, readPercent);
+                double stamped = run(StampedMapBenchmark::stampedMap, threads, readPercent);
+                double chm = run(StampedMapBenchmark::concurrentHashMap, threads, readPercent);
+                System.out.printf("%-8d %-14.0f %-24.0f %-22.0f %-18.0f%n", threads,
+                        sync / 1e4, rw / 1e4, stamped / 1e4, chm / 1e4);
+            }
+        }
+
+        System.out.println();
+        System.out.println("→ 读锁每次都要修改锁状态，多核下读者越多争抢越厉害；乐观读只读版本号，读者之间互不干扰");
+        System.out.println("→ 写比例升高时乐观读频繁失效、退回读锁，优势缩小；ConcurrentHashMap 写操作只锁一个桶，多核下通常仍然最好");
+        System.out.println();
+        System.out.println("========== 测试完成 ==========");
+    }
+}
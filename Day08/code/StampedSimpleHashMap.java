@@ -0,0 +1,232 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 用 StampedLock 乐观读保护的 SimpleHashMap
+ *
+ * 问题：
+ * 用 ReentrantReadWriteLock 保护 Map 时，每次 get 都要 CAS 读锁计数，
+ * 读多写少的场景下读者之间仍在争抢同一个缓存行（Day05 ReentrantLockDemo.readWriteLockDemo）。
+ *
+ * 乐观读（tryOptimisticRead / validate）：
+ * 1. tryOptimisticRead() 只读一次版本号（stamp），不写任何共享状态
+ * 2. 不加锁直接读 Map
+ * 3. validate(stamp) 检查期间是否有写锁获取过，没有则结果有效
+ * 4. 无效（或一开始就有写者）则退回到普通读锁重读一遍
+ *
+ * 乐观读期间写者可能正在修改链表或扩容，读到的可能是"半成品"，所以：
+ * - table 只读一次到局部变量，下标用这个数组自己的长度计算，不会越界
+ * - Node 的 hash、key 是 final 字段，读到的节点不会出现 key 为半初始化的情况
+ * - 链表最多走 MAX_OPTIMISTIC_STEPS 步，超过则认为读到了不一致的结构，直接改用读锁
+ * - 读到的 value 只有在 validate 通过后才返回
+ *
+ * 写操作（put / remove）使用写锁，直接调用被包装的 SimpleHashMap。
+ * 被包装的 map 在创建后只能通过本类访问，否则乐观读无法感知修改。
+ */
+public class StampedSimpleHashMap<K, V> {
+
+    /** 乐观读遍历链表的步数上限（正常负载因子下链表很短） */
+    static final int MAX_OPTIMISTIC_STEPS = 64;
+
+    /** optimisticGet 读到不一致结构时的返回值 */
+    private static final Object RETRY = new Object();
+
+    private final SimpleHashMap<K, V> map;
+    private final StampedLock lock = new StampedLock();
+
+    /** 乐观读失败、退回读锁的次数 */
+    private final LongAdder fallbacks = new LongAdder();
+
+    public StampedSimpleHashMap() {
+        this(new SimpleHashMap<>());
+    }
+
+    /**
+     * @param map 被包装的 map，之后不要再直接访问它
+     */
+    public StampedSimpleHashMap(SimpleHashMap<K, V> map) {
+        this.map = map;
+    }
+
+    // ==================== 读操作 ====================
+
+    public V get(K key) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            Object result = optimisticGet(key);
+            if (result != RETRY && lock.validate(stamp)) {
+                @SuppressWarnings("unchecked")
+                V value = (V) result;
+                return value;
+            }
+        }
+        fallbacks.increment();
+        stamp = lock.readLock();
+        try {
+            return map.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 不加锁读取，只使用局部变量；返回值需要调用方 validate 后才可信
+     */
+    private Object optimisticGet(K key) {
+        SimpleHashMap.Node<K, V>[] tab = map.table;
+        if (tab == null || tab.length == 0) {
+            return null;
+        }
+        int hash = SimpleHashMap.hash(key);
+        SimpleHashMap.Node<K, V> e = tab[(tab.length - 1) & hash];
+        for (int steps = 0; e != null; steps++) {
+            if (steps == MAX_OPTIMISTIC_STEPS) {
+                return RETRY;
+            }
+            if (e.hash == hash && (e.key == key || (key != null && key.equals(e.key)))) {
+                return e.value;
+            }
+            e = e.next;
+        }
+        return null;
+    }
+
+    public boolean containsKey(K key) {
+        long stamp = lock.readLock();
+        try {
+            return map.containsKey(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * size 只是一个 int 字段，乐观读最划算
+     */
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = map.size;
+        if (lock.validate(stamp)) {
+            return size;
+        }
+        stamp = lock.readLock();
+        try {
+            return map.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ==================== 写操作 ====================
+
+    public V put(K key, V value) {
+        long stamp = lock.writeLock();
+        try {
+            return map.put(key, value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public V remove(K key) {
+        long stamp = lock.writeLock();
+        try {
+            return map.remove(key);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 乐观读失败、退回读锁的累计次数
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public String toString() {
+        long stamp = lock.readLock();
+        try {
+            return map.toString();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ==================== 测试 ====================
+
+    /**
+     * 读者读取固定的 KEYS 个 key，检查 value % KEYS == key；
+     * 写者不断覆盖这些 key，并插入、删除大量临时 key 触发扩容和链表修改
+     */
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("========== StampedSimpleHashMap 乐观读测试 ==========");
+        System.out.println();
+
+        final int KEYS = 1000;
+        final int READERS = 4;
+        final int ROUNDS = 20;
+        StampedSimpleHashMap<Integer, Integer> map = new StampedSimpleHashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            map.put(i, i);
+        }
+
+        AtomicBoolean stop = new AtomicBoolean();
+        long[] reads = new long[READERS];
+        int[] errors = new int[READERS];
+        Thread[] readers = new Thread[READERS];
+        for (int r = 0; r < READERS; r++) {
+            final int id = r;
+            readers[r] = new Thread(() -> {
+                int k = id;
+                while (!stop.get()) {
+                    Integer v = map.get(k);
+                    if (v == null || v % KEYS != k) {
+                        errors[id]++;
+                    }
+                    reads[id]++;
+                    k = (k + 7) % KEYS;
+                }
+            });
+            readers[r].start();
+        }
+
+        Thread writer = new Thread(() -> {
+            for (int round = 1; round <= ROUNDS; round++) {
+                for (int i = 0; i < KEYS; i++) {
+                    map.put(i, i + round * KEYS);
+                }
+                // 插入临时 key 触发扩容，再删除
+                int base = KEYS * (round + 1);
+                for (int i = 0; i < 20_000; i++) {
+                    map.put(base + i, -1);
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    map.remove(base + i);
+                }
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        writer.start();
+        writer.join();
+        stop.set(true);
+        for (Thread t : readers) t.join();
+        long elapsed = System.currentTimeMillis() - start;
+
+        long totalReads = 0;
+        int totalErrors = 0;
+        for (int r = 0; r < READERS; r++) {
+            totalReads += reads[r];
+            totalErrors += errors[r];
+        }
+        System.out.println("写者: " + ROUNDS + " 轮覆盖 + 插入/删除临时 key（期间多次扩容），耗时 " + elapsed + "ms");
+        System.out.println("读者: " + totalReads + " 次 get，乐观读失败退回读锁 " + map.getFallbackCount() + " 次");
+        System.out.println("读到错误值: " + totalErrors + " 次 → " + (totalErrors == 0 ? "✓ 正确" : "✗ 错误"));
+        System.out.println("最终 size: " + map.size() + "（期望 " + KEYS + "）");
+        System.out.println();
+        System.out.println("========== 测试完成 ==========");
+    }
+}
@@ -0,0 +1,242 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 缓存统计（LRUCache / LoadingCache / OffHeapLruCache 共用）
+ *
+ * 统计项：
+ * 1. 命中 / 未命中次数
+ * 2. 加载成功 / 失败次数、累计加载耗时
+ * 3. 淘汰次数、淘汰权重（LRUCache 每条记 1，OffHeapLruCache 记 chunk 字节数）
+ *
+ * 低开销设计：
+ * - 计数器使用 LongAdder，高并发下各线程写不同的 Cell，不争抢同一个缓存行
+ * - 读统计通过 snapshot() 汇总，只在需要时付出求和的代价
+ * - JFR 事件未开启录制时 isEnabled()/shouldCommit() 直接返回 false，事件对象会被 JIT 逃逸分析消除
+ *
+ * JFR 使用方式：
+ *   java -XX:StartFlightRecording=filename=cache.jfr LoadingCache
+ *   jfr print --events day10.CacheEviction,day10.SlowCacheLoad cache.jfr
+ */
+public class CacheStats {
+
+    // ==================== JFR 事件 ====================
+
+    /**
+     * 淘汰事件：每淘汰一个条目提交一次
+     */
+    @Name("day10.CacheEviction")
+    @Label("Cache Eviction")
+    @Category({"Day10", "Cache"})
+    @Description("缓存条目因容量不足被淘汰")
+    static class CacheEvictionEvent extends Event {
+        @Label("Cache")
+        String cache;
+
+        @Label("Key")
+        String key;
+
+        @Label("Weight")
+        long weight;
+    }
+
+    /**
+     * 慢加载事件：加载耗时超过阈值（默认 20ms，可在 .jfc 配置中修改）才会被记录
+     */
+    @Name("day10.SlowCacheLoad")
+    @Label("Slow Cache Load")
+    @Category({"Day10", "Cache"})
+    @Description("CacheLoader 加载耗时超过阈值")
+    @Threshold("20 ms")
+    static class SlowLoadEvent extends Event {
+        @Label("Cache")
+        String cache;
+
+        @Label("Key")
+        String key;
+
+        @Label("Keys Loaded")
+        int keyCount;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    // ==================== 计数器 ====================
+
+    private final String name;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+
+    /**
+     * @param name 缓存名称，出现在 JFR 事件和 toString 中
+     */
+    public CacheStats(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    // ==================== 记录方法（热路径） ====================
+
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    public void recordLoadSuccess(long loadNanos) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadNanos);
+    }
+
+    public void recordLoadFailure(long loadNanos) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadNanos);
+    }
+
+    public void recordEviction(Object key, long weight) {
+        evictionCount.increment();
+        evictionWeight.add(weight);
+
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (event.isEnabled()) {
+            event.cache = name;
+            event.key = String.valueOf(key);
+            event.weight = weight;
+            event.commit();
+        }
+    }
+
+    /**
+     * key 需要额外开销才能得到时使用（如 OffHeapLruCache 从堆外内存解码）：
+     * 只有 JFR 正在录制淘汰事件时才调用 keySupplier
+     */
+    public void recordEviction(Supplier<?> keySupplier, long weight) {
+        evictionCount.increment();
+        evictionWeight.add(weight);
+
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (event.isEnabled()) {
+            event.cache = name;
+            event.key = String.valueOf(keySupplier.get());
+            event.weight = weight;
+            event.commit();
+        }
+    }
+
+    /**
+     * 开始一次加载计时，配合 {@link #endLoad} 使用
+     * 返回的事件对象同时负责 JFR 计时，未开启录制时开销只有一次 nanoTime
+     */
+    public SlowLoadEvent beginLoad() {
+        SlowLoadEvent event = new SlowLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * 结束加载计时：更新计数器，耗时超过阈值时提交 JFR 事件
+     *
+     * @param startNanos beginLoad 之前记录的 System.nanoTime()
+     */
+    public void endLoad(SlowLoadEvent event, long startNanos, Object key, int keyCount, boolean success) {
+        long elapsed = System.nanoTime() - startNanos;
+        if (success) {
+            recordLoadSuccess(elapsed);
+        } else {
+            recordLoadFailure(elapsed);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.cache = name;
+            event.key = String.valueOf(key);
+            event.keyCount = keyCount;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    // ==================== 快照 ====================
+
+    /**
+     * 汇总当前计数（各计数器分别求和，不保证彼此之间严格一致）
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(name, hitCount.sum(), missCount.sum(), loadSuccessCount.sum(),
+                loadFailureCount.sum(), totalLoadTime.sum(), evictionCount.sum(), evictionWeight.sum());
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * 不可变的统计快照
+     */
+    static final class Snapshot {
+        final String name;
+        final long hitCount;
+        final long missCount;
+        final long loadSuccessCount;
+        final long loadFailureCount;
+        final long totalLoadTime;
+        final long evictionCount;
+        final long evictionWeight;
+
+        Snapshot(String name, long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+                 long totalLoadTime, long evictionCount, long evictionWeight) {
+            this.name = name;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+            this.evictionWeight = evictionWeight;
+        }
+
+        long requestCount() {
+            return hitCount + missCount;
+        }
+
+        double hitRate() {
+            long requests = requestCount();
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        /**
+         * 平均加载耗时（毫秒）
+         */
+        double averageLoadPenaltyMillis() {
+            long loads = loadSuccessCount + loadFailureCount;
+            return loads == 0 ? 0.0 : (double) totalLoadTime / loads / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{请求=%d, 命中=%d, 未命中=%d, 命中率=%.1f%%, 加载成功=%d, 加载失败=%d, "
+                            + "平均加载=%.1fms, 淘汰=%d, 淘汰权重=%d}",
+                    name, requestCount(), hitCount, missCount, hitRate() * 100, loadSuccessCount,
+                    loadFailureCount, averageLoadPenaltyMillis(), evictionCount, evictionWeight);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.*;
  * 2. LRU 缓存实现
  * 3. LRU 缓存淘汰行为详细跟踪
  * 4. 实际应用场景模拟
+ * 5. 缓存统计（命中率、淘汰次数）
  */
 public class LRUCacheDemo {
 
@@ -21,6 +22,7 @@ public class LRUCacheDemo {
         demo3_LRUCache();
         demo4_LRUCacheDetailedTrace();
         demo5_PracticalLRU();
+        demo6_CacheStats();
     }
 
     /**
@@ -211,6 +213,32 @@ public class LRUCacheDemo {
         System.out.println();
     }
 
+    /**
+     * 演示6：缓存统计 - 根据命中率调整容量
+     */
+    static void demo6_CacheStats() {
+        System.out.println("【演示6】缓存统计：不同容量下的命中率");
+        System.out.println("----------------------------------------------------------");
+
+        // 访问 0~99 共 100 个 key，其中 0~19 是热点（80% 的请求）
+        Random random = new Random(42);
+        int[] accesses = new int[100_000];
+        for (int i = 0; i < accesses.length; i++) {
+            accesses[i] = random.nextInt(10) < 8 ? random.nextInt(20) : 20 + random.nextInt(80);
+        }
+
+        for (int capacity : new int[]{10, 20, 50, 100}) {
+            LRUCache<Integer, String> cache = new LRUCache<>(capacity, new CacheStats("LRU-" + capacity));
+            for (int key : accesses) {
+                if (cache.get(key) == null) {
+                    cache.put(key, "value-" + key);
+                }
+            }
+            System.out.println(cache.stats());
+        }
+        System.out.println("→ 容量覆盖热点数据（20）之后，继续加大容量收益明显变小\n");
+    }
+
     // ================================================================
     // LRU 缓存实现
     // ================================================================
@@ -224,11 +252,34 @@ public class LRUCacheDemo {
      */
     static class LRUCache<K, V> extends LinkedHashMap<K, V> {
         private final int capacity;
+        private final CacheStats stats;
 
         public LRUCache(int capacity) {
+            this(capacity, new CacheStats("LRUCache"));
+        }
+
+        /**
+         * @param stats 统计对象（LoadingCache 传入自己的统计，使淘汰计入同一份数据）
+         */
+        public LRUCache(int capacity, CacheStats stats) {
             // initialCapacity=capacity, loadFactor=0.75, accessOrder=true
             super(capacity, 0.75f, true);
             this.capacity = capacity;
+            this.stats = stats;
+        }
+
+        /**
+         * 查询并记录命中/未命中（值为 null 视为未命中）
+         */
+        @Override
+        public V get(Object key) {
+            V value = super.get(key);
+            if (value != null) {
+                stats.recordHit();
+            } else {
+                stats.recordMiss();
+            }
+            return value;
         }
 
         /**
@@ -237,7 +288,15 @@ public class LRUCacheDemo {
          */
         @Override
         protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            return size() > capacity;
+            if (size() > capacity) {
+                stats.recordEviction(eldest.getKey(), 1);
+                return true;
+            }
+            return false;
+        }
+
+        public CacheStats stats() {
+            return stats;
         }
     }
 
@@ -0,0 +1,595 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 LRUCache 的自动加载缓存（LoadingCache）
+ *
+ * 解决的问题：
+ * 热点 key 未命中时，所有并发调用方都会同时打到后端服务（缓存击穿）。
+ *
+ * 实现要点：
+ * 1. CacheLoader - 未命中时由缓存自己负责加载，调用方只管 get
+ * 2. 请求合并（single-flight）- 同一个 key 的并发未命中共享同一个 CompletableFuture，后端只被调用一次
+ * 3. refreshAfterWrite - 写入超过一定时间后异步刷新，刷新期间继续返回旧值（不阻塞读）
+ * 4. getAll 批量加载 - 多个未命中的 key 合并成一次 loadAll 调用
+ * 5. 统计 - 命中/未命中/加载/淘汰计入 CacheStats，慢加载提交 JFR 事件
+ *
+ * 并发说明：
+ * - LRUCache（LinkedHashMap accessOrder=true）的 get 也会修改链表，因此所有访问都在 synchronized(cache) 内
+ * - 加载过程在锁外执行，正在加载的 key 记录在 ConcurrentHashMap 中（inFlight）
+ * - 加载完成后在锁内"移除自己的 inFlight 记录 + 写缓存"；invalidate / put 在锁内移除 inFlight 记录，
+ *   所以失效之前已经开始的加载或刷新不会把旧值写回缓存（等待它的调用方仍会拿到这次加载的结果）
+ * - CacheLoader 不能在加载某个 key 时再 get 同一个 key：它会等待自己，这种情况直接抛出 IllegalStateException
+ */
+public class LoadingCache<K, V> {
+
+    // ==================== 加载器接口 ====================
+
+    /**
+     * 缓存加载器：定义未命中时如何从后端加载数据
+     */
+    @FunctionalInterface
+    interface CacheLoader<K, V> {
+
+        /**
+         * 加载单个 key
+         */
+        V load(K key) throws Exception;
+
+        /**
+         * 批量加载，默认逐个调用 load，后端支持批量查询时应重写此方法
+         * 返回结果中不包含的 key 视为不存在（不缓存）
+         */
+        default Map<K, V> loadAll(Set<K> keys) throws Exception {
+            Map<K, V> result = new HashMap<>();
+            for (K key : keys) {
+                V value = load(key);
+                if (value != null) {
+                    result.put(key, value);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 刷新已有的值，默认直接重新加载
+         */
+        default V reload(K key, V oldValue) throws Exception {
+            return load(key);
+        }
+    }
+
+    // ==================== 缓存条目 ====================
+
+    /**
+     * 缓存条目：值 + 写入时间（用于判断是否需要刷新）
+     */
+    static final class Entry<V> {
+        final V value;
+        final long writeNanos;
+
+        Entry(V value, long writeNanos) {
+            this.value = value;
+            this.writeNanos = writeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * 正在进行的加载：记录执行加载的线程，用来发现加载器递归读取同一个 key
+     */
+    static final class LoadFuture<V> extends CompletableFuture<V> {
+        volatile Thread loader;
+
+        LoadFuture(Thread loader) {
+            this.loader = loader;
+        }
+    }
+
+    // ==================== 核心字段 ====================
+
+    /** 底层 LRU 存储（非线程安全，访问时需要加锁） */
+    private final LRUCacheDemo.LRUCache<K, Entry<V>> cache;
+
+    /** 正在加载/刷新中的 key → 共享的 Future（single-flight） */
+    private final ConcurrentHashMap<K, LoadFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** 加载器 */
+    private final CacheLoader<K, V> loader;
+
+    /** 写入多久后触发异步刷新（纳秒），<= 0 表示不刷新 */
+    private final long refreshAfterWriteNanos;
+
+    /** 执行异步刷新的线程池 */
+    private final Executor refreshExecutor;
+
+    /** 统计（底层 LRUCache 共用同一份，命中/未命中/淘汰由它记录） */
+    private final CacheStats stats;
+
+    // ==================== 构造方法 ====================
+
+    /**
+     * @param capacity 最大缓存条目数（超出后按 LRU 淘汰）
+     * @param refreshAfterWriteMillis 写入后多久触发异步刷新（毫秒），<= 0 表示不刷新
+     * @param loader 加载器
+     * @param refreshExecutor 异步刷新使用的线程池
+     */
+    public LoadingCache(int capacity, long refreshAfterWriteMillis,
+                        CacheLoader<K, V> loader, Executor refreshExecutor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        if (loader == null || refreshExecutor == null) {
+            throw new NullPointerException("loader 和 refreshExecutor 不能为 null");
+        }
+        this.stats = new CacheStats("LoadingCache");
+        this.cache = new LRUCacheDemo.LRUCache<>(capacity, stats);
+        this.loader = loader;
+        this.refreshAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(refreshAfterWriteMillis);
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    /**
+     * 不带刷新的 LoadingCache
+     */
+    public LoadingCache(int capacity, CacheLoader<K, V> loader) {
+        this(capacity, 0, loader, ForkJoinPool.commonPool());
+    }
+
+    // ==================== 核心方法 ====================
+
+    /**
+     * 获取 key 对应的值，未命中时自动加载
+     * 同一个 key 的并发未命中只会触发一次 load，其余线程等待同一个结果
+     *
+     * @throws CompletionException 加载失败时抛出，cause 为加载器抛出的异常
+     */
+    public V get(K key) {
+        Entry<V> entry = getEntry(key);
+        if (entry != null) {
+            refreshIfNeeded(key, entry);
+            return entry.value;
+        }
+        return join(key, loadShared(key));
+    }
+
+    /**
+     * 只查缓存，不触发加载
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = getEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * 批量获取：命中的直接返回，未命中的 key 合并成一次 loadAll 调用
+     * 已经有其他线程在加载的 key 不会重复加载，而是等待对方的结果
+     */
+    public Map<K, V> getAll(Iterable<K> keys) {
+        Map<K, V> result = new LinkedHashMap<>();
+        Map<K, LoadFuture<V>> waiting = new LinkedHashMap<>();
+        Map<K, LoadFuture<V>> batch = new LinkedHashMap<>();
+
+        for (K key : keys) {
+            Entry<V> entry = getEntry(key);
+            if (entry != null) {
+                refreshIfNeeded(key, entry);
+                result.put(key, entry.value);
+                continue;
+            }
+            LoadFuture<V> future = new LoadFuture<>(Thread.currentThread());
+            LoadFuture<V> existing = inFlight.putIfAbsent(key, future);
+            if (existing == null) {
+                batch.put(key, future);      // 由本线程负责加载
+                waiting.put(key, future);
+            } else {
+                waiting.put(key, existing);  // 其他线程正在加载，等待即可
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            loadBatch(batch);
+        }
+
+        for (Map.Entry<K, LoadFuture<V>> e : waiting.entrySet()) {
+            V value = join(e.getKey(), e.getValue());
+            if (value != null) {
+                result.put(e.getKey(), value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 手动写入：正在进行的加载 / 刷新结果作废，不会覆盖这次写入的值
+     */
+    public void put(K key, V value) {
+        synchronized (cache) {
+            inFlight.remove(key);
+            cache.put(key, new Entry<>(value, System.nanoTime()));
+        }
+    }
+
+    /**
+     * 手动失效：正在进行的加载 / 刷新结果作废，不会把失效前读到的旧值写回缓存
+     */
+    public void invalidate(K key) {
+        synchronized (cache) {
+            inFlight.remove(key);
+            cache.remove(key);
+        }
+    }
+
+    public CacheStats stats() {
+        return stats;
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (cache) {
+            return cache.toString();
+        }
+    }
+
+    // ==================== 内部实现 ====================
+
+    private Entry<V> getEntry(K key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    /**
+     * 内部二次检查用，不计入命中/未命中统计（getOrDefault 没有被 LRUCache 重写）
+     */
+    private Entry<V> peekEntry(K key) {
+        synchronized (cache) {
+            return cache.getOrDefault(key, null);
+        }
+    }
+
+    /**
+     * 加载完成后写入缓存：future 仍是该 key 的 inFlight 记录时才写（期间被 invalidate / put 的结果作废）。
+     * 移除记录和写缓存在同一把锁内，中间窗口内的请求不会再次加载
+     */
+    private void putIfCurrent(K key, V value, LoadFuture<V> future) {
+        synchronized (cache) {
+            if (inFlight.remove(key, future) && value != null) {
+                cache.put(key, new Entry<>(value, System.nanoTime()));
+            }
+        }
+    }
+
+    /**
+     * 等待加载结果；加载器在加载 key 时又读取同一个 key 会等待自己，直接报错
+     */
+    private V join(K key, LoadFuture<V> future) {
+        if (!future.isDone() && future.loader == Thread.currentThread()) {
+            throw new IllegalStateException("CacheLoader 加载 " + key + " 时又读取了同一个 key，会永远等待自己");
+        }
+        return future.join();
+    }
+
+    /**
+     * single-flight：第一个未命中的线程负责加载，其他线程共享它的 Future
+     */
+    private LoadFuture<V> loadShared(K key) {
+        LoadFuture<V> future = new LoadFuture<>(Thread.currentThread());
+        LoadFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        // 拿到 Future 之后再查一次：防止上一次加载刚好在 getEntry 和 putIfAbsent 之间完成
+        Entry<V> entry = peekEntry(key);
+        if (entry != null) {
+            inFlight.remove(key, future);
+            future.complete(entry.value);
+            return future;
+        }
+
+        long start = System.nanoTime();
+        CacheStats.SlowLoadEvent event = stats.beginLoad();
+        try {
+            V value = loader.load(key);
+            stats.endLoad(event, start, key, 1, true);
+            putIfCurrent(key, value, future);
+            future.complete(value);
+        } catch (Throwable t) {
+            stats.endLoad(event, start, key, 1, false);
+            inFlight.remove(key, future);
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+
+    /**
+     * 批量加载一组由本线程负责的 key
+     */
+    private void loadBatch(Map<K, LoadFuture<V>> batch) {
+        Set<K> keys = new LinkedHashSet<>(batch.keySet());
+        long start = System.nanoTime();
+        CacheStats.SlowLoadEvent event = stats.beginLoad();
+        try {
+            Map<K, V> loaded = loader.loadAll(keys);
+            stats.endLoad(event, start, keys, keys.size(), true);
+            for (Map.Entry<K, LoadFuture<V>> e : batch.entrySet()) {
+                V value = loaded.get(e.getKey());
+                putIfCurrent(e.getKey(), value, e.getValue());
+                e.getValue().complete(value);
+            }
+        } catch (Throwable t) {
+            stats.endLoad(event, start, keys, keys.size(), false);
+            for (Map.Entry<K, LoadFuture<V>> e : batch.entrySet()) {
+                inFlight.remove(e.getKey(), e.getValue());
+                e.getValue().completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * refreshAfterWrite：超过刷新时间的条目提交异步刷新，当前调用方继续拿到旧值
+     * 同一个 key 同时只会有一个刷新任务（复用 inFlight）
+     */
+    private void refreshIfNeeded(K key, Entry<V> entry) {
+        if (refreshAfterWriteNanos <= 0
+                || System.nanoTime() - entry.writeNanos < refreshAfterWriteNanos) {
+            return;
+        }
+        LoadFuture<V> future = new LoadFuture<>(null);
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return; // 已经在刷新/加载中
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                future.loader = Thread.currentThread();
+                long start = System.nanoTime();
+                CacheStats.SlowLoadEvent event = stats.beginLoad();
+                try {
+                    V value = loader.reload(key, entry.value);
+                    stats.endLoad(event, start, key, 1, true);
+                    putIfCurrent(key, value, future);
+                    future.complete(value);
+                } catch (Throwable t) {
+                    // 刷新失败：保留旧值，下次访问时再尝试刷新
+                    stats.endLoad(event, start, key, 1, false);
+                    inFlight.remove(key, future);
+                    future.complete(entry.value);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            future.complete(entry.value);
+        }
+    }
+
+    // ==================== 测试主方法 ====================
+
+    /** 模拟后端调用次数 */
+    static final AtomicInteger backendCalls = new AtomicInteger(0);
+
+    /**
+     * 模拟后端查询（同 CompletableFutureDemo.queryUserById，耗时 200ms）
+     */
+    static String queryUserById(int id) {
+        backendCalls.incrementAndGet();
+        sleep(200);
+        return "User-" + id;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("====================================");
+        System.out.println("  LoadingCache 请求合并演示");
+        System.out.println("====================================\n");
+
+        demo1_SingleFlight();
+        demo2_RefreshAfterWrite();
+        demo3_GetAll();
+        demo4_Stats();
+        demo5_InvalidateDuringLoad();
+    }
+
+    /**
+     * 演示1：热点 key 并发未命中，后端只被调用一次
+     */
+    static void demo1_SingleFlight() throws InterruptedException {
+        System.out.println("【演示1】热点 key 并发未命中（50 个线程同时 get(1001)）");
+        System.out.println("----------------------------------------------------------");
+
+        final int THREAD_COUNT = 50;
+
+        // 对照组：直接用 LRUCache + 手动回源
+        backendCalls.set(0);
+        LRUCacheDemo.LRUCache<Integer, String> plain = new LRUCacheDemo.LRUCache<>(100);
+        runConcurrently(THREAD_COUNT, () -> {
+            String value;
+            synchronized (plain) {
+                value = plain.get(1001);
+            }
+            if (value == null) {
+                value = queryUserById(1001);
+                synchronized (plain) {
+                    plain.put(1001, value);
+                }
+            }
+        });
+        System.out.println("LRUCache + 手动回源:  后端调用次数 = " + backendCalls.get());
+
+        // LoadingCache
+        backendCalls.set(0);
+        LoadingCache<Integer, String> cache = new LoadingCache<>(100, LoadingCache::queryUserById);
+        runConcurrently(THREAD_COUNT, () -> cache.get(1001));
+        System.out.println("LoadingCache:         后端调用次数 = " + backendCalls.get());
+        System.out.println("→ 并发未命中共享同一个 CompletableFuture，只有一个线程真正回源\n");
+    }
+
+    /**
+     * 演示2：refreshAfterWrite 异步刷新，刷新期间返回旧值
+     */
+    static void demo2_RefreshAfterWrite() {
+        System.out.println("【演示2】refreshAfterWrite=300ms（刷新期间返回旧值）");
+        System.out.println("----------------------------------------------------------");
+
+        AtomicInteger version = new AtomicInteger(0);
+        ExecutorService refreshPool = Executors.newFixedThreadPool(2);
+        LoadingCache<String, String> cache = new LoadingCache<>(10, 300, key -> {
+            sleep(200);
+            return key + "-v" + version.incrementAndGet();
+        }, refreshPool);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 8; i++) {
+            long t0 = System.nanoTime();
+            String value = cache.get("config");
+            long costMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            System.out.printf("[%4dms] get(config) = %-10s 耗时 %dms%n",
+                    System.currentTimeMillis() - start, value, costMs);
+            sleep(150);
+        }
+        refreshPool.shutdown();
+        System.out.println("→ 只有第一次加载阻塞调用方，之后的刷新都在后台完成\n");
+    }
+
+    /**
+     * 演示3：getAll 把多个未命中合并成一次批量加载
+     */
+    static void demo3_GetAll() {
+        System.out.println("【演示3】getAll 批量加载");
+        System.out.println("----------------------------------------------------------");
+
+        AtomicInteger batchCalls = new AtomicInteger(0);
+        LoadingCache<Integer, String> cache = new LoadingCache<>(100, new CacheLoader<Integer, String>() {
+            @Override
+            public String load(Integer key) {
+                return queryUserById(key);
+            }
+
+            @Override
+            public Map<Integer, String> loadAll(Set<Integer> keys) {
+                batchCalls.incrementAndGet();
+                System.out.println("  loadAll" + keys + " ← 一次批量查询");
+                sleep(200);
+                Map<Integer, String> result = new HashMap<>();
+                for (Integer key : keys) {
+                    result.put(key, "User-" + key);
+                }
+                return result;
+            }
+        });
+
+        cache.get(1);
+        cache.get(2);
+        Map<Integer, String> users = cache.getAll(Arrays.asList(1, 2, 3, 4, 5));
+        System.out.println("getAll(1..5) = " + users);
+        System.out.println("批量加载次数 = " + batchCalls.get() + "（1、2 命中，3、4、5 合并加载）\n");
+    }
+
+    /**
+     * 演示4：统计数据（配合 -XX:StartFlightRecording 可在 JFR 中看到淘汰和慢加载事件）
+     */
+    static void demo4_Stats() throws InterruptedException {
+        System.out.println("【演示4】缓存统计（容量=50，key 空间=100，加载失败率 10%）");
+        System.out.println("----------------------------------------------------------");
+
+        LoadingCache<Integer, String> cache = new LoadingCache<>(50, key -> {
+            sleep(key % 10 == 0 ? 30 : 1); // 部分 key 加载较慢，超过 20ms 阈值会产生 SlowCacheLoad 事件
+            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                throw new IllegalStateException("后端超时");
+            }
+            return "User-" + key;
+        });
+
+        runConcurrently(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 200; i++) {
+                try {
+                    cache.get(random.nextInt(100));
+                } catch (CompletionException ignored) {
+                    // 加载失败由统计记录
+                }
+            }
+        });
+
+        System.out.println(cache.stats());
+        System.out.println();
+    }
+
+    /**
+     * 演示5：加载进行中时失效，加载结果不会写回缓存；加载器读取正在加载的 key 会直接报错
+     */
+    static void demo5_InvalidateDuringLoad() throws InterruptedException {
+        System.out.println("【演示5】加载进行中调用 invalidate");
+        System.out.println("----------------------------------------------------------");
+
+        // 后端数据：加载读到 v1 之后、写回缓存之前，后端改成了 v2 并调用 invalidate
+        String[] backend = {"v1"};
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        LoadingCache<Integer, String> cache = new LoadingCache<>(100, key -> {
+            String value = backend[0];
+            loaded.countDown();
+            invalidated.await();
+            return value;
+        });
+        Thread reader = new Thread(() -> cache.get(1));
+        reader.start();
+        loaded.await();
+        backend[0] = "v2";
+        cache.invalidate(1);
+        invalidated.countDown();
+        reader.join();
+        String cached = cache.getIfPresent(1);
+        System.out.println("失效前开始的加载完成后，缓存中的值: " + cached + (cached == null ? " ✓（旧值没有写回）" : " ✗"));
+
+        List<LoadingCache<Integer, String>> self = new ArrayList<>();
+        LoadingCache<Integer, String> recursive = new LoadingCache<>(100, key -> self.get(0).get(key));
+        self.add(recursive);
+        try {
+            recursive.get(1);
+            System.out.println("✗ 加载器递归读取同一个 key 没有报错");
+        } catch (CompletionException e) {
+            System.out.println("加载器递归读取同一个 key: " + e.getCause().getClass().getSimpleName() + " ✓（而不是永远等待）");
+        }
+        System.out.println();
+    }
+
+    // ==================== 辅助方法 ====================
+
+    static void runConcurrently(int threadCount, Runnable action) throws InterruptedException {
+        CountDownLatch startGate = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    startGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                action.run();
+            });
+            threads[i].start();
+        }
+        startGate.countDown();
+        for (Thread t : threads) t.join();
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
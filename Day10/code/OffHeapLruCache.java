@@ -0,0 +1,657 @@
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外 LRU 缓存（Slab 分配 + 堆内紧凑索引）
+ *
+ * 解决的问题：
+ * LRUCache 里放上百万个 byte[] 时，所有数据都在 Java 堆上，GC 需要标记/复制这些对象，
+ * 堆越大停顿越长。把值序列化后放到堆外（DirectByteBuffer），堆上只剩下几个基本类型数组。
+ *
+ * 设计要点（参考 memcached）：
+ * 1. Slab 分配 - 堆外内存按页（page）申请，每页只属于一个 slab class，被切成固定大小的 chunk
+ *    slab class 的 chunk 大小按 1.25 倍递增，条目放进能装下它的最小 chunk
+ * 2. 堆内紧凑索引 - 开放寻址哈希表，只有 long[]（chunk 地址）+ int[]（hash），没有对象引用
+ * 3. 每个 slab class 一条 LRU 链表 - prev/next 指针直接写在堆外 chunk 头部
+ * 4. 淘汰 - 某个 class 没有空闲 chunk 且内存已达上限时，淘汰该 class 的链表头（最久未使用）
+ * 5. 统计 - 命中/未命中/淘汰计入 CacheStats，淘汰权重为 chunk 字节数
+ *
+ * chunk 布局（堆外）：
+ * | prev(8) | next(8) | hash(4) | keyLen(4) | valueLen(4) | key bytes | value bytes |
+ *
+ * 地址编码：address = (pageIndex << 32) | offsetInPage
+ *
+ * 线程安全：所有公开方法使用 synchronized，与 LRUCache 外加锁的用法一致
+ * 运行要求：使用了 ByteBuffer 绝对位置批量读写，需要 JDK 13+
+ */
+public class OffHeapLruCache {
+
+    // ==================== chunk 头部布局 ====================
+
+    private static final int PREV_OFFSET = 0;
+    private static final int NEXT_OFFSET = 8;
+    private static final int HASH_OFFSET = 16;
+    private static final int KEY_LEN_OFFSET = 20;
+    private static final int VALUE_LEN_OFFSET = 24;
+    private static final int HEADER_SIZE = 28;
+
+    /** 空指针 */
+    private static final long NIL = -1L;
+
+    /** 最小 chunk 大小与增长因子 */
+    private static final int MIN_CHUNK_SIZE = 64;
+    private static final double GROWTH_FACTOR = 1.25;
+
+    /** 默认页大小 1MB（同时也是单个条目的上限） */
+    static final int DEFAULT_PAGE_SIZE = 1 << 20;
+
+    // ==================== Slab Class ====================
+
+    /**
+     * 一个 slab class：固定 chunk 大小 + 空闲链表 + LRU 链表
+     */
+    static final class SlabClass {
+        final int id;
+        final int chunkSize;
+
+        /** 空闲 chunk 链表（复用 chunk 头部的 next 字段） */
+        long freeHead = NIL;
+
+        /** LRU 链表：头部最久未使用，尾部最近使用 */
+        long lruHead = NIL;
+        long lruTail = NIL;
+
+        int pageCount;
+        long itemCount;
+        long evictions;
+
+        SlabClass(int id, int chunkSize) {
+            this.id = id;
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    // ==================== 核心字段 ====================
+
+    private final int pageSize;
+    private final long maxMemory;
+    private final SlabClass[] slabClasses;
+
+    /** 所有已申请的堆外页 */
+    private final List<ByteBuffer> pages = new ArrayList<>();
+
+    /** 已申请的堆外内存（字节） */
+    private long allocatedMemory;
+
+    /** 统计 */
+    private final CacheStats stats = new CacheStats("OffHeapLruCache");
+
+    /** 堆内索引：开放寻址（线性探测），indexAddrs[i] == NIL 表示空槽 */
+    private long[] indexAddrs;
+    private int[] indexHashes;
+    private int size;
+
+    // ==================== 构造方法 ====================
+
+    /**
+     * @param maxMemory 堆外内存上限（字节）
+     * @param pageSize 页大小（字节），也是单个条目（头部 + key + value）的上限
+     */
+    public OffHeapLruCache(long maxMemory, int pageSize) {
+        if (maxMemory < pageSize || pageSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("maxMemory 必须不小于 pageSize，pageSize 必须不小于 " + MIN_CHUNK_SIZE);
+        }
+        this.pageSize = pageSize;
+        this.maxMemory = maxMemory;
+        this.slabClasses = buildSlabClasses(pageSize);
+        this.indexAddrs = new long[1024];
+        this.indexHashes = new int[1024];
+        Arrays.fill(indexAddrs, NIL);
+    }
+
+    public OffHeapLruCache(long maxMemory) {
+        this(maxMemory, DEFAULT_PAGE_SIZE);
+    }
+
+    private static SlabClass[] buildSlabClasses(int pageSize) {
+        List<SlabClass> list = new ArrayList<>();
+        int chunkSize = MIN_CHUNK_SIZE;
+        while (chunkSize < pageSize) {
+            list.add(new SlabClass(list.size(), chunkSize));
+            int next = (int) Math.ceil(chunkSize * GROWTH_FACTOR);
+            chunkSize = (next + 7) & ~7; // 8 字节对齐
+        }
+        list.add(new SlabClass(list.size(), pageSize));
+        return list.toArray(new SlabClass[0]);
+    }
+
+    // ==================== 公开方法 ====================
+
+    /**
+     * 写入条目；同一个 key 已存在时覆盖
+     *
+     * 覆盖时新值仍属于旧条目的 slab class 则原地改写旧 chunk；否则先在新 class 分配 chunk，
+     * 成功后才删除旧条目，分配失败时旧值保持不变。
+     *
+     * @return false 表示该 slab class 没有任何页且内存已满，无法写入
+     */
+    public synchronized boolean put(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int itemSize = HEADER_SIZE + keyBytes.length + value.length;
+        if (itemSize > pageSize) {
+            throw new IllegalArgumentException("条目过大: " + itemSize + " 字节，上限 " + pageSize);
+        }
+        int hash = hash(keyBytes);
+        SlabClass sc = slabClassFor(itemSize);
+
+        int slot = findSlot(hash, keyBytes);
+        if (slot >= 0) {
+            long oldAddr = indexAddrs[slot];
+            int oldSize = HEADER_SIZE + keyBytes.length + page(oldAddr).getInt(offset(oldAddr) + VALUE_LEN_OFFSET);
+            if (slabClassFor(oldSize) == sc) {
+                // 同一个 class：chunk 装得下，key 和 hash 不变，只改写值并移到 LRU 尾部
+                writeValue(oldAddr, keyBytes.length, value);
+                unlink(sc, oldAddr);
+                linkLast(sc, oldAddr);
+                return true;
+            }
+        }
+
+        long addr = allocateChunk(sc);
+        if (addr == NIL) {
+            return false;
+        }
+        if (slot >= 0) {
+            // 在其他 class 淘汰条目会移动索引槽位，按原 key 重新定位旧条目
+            slot = findSlot(hash, keyBytes);
+            removeItem(indexAddrs[slot], slot);
+        }
+
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        page.putInt(off + HASH_OFFSET, hash);
+        page.putInt(off + KEY_LEN_OFFSET, keyBytes.length);
+        page.put(off + HEADER_SIZE, keyBytes);
+        writeValue(addr, keyBytes.length, value);
+
+        linkLast(sc, addr);
+        sc.itemCount++;
+        insertIndex(hash, addr);
+        return true;
+    }
+
+    /**
+     * 读取条目（拷贝回堆上），命中时移动到所在 slab class 的 LRU 尾部
+     */
+    public synchronized byte[] get(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(hash(keyBytes), keyBytes);
+        if (slot < 0) {
+            stats.recordMiss();
+            return null;
+        }
+        stats.recordHit();
+        long addr = indexAddrs[slot];
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        int keyLen = page.getInt(off + KEY_LEN_OFFSET);
+        byte[] value = new byte[page.getInt(off + VALUE_LEN_OFFSET)];
+        page.get(off + HEADER_SIZE + keyLen, value);
+
+        SlabClass sc = slabClassFor(HEADER_SIZE + keyLen + value.length);
+        unlink(sc, addr);
+        linkLast(sc, addr);
+        return value;
+    }
+
+    public synchronized boolean remove(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(hash(keyBytes), keyBytes);
+        if (slot < 0) {
+            return false;
+        }
+        removeItem(indexAddrs[slot], slot);
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long allocatedMemory() {
+        return allocatedMemory;
+    }
+
+    public synchronized long evictionCount() {
+        long total = 0;
+        for (SlabClass sc : slabClasses) {
+            total += sc.evictions;
+        }
+        return total;
+    }
+
+    public CacheStats stats() {
+        return stats;
+    }
+
+    /**
+     * 各 slab class 的使用情况
+     */
+    public synchronized String slabStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-6s %-10s %-8s %-12s %-10s%n", "class", "chunkSize", "pages", "items", "evictions"));
+        for (SlabClass sc : slabClasses) {
+            if (sc.pageCount == 0) continue;
+            sb.append(String.format("%-6d %-10d %-8d %-12d %-10d%n",
+                    sc.id, sc.chunkSize, sc.pageCount, sc.itemCount, sc.evictions));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("OffHeapLruCache{size=%d, pages=%d, allocated=%dMB, evictions=%d}",
+                size, pages.size(), allocatedMemory >> 20, evictionCount());
+    }
+
+    // ==================== Slab 分配 ====================
+
+    private SlabClass slabClassFor(int itemSize) {
+        // slab class 数量只有几十个，二分查找即可
+        int lo = 0, hi = slabClasses.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (slabClasses[mid].chunkSize >= itemSize) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return slabClasses[lo];
+    }
+
+    /**
+     * 分配 chunk：空闲链表 → 申请新页 → 淘汰本 class 的 LRU 头部
+     */
+    private long allocateChunk(SlabClass sc) {
+        if (sc.freeHead == NIL && allocatedMemory + pageSize <= maxMemory) {
+            allocatePage(sc);
+        }
+        if (sc.freeHead != NIL) {
+            long addr = sc.freeHead;
+            sc.freeHead = page(addr).getLong(offset(addr) + NEXT_OFFSET);
+            return addr;
+        }
+        if (sc.lruHead == NIL) {
+            // 内存已被其他 class 占满，本 class 一页都没有（slab 钙化）
+            return NIL;
+        }
+        long victim = sc.lruHead;
+        int slot = findSlotByAddress(victim);
+        // 淘汰在写路径上，key 只在 JFR 录制时才从堆外内存解码
+        stats.recordEviction(() -> readKey(victim), sc.chunkSize);
+        removeItem(victim, slot);
+        sc.evictions++;
+        long addr = sc.freeHead;
+        sc.freeHead = page(addr).getLong(offset(addr) + NEXT_OFFSET);
+        return addr;
+    }
+
+    /**
+     * 为 slab class 申请一页堆外内存，并切成 chunk 挂到空闲链表
+     */
+    private void allocatePage(SlabClass sc) {
+        ByteBuffer page = ByteBuffer.allocateDirect(pageSize);
+        int pageIndex = pages.size();
+        pages.add(page);
+        allocatedMemory += pageSize;
+        sc.pageCount++;
+
+        int chunks = pageSize / sc.chunkSize;
+        for (int i = chunks - 1; i >= 0; i--) {
+            long addr = address(pageIndex, i * sc.chunkSize);
+            page.putLong(offset(addr) + NEXT_OFFSET, sc.freeHead);
+            sc.freeHead = addr;
+        }
+    }
+
+    /**
+     * 写入值长度和值内容（key 已在 chunk 中）
+     */
+    private void writeValue(long addr, int keyLen, byte[] value) {
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        page.putInt(off + VALUE_LEN_OFFSET, value.length);
+        page.put(off + HEADER_SIZE + keyLen, value);
+    }
+
+    /**
+     * 删除条目：从索引、LRU 链表移除，chunk 归还空闲链表
+     */
+    private void removeItem(long addr, int slot) {
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        int itemSize = HEADER_SIZE + page.getInt(off + KEY_LEN_OFFSET) + page.getInt(off + VALUE_LEN_OFFSET);
+        SlabClass sc = slabClassFor(itemSize);
+
+        unlink(sc, addr);
+        sc.itemCount--;
+        removeIndexSlot(slot);
+
+        page.putLong(off + NEXT_OFFSET, sc.freeHead);
+        sc.freeHead = addr;
+    }
+
+    // ==================== LRU 链表（指针在堆外） ====================
+
+    private void linkLast(SlabClass sc, long addr) {
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        page.putLong(off + PREV_OFFSET, sc.lruTail);
+        page.putLong(off + NEXT_OFFSET, NIL);
+        if (sc.lruTail == NIL) {
+            sc.lruHead = addr;
+        } else {
+            page(sc.lruTail).putLong(offset(sc.lruTail) + NEXT_OFFSET, addr);
+        }
+        sc.lruTail = addr;
+    }
+
+    private void unlink(SlabClass sc, long addr) {
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        long prev = page.getLong(off + PREV_OFFSET);
+        long next = page.getLong(off + NEXT_OFFSET);
+        if (prev == NIL) {
+            sc.lruHead = next;
+        } else {
+            page(prev).putLong(offset(prev) + NEXT_OFFSET, next);
+        }
+        if (next == NIL) {
+            sc.lruTail = prev;
+        } else {
+            page(next).putLong(offset(next) + PREV_OFFSET, prev);
+        }
+    }
+
+    // ==================== 堆内索引（开放寻址） ====================
+
+    private int findSlot(int hash, byte[] keyBytes) {
+        int mask = indexAddrs.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long addr = indexAddrs[i];
+            if (addr == NIL) {
+                return -1;
+            }
+            if (indexHashes[i] == hash && keyEquals(addr, keyBytes)) {
+                return i;
+            }
+        }
+    }
+
+    private int findSlotByAddress(long addr) {
+        int hash = page(addr).getInt(offset(addr) + HASH_OFFSET);
+        int mask = indexAddrs.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            if (indexAddrs[i] == addr) {
+                return i;
+            }
+        }
+    }
+
+    private void insertIndex(int hash, long addr) {
+        if ((size + 1) * 4L > indexAddrs.length * 3L) { // 负载因子 0.75
+            resizeIndex();
+        }
+        int mask = indexAddrs.length - 1;
+        int i = hash & mask;
+        while (indexAddrs[i] != NIL) {
+            i = (i + 1) & mask;
+        }
+        indexAddrs[i] = addr;
+        indexHashes[i] = hash;
+        size++;
+    }
+
+    /**
+     * 线性探测的删除：向后移动（backward shift），不需要墓碑标记
+     */
+    private void removeIndexSlot(int slot) {
+        int mask = indexAddrs.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; indexAddrs[i] != NIL; i = (i + 1) & mask) {
+            int home = indexHashes[i] & mask;
+            // home 不在 (hole, i] 区间内时，说明该元素可以前移填补空洞
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                indexAddrs[hole] = indexAddrs[i];
+                indexHashes[hole] = indexHashes[i];
+                hole = i;
+            }
+        }
+        indexAddrs[hole] = NIL;
+        size--;
+    }
+
+    private void resizeIndex() {
+        long[] oldAddrs = indexAddrs;
+        int[] oldHashes = indexHashes;
+        indexAddrs = new long[oldAddrs.length << 1];
+        indexHashes = new int[oldAddrs.length << 1];
+        Arrays.fill(indexAddrs, NIL);
+        int mask = indexAddrs.length - 1;
+        for (int j = 0; j < oldAddrs.length; j++) {
+            if (oldAddrs[j] == NIL) continue;
+            int i = oldHashes[j] & mask;
+            while (indexAddrs[i] != NIL) {
+                i = (i + 1) & mask;
+            }
+            indexAddrs[i] = oldAddrs[j];
+            indexHashes[i] = oldHashes[j];
+        }
+    }
+
+    private boolean keyEquals(long addr, byte[] keyBytes) {
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        if (page.getInt(off + KEY_LEN_OFFSET) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (page.get(off + HEADER_SIZE + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private String readKey(long addr) {
+        ByteBuffer page = page(addr);
+        int off = offset(addr);
+        byte[] keyBytes = new byte[page.getInt(off + KEY_LEN_OFFSET)];
+        page.get(off + HEADER_SIZE, keyBytes);
+        return new String(keyBytes, StandardCharsets.UTF_8);
+    }
+
+    private static int hash(byte[] keyBytes) {
+        int h = Arrays.hashCode(keyBytes) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long address(int pageIndex, int offset) {
+        return ((long) pageIndex << 32) | offset;
+    }
+
+    private ByteBuffer page(long addr) {
+        return pages.get((int) (addr >>> 32));
+    }
+
+    private static int offset(long addr) {
+        return (int) addr;
+    }
+
+    // ==================== 测试主方法 ====================
+
+    /**
+     * 用法：java OffHeapLruCache [数据量MB] [heap|offheap|both]
+     *
+     * 4GB 对比（建议两种模式分别在独立 JVM 中运行，避免互相影响）：
+     *   java -Xmx8g OffHeapLruCache 4096 heap
+     *   java -Xmx1g -XX:MaxDirectMemorySize=5g OffHeapLruCache 4096 offheap
+     */
+    public static void main(String[] args) {
+        long dataMb = args.length > 0 ? Long.parseLong(args[0]) : 256;
+        String mode = args.length > 1 ? args[1] : "both";
+
+        System.out.println("====================================");
+        System.out.println("  堆外 LRU 缓存 vs LRUCache GC 对比");
+        System.out.println("====================================\n");
+
+        demo1_BasicUsage();
+
+        System.out.printf("【演示2】GC 停顿对比（缓存数据量 %dMB）%n", dataMb);
+        System.out.println("----------------------------------------------------------");
+        if (!"offheap".equals(mode)) {
+            runGcComparison("LRUCache(堆内)", dataMb, false);
+        }
+        if (!"heap".equals(mode)) {
+            runGcComparison("OffHeapLruCache", dataMb, true);
+        }
+        System.out.println("→ 堆内方案的 GC 需要处理上百万个 byte[]，堆外方案堆上只有索引数组");
+    }
+
+    /**
+     * 演示1：基本用法与 slab 淘汰
+     */
+    static void demo1_BasicUsage() {
+        System.out.println("【演示1】基本用法（内存上限 4 页 × 64KB）");
+        System.out.println("----------------------------------------------------------");
+
+        OffHeapLruCache cache = new OffHeapLruCache(4 * 64 * 1024, 64 * 1024);
+        cache.put("user:1", "张三".getBytes(StandardCharsets.UTF_8));
+        cache.put("user:2", "李四".getBytes(StandardCharsets.UTF_8));
+        System.out.println("get(user:1) = " + new String(cache.get("user:1"), StandardCharsets.UTF_8));
+
+        // 写入 1000 个 ~1KB 的条目，触发同一 slab class 内的 LRU 淘汰
+        for (int i = 0; i < 1000; i++) {
+            cache.put("item:" + i, new byte[1000]);
+        }
+        System.out.println(cache);
+        System.out.println("get(item:0)   = " + (cache.get("item:0") == null ? "null（已淘汰）" : "命中"));
+        System.out.println("get(item:999) = " + (cache.get("item:999") == null ? "null" : "命中"));
+        System.out.print(cache.slabStats());
+        System.out.println(cache.stats());
+
+        // 覆盖：同 class 原地改写；新 class 分配失败时旧值保留
+        cache.put("user:2", "王五".getBytes(StandardCharsets.UTF_8));
+        boolean grown = cache.put("user:1", new byte[5000]);
+        byte[] kept = cache.get("user:1");
+        System.out.printf("覆盖 user:2 = %s，user:1 换成 5000 字节: 写入=%s，旧值=%s %s%n",
+                new String(cache.get("user:2"), StandardCharsets.UTF_8), grown,
+                kept == null ? "null" : new String(kept, StandardCharsets.UTF_8),
+                !grown && kept != null ? "✓" : "✗");
+        System.out.println();
+    }
+
+    /**
+     * 填充指定数据量后做读写混合，统计期间的 GC 次数、总停顿和最大停顿
+     */
+    static void runGcComparison(String name, long dataMb, boolean offHeap) {
+        final int MIN_VALUE = 256;
+        final int MAX_VALUE = 4096;
+        long targetBytes = dataMb << 20;
+        int entries = (int) (targetBytes / ((MIN_VALUE + MAX_VALUE) / 2));
+        int keySpace = entries + entries / 5; // key 空间比容量大 20%，持续产生淘汰
+
+        System.gc();
+        GcMonitor monitor = new GcMonitor();
+
+        long start = System.nanoTime();
+        LRUCacheDemo.LRUCache<String, byte[]> heapCache = null;
+        OffHeapLruCache offHeapCache = null;
+        if (offHeap) {
+            // chunk 向上取整会有内部碎片，多留 25% 内存
+            offHeapCache = new OffHeapLruCache(targetBytes + targetBytes / 4);
+        } else {
+            heapCache = new LRUCacheDemo.LRUCache<>(entries);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long ops = (long) entries * 3;
+        for (long i = 0; i < ops; i++) {
+            String key = "key-" + (i < entries ? i : random.nextInt(keySpace));
+            boolean write = i < entries || random.nextInt(10) < 2; // 先填满，再 80% 读 / 20% 写
+            if (offHeap) {
+                if (write) {
+                    offHeapCache.put(key, new byte[random.nextInt(MIN_VALUE, MAX_VALUE)]);
+                } else {
+                    offHeapCache.get(key);
+                }
+            } else {
+                if (write) {
+                    heapCache.put(key, new byte[random.nextInt(MIN_VALUE, MAX_VALUE)]);
+                } else {
+                    heapCache.get(key);
+                }
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int size = offHeap ? offHeapCache.size() : heapCache.size();
+        monitor.close();
+
+        Runtime rt = Runtime.getRuntime();
+        System.out.printf("%-16s 条目=%-9d 耗时=%-7dms GC次数=%-5d GC总停顿=%-7dms 最大停顿=%-5dms 堆已用=%dMB%n",
+                name, size, elapsedMs, monitor.count.get(), monitor.totalMs.get(), monitor.maxMs.get(),
+                (rt.totalMemory() - rt.freeMemory()) >> 20);
+    }
+
+    /**
+     * 通过 GC 通知统计每次停顿时间
+     */
+    static final class GcMonitor {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMs = new AtomicLong();
+        final AtomicLong maxMs = new AtomicLong();
+        private final List<Runnable> unregister = new ArrayList<>();
+
+        GcMonitor() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (!(gc instanceof NotificationEmitter)) continue;
+                NotificationEmitter emitter = (NotificationEmitter) gc;
+                javax.management.NotificationListener listener = (notification, handback) -> {
+                    if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        return;
+                    }
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    long duration = info.getGcInfo().getDuration();
+                    count.incrementAndGet();
+                    totalMs.addAndGet(duration);
+                    maxMs.accumulateAndGet(duration, Math::max);
+                };
+                emitter.addNotificationListener(listener, null, null);
+                unregister.add(() -> {
+                    try {
+                        emitter.removeNotificationListener(listener);
+                    } catch (Exception ignored) {
+                    }
+                });
+            }
+        }
+
+        void close() {
+            unregister.forEach(Runnable::run);
+        }
+    }
+}